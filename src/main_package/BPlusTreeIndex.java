@@ -0,0 +1,399 @@
+package main_package;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// 0번 필드(탐색키)에 대한 디스크 B+ 트리 (<이름>.idx, 블록은 BufferPool 을 통해 접근)
+// 같은 키가 여러 번 나올 수 있으므로 (키, 블록, 오프셋) 전체를 정렬 키로 사용
+public class BPlusTreeIndex {
+    private static final int BLOCK_SIZE = BufferPool.DEFAULT_PAGE_SIZE;
+    private static final int INDEX_MAGIC = 0x42505449; // "BPTI"
+    private static final int NODE_HEADER_SIZE = 1 + 4 + 4; // type + count + nextLeaf/child0
+    private static final byte LEAF = 1;
+    private static final byte INTERNAL = 0;
+
+    private final BufferPool bufferPool = BufferPool.getInstance();
+    private final String indexFilename;
+    private final int keyLength;
+    private final int leafCapacity;
+    private final int internalCapacity;
+
+    // 인덱스 헤더 (0번 블록)
+    private int rootBlock;
+    private int pageCount;
+    private long entryCount;
+
+    // 인덱스 엔트리 (리프: 레코드 주소, 내부 노드: 구분키)
+    private static class Entry {
+        byte[] key;
+        int block;
+        int offset;
+
+        Entry(byte[] key, int block, int offset) {
+            this.key = key;
+            this.block = block;
+            this.offset = offset;
+        }
+    }
+
+    private static class Node {
+        boolean leaf;
+        int nextLeaf = -1;
+        List<Entry> entries = new ArrayList<>();
+        List<Integer> children = new ArrayList<>(); // 내부 노드만, entries.size() + 1 개
+    }
+
+    // 분할 결과: 부모에 올릴 구분키와 새 오른쪽 노드
+    private static class Split {
+        Entry separator;
+        int rightBlock;
+
+        Split(Entry separator, int rightBlock) {
+            this.separator = separator;
+            this.rightBlock = rightBlock;
+        }
+    }
+
+    private BPlusTreeIndex(String indexFilename, int keyLength) {
+        this.indexFilename = indexFilename;
+        this.keyLength = keyLength;
+        this.leafCapacity = (BLOCK_SIZE - NODE_HEADER_SIZE) / (keyLength + 8);
+        this.internalCapacity = (BLOCK_SIZE - NODE_HEADER_SIZE) / (keyLength + 8 + 4);
+    }
+
+    public static String indexFileFor(String dataFilename) {
+        String base = dataFilename.endsWith(".dat")
+            ? dataFilename.substring(0, dataFilename.length() - 4)
+            : dataFilename;
+        return base + ".idx";
+    }
+
+    public static boolean exists(String dataFilename) {
+        return BufferPool.getInstance().exists(indexFileFor(dataFilename));
+    }
+
+    // 키 길이가 너무 길면 한 노드에 3개 미만이 들어가 트리를 만들 수 없음
+    public static boolean supports(int keyLength) {
+        return (BLOCK_SIZE - NODE_HEADER_SIZE) / (keyLength + 8 + 4) >= 3;
+    }
+
+    public static BPlusTreeIndex open(String dataFilename) throws IOException {
+        String indexFilename = indexFileFor(dataFilename);
+        ByteBuffer header = ByteBuffer.allocate(4 + 4 + 4 + 4 + 8);
+        BufferPool.getInstance().read(indexFilename, 0, header.array(), 0, header.capacity());
+        if (header.getInt() != INDEX_MAGIC) {
+            throw new IOException("Not an index file: " + indexFilename);
+        }
+        BPlusTreeIndex index = new BPlusTreeIndex(indexFilename, header.getInt());
+        index.rootBlock = header.getInt();
+        index.pageCount = header.getInt();
+        index.entryCount = header.getLong();
+        return index;
+    }
+
+    // 빈 인덱스 생성 (루트는 빈 리프)
+    public static BPlusTreeIndex create(String dataFilename, int keyLength) throws IOException {
+        if (!supports(keyLength)) {
+            throw new IOException("Search-key too long for a B+ tree node: " + keyLength);
+        }
+        String indexFilename = indexFileFor(dataFilename);
+        BufferPool.getInstance().deleteFile(indexFilename);
+        BufferPool.getInstance().openFile(indexFilename, true);
+
+        BPlusTreeIndex index = new BPlusTreeIndex(indexFilename, keyLength);
+        index.pageCount = 1;
+        index.rootBlock = index.allocatePage();
+        Node root = new Node();
+        root.leaf = true;
+        index.writeNode(index.rootBlock, root);
+        index.writeIndexHeader();
+        return index;
+    }
+
+    // 데이터 파일의 기존 레코드로 인덱스 새로 구성
+    public static BPlusTreeIndex build(String dataFilename, FileStructure fs, FileStructure.Metadata meta) throws IOException {
+        BPlusTreeIndex index = create(dataFilename, meta.fields.get(0).length);
+        int block = meta.firstRecordBlock;
+        int offset = meta.firstRecordOffset;
+        while (block != -1 && offset != -1) {
+            ByteBuffer rec = fs.readRecordBytes(dataFilename, meta, block, offset);
+            int nextBlock = rec.getInt();
+            int nextOffset = rec.getInt();
+            rec.get(); // nullBitmap
+            byte[] key = new byte[index.keyLength];
+            rec.get(key);
+            index.insert(key, block, offset);
+            block = nextBlock;
+            offset = nextOffset;
+        }
+        return index;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    // 엔트리 삽입 (key 는 레코드에 저장된 그대로 공백으로 채운 고정 길이)
+    public void insert(byte[] key, int block, int offset) throws IOException {
+        Split split = insertInto(rootBlock, new Entry(key, block, offset));
+        if (split != null) {
+            // 루트 분할 -> 트리 높이 증가
+            Node newRoot = new Node();
+            newRoot.leaf = false;
+            newRoot.children.add(rootBlock);
+            newRoot.entries.add(split.separator);
+            newRoot.children.add(split.rightBlock);
+            rootBlock = allocatePage();
+            writeNode(rootBlock, newRoot);
+        }
+        entryCount++;
+        writeIndexHeader();
+    }
+
+    // 엔트리 삭제 (레코드 삭제 시), 없으면 false
+    // 리프에서 빼기만 하고 합치지 않음 (빈 리프도 체인에 남고, 내부 노드의 구분키는 지운 엔트리여도 길 찾기에는 그대로 쓸 수 있음)
+    public boolean delete(byte[] key, int block, int offset) throws IOException {
+        Entry target = new Entry(key, block, offset);
+        int nodeBlock = rootBlock;
+        Node node = readNode(nodeBlock);
+        while (!node.leaf) {
+            nodeBlock = node.children.get(upperBound(node.entries, target));
+            node = readNode(nodeBlock);
+        }
+        int pos = upperBound(node.entries, target) - 1;
+        if (pos < 0 || compareEntries(node.entries.get(pos), target) != 0) {
+            return false;
+        }
+        node.entries.remove(pos);
+        writeNode(nodeBlock, node);
+        entryCount--;
+        writeIndexHeader();
+        return true;
+    }
+
+    private Split insertInto(int nodeBlock, Entry entry) throws IOException {
+        Node node = readNode(nodeBlock);
+
+        if (node.leaf) {
+            int pos = upperBound(node.entries, entry);
+            node.entries.add(pos, entry);
+            if (node.entries.size() <= leafCapacity) {
+                writeNode(nodeBlock, node);
+                return null;
+            }
+
+            // 리프 분할: 오른쪽 첫 엔트리를 부모로 복사
+            // 맨 끝에 추가된 경우(정렬된 순서로 적재)는 왼쪽을 꽉 채워 둠
+            int mid = (pos == node.entries.size() - 1) ? node.entries.size() - 1 : node.entries.size() / 2;
+            Node right = new Node();
+            right.leaf = true;
+            right.entries = new ArrayList<>(node.entries.subList(mid, node.entries.size()));
+            node.entries = new ArrayList<>(node.entries.subList(0, mid));
+
+            int rightBlock = allocatePage();
+            right.nextLeaf = node.nextLeaf;
+            node.nextLeaf = rightBlock;
+            writeNode(nodeBlock, node);
+            writeNode(rightBlock, right);
+            return new Split(right.entries.get(0), rightBlock);
+        }
+
+        int childIndex = upperBound(node.entries, entry);
+        Split childSplit = insertInto(node.children.get(childIndex), entry);
+        if (childSplit == null) {
+            return null;
+        }
+
+        node.entries.add(childIndex, childSplit.separator);
+        node.children.add(childIndex + 1, childSplit.rightBlock);
+        if (node.entries.size() <= internalCapacity) {
+            writeNode(nodeBlock, node);
+            return null;
+        }
+
+        // 내부 노드 분할: 가운데 구분키는 부모로 이동
+        int mid = (childIndex == node.entries.size() - 1) ? node.entries.size() - 2 : node.entries.size() / 2;
+        Entry up = node.entries.get(mid);
+        Node right = new Node();
+        right.leaf = false;
+        right.entries = new ArrayList<>(node.entries.subList(mid + 1, node.entries.size()));
+        right.children = new ArrayList<>(node.children.subList(mid + 1, node.children.size()));
+        node.entries = new ArrayList<>(node.entries.subList(0, mid));
+        node.children = new ArrayList<>(node.children.subList(0, mid + 1));
+
+        int rightBlock = allocatePage();
+        writeNode(nodeBlock, node);
+        writeNode(rightBlock, right);
+        return new Split(up, rightBlock);
+    }
+
+    // minKey ~ maxKey 범위 레코드 주소 (키 순서)
+    public List<FileStructure.RecordAddress> searchRange(String minKey, String maxKey) throws IOException {
+        List<FileStructure.RecordAddress> result = new ArrayList<>();
+        KeyRange range = new KeyRange(minKey, maxKey, keyLength);
+
+        // 리프까지 내려가기
+        Entry target = new Entry(range.low, Integer.MIN_VALUE, Integer.MIN_VALUE);
+        int nodeBlock = rootBlock;
+        Node node = readNode(nodeBlock);
+        while (!node.leaf) {
+            nodeBlock = node.children.get(upperBound(node.entries, target));
+            node = readNode(nodeBlock);
+        }
+
+        // 리프 체인을 따라 maxKey 를 넘을 때까지 수집
+        int pos = upperBound(node.entries, target);
+        while (true) {
+            for (int i = pos; i < node.entries.size(); i++) {
+                Entry e = node.entries.get(i);
+                if (range.aboveHigh(e.key)) {
+                    return result;
+                }
+                if (!range.contains(e.key, 0)) {
+                    continue;
+                }
+                result.add(new FileStructure.RecordAddress(e.block, e.offset));
+            }
+            if (node.nextLeaf == -1) {
+                return result;
+            }
+            node = readNode(node.nextLeaf);
+            pos = 0;
+        }
+    }
+
+    // 스냅샷 meta 의 레코드 주소 전체를 키 순서로 (리프를 하나씩 읽어 가며 순회)
+    // 리프는 데이터 파일 래치를 공유로 잡고 하나씩 읽고, 스냅샷 이후에 추가된 레코드 주소는 건너뜀
+    // (이미 읽은 리프가 나중에 분할돼도 읽어 둔 복사본의 다음 리프로 이어 가므로 빠지거나 겹치는 항목이 없음)
+    public Iterator<FileStructure.RecordAddress> scanAll(String dataFilename, FileStructure.Metadata meta) throws IOException {
+        FileLatch latch = FileLatch.of(dataFilename);
+        Node start = latch.read(() -> {
+            Node first = readNode(rootBlock);
+            while (!first.leaf) {
+                first = readNode(first.children.get(0));
+            }
+            return first;
+        });
+        return new Iterator<FileStructure.RecordAddress>() {
+            private Node node = start;
+            private int pos = 0;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (true) {
+                        while (pos < node.entries.size()) {
+                            Entry e = node.entries.get(pos);
+                            if (meta.contains(e.block, e.offset)) return true;
+                            pos++;
+                        }
+                        if (node.nextLeaf == -1) return false;
+                        int next = node.nextLeaf;
+                        node = latch.read(() -> readNode(next));
+                        pos = 0;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public FileStructure.RecordAddress next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Entry e = node.entries.get(pos++);
+                return new FileStructure.RecordAddress(e.block, e.offset);
+            }
+        };
+    }
+
+    // entry 보다 큰 첫 위치
+    private static int upperBound(List<Entry> entries, Entry entry) {
+        int lo = 0, hi = entries.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareEntries(entries.get(mid), entry) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int compareEntries(Entry a, Entry b) {
+        int cmp = compareKeys(a.key, b.key);
+        if (cmp != 0) return cmp;
+        cmp = Integer.compare(a.block, b.block);
+        if (cmp != 0) return cmp;
+        return Integer.compare(a.offset, b.offset);
+    }
+
+    private static int compareKeys(byte[] a, byte[] b) {
+        return Arrays.compareUnsigned(a, b);
+    }
+
+    private int allocatePage() {
+        return pageCount++;
+    }
+
+    private void writeIndexHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4 + 4 + 4 + 4 + 8);
+        header.putInt(INDEX_MAGIC);
+        header.putInt(keyLength);
+        header.putInt(rootBlock);
+        header.putInt(pageCount);
+        header.putLong(entryCount);
+        bufferPool.write(indexFilename, 0, header.array(), 0, header.capacity());
+    }
+
+    private Node readNode(int blockNo) throws IOException {
+        BufferPool.Page page = bufferPool.pin(indexFilename, blockNo);
+        try {
+            ByteBuffer buffer = page.buffer();
+            Node node = new Node();
+            node.leaf = buffer.get() == LEAF;
+            int count = buffer.getInt();
+            if (node.leaf) {
+                node.nextLeaf = buffer.getInt();
+            } else {
+                node.children.add(buffer.getInt());
+            }
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[keyLength];
+                buffer.get(key);
+                node.entries.add(new Entry(key, buffer.getInt(), buffer.getInt()));
+                if (!node.leaf) {
+                    node.children.add(buffer.getInt());
+                }
+            }
+            return node;
+        } finally {
+            bufferPool.unpin(page, false);
+        }
+    }
+
+    private void writeNode(int blockNo, Node node) throws IOException {
+        BufferPool.Page page = bufferPool.pin(indexFilename, blockNo);
+        try {
+            ByteBuffer buffer = page.buffer();
+            buffer.put(node.leaf ? LEAF : INTERNAL);
+            buffer.putInt(node.entries.size());
+            buffer.putInt(node.leaf ? node.nextLeaf : node.children.get(0));
+            for (int i = 0; i < node.entries.size(); i++) {
+                Entry e = node.entries.get(i);
+                buffer.put(e.key);
+                buffer.putInt(e.block);
+                buffer.putInt(e.offset);
+                if (!node.leaf) {
+                    buffer.putInt(node.children.get(i + 1));
+                }
+            }
+        } finally {
+            bufferPool.unpin(page, true);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package main_package;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// 탐색키(0번 필드) 블룸 필터 (<이름>.blm, BufferPool 을 통해 접근)
+// 없는 키를 찾을 때 데이터 블록을 읽지 않고 바로 끝낼 수 있음 (있다고 답하면 실제로 없을 수도 있음)
+// 키는 레코드에 저장된 형식(UTF-8, 공백으로 채운 고정 길이) 그대로 해시
+public class BloomFilter {
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+    // 새 파일의 예상 키 수 (넘으면 두 배로 다시 구성)
+    public static final long DEFAULT_EXPECTED_KEYS = 1024;
+
+    private static final int BLOOM_MAGIC = 0x424C4F4D; // "BLOM"
+    // magic + 해시 수 + 비트 수 + 예상 키 수 + 넣은 키 수 + 목표 오탐률
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 8;
+
+    private final BufferPool bufferPool = BufferPool.getInstance();
+    private final String bloomFilename;
+    private final int hashCount;
+    private final long bitCount;
+    private final long capacity;
+    private final double falsePositiveRate;
+    private long keyCount;
+    private final byte[] bit = new byte[1];
+
+    private BloomFilter(String bloomFilename, int hashCount, long bitCount, long capacity, long keyCount, double falsePositiveRate) {
+        this.bloomFilename = bloomFilename;
+        this.hashCount = hashCount;
+        this.bitCount = bitCount;
+        this.capacity = capacity;
+        this.keyCount = keyCount;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public static String bloomFileFor(String dataFilename) {
+        String base = dataFilename.endsWith(".dat")
+            ? dataFilename.substring(0, dataFilename.length() - 4)
+            : dataFilename;
+        return base + ".blm";
+    }
+
+    public static boolean exists(String dataFilename) {
+        return BufferPool.getInstance().exists(bloomFileFor(dataFilename));
+    }
+
+    public static BloomFilter open(String dataFilename) throws IOException {
+        String bloomFilename = bloomFileFor(dataFilename);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        BufferPool.getInstance().read(bloomFilename, 0, header.array(), 0, HEADER_SIZE);
+        if (header.getInt() != BLOOM_MAGIC) {
+            throw new IOException("Not a bloom filter file: " + bloomFilename);
+        }
+        int hashCount = header.getInt();
+        long bitCount = header.getLong();
+        long capacity = header.getLong();
+        long keyCount = header.getLong();
+        double falsePositiveRate = header.getDouble();
+        return new BloomFilter(bloomFilename, hashCount, bitCount, capacity, keyCount, falsePositiveRate);
+    }
+
+    // 읽을 수 없는 필터 파일은 없는 것으로 (검색은 필터 없이 계속하고, 다음 삽입이 다시 구성)
+    public static BloomFilter openIfReadable(String dataFilename) {
+        if (!exists(dataFilename)) return null;
+        try {
+            return open(dataFilename);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // 쓰는 쪽 (배타 구간 안): 필터 파일이 있는데 읽을 수 없으면 기존 레코드로 다시 구성, 없으면 null
+    public static BloomFilter openOrRebuild(String dataFilename, FileStructure fs, FileStructure.Metadata meta) throws IOException {
+        if (!exists(dataFilename)) return null;
+        try {
+            return open(dataFilename);
+        } catch (IOException e) {
+            System.out.println("Bloom filter unreadable, rebuilding with defaults: " + e.getMessage());
+            return build(dataFilename, fs, meta, Math.max(DEFAULT_EXPECTED_KEYS, 2 * meta.recordCount), DEFAULT_FALSE_POSITIVE_RATE);
+        }
+    }
+
+    // 빈 필터 생성: 비트 수 m = -n ln p / (ln 2)^2, 해시 수 k = (m / n) ln 2
+    public static BloomFilter create(String dataFilename, long expectedKeys, double falsePositiveRate) throws IOException {
+        return createTemp(dataFilename, expectedKeys, falsePositiveRate).install(bloomFileFor(dataFilename));
+    }
+
+    // 기존 레코드의 키로 새로 구성
+    public static BloomFilter build(String dataFilename, FileStructure fs, FileStructure.Metadata meta,
+                                    long expectedKeys, double falsePositiveRate) throws IOException {
+        BloomFilter bloom = createTemp(dataFilename, Math.max(expectedKeys, meta.recordCount), falsePositiveRate);
+        int keyLength = meta.fields.get(0).length;
+        int block = meta.firstRecordBlock;
+        int offset = meta.firstRecordOffset;
+        while (block != -1 && offset != -1) {
+            ByteBuffer rec = fs.readRecordBytes(dataFilename, meta, block, offset);
+            bloom.addKey(Arrays.copyOfRange(rec.array(), Projection.FIELDS_START, Projection.FIELDS_START + keyLength));
+            block = rec.getInt(0);
+            offset = rec.getInt(4);
+        }
+        bloom.writeHeader();
+        return bloom.install(bloomFileFor(dataFilename));
+    }
+
+    // 새 필터는 임시 파일(<이름>.blm.tmp)에 만들고 install 로 교체 (만드는 도중 끊겨도 기존 .blm 은 그대로)
+    private static BloomFilter createTemp(String dataFilename, long expectedKeys, double falsePositiveRate) throws IOException {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        long n = Math.max(1, expectedKeys);
+        long bitCount = Math.max(64, (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        int hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+
+        String tempFilename = bloomFileFor(dataFilename) + ".tmp";
+        BufferPool.getInstance().deleteFile(tempFilename);
+        BufferPool.getInstance().openFile(tempFilename, true);
+        BloomFilter bloom = new BloomFilter(tempFilename, hashCount, bitCount, n, 0, falsePositiveRate);
+        // 비트 영역 끝까지 0으로 채워 둠 (읽을 때 파일 끝을 넘지 않도록)
+        byte[] zeros = new byte[BufferPool.DEFAULT_PAGE_SIZE];
+        long length = (bitCount + 7) / 8;
+        for (long pos = 0; pos < length; pos += zeros.length) {
+            bloom.bufferPool.write(tempFilename, HEADER_SIZE + pos, zeros, 0, (int) Math.min(zeros.length, length - pos));
+        }
+        bloom.writeHeader();
+        return bloom;
+    }
+
+    // 임시 파일을 fsync 한 뒤 원래 이름으로 바꿈 (디스크에는 기존 필터 또는 완성된 새 필터만 남음)
+    private BloomFilter install(String bloomFilename) throws IOException {
+        bufferPool.replaceFile(this.bloomFilename, bloomFilename);
+        return new BloomFilter(bloomFilename, hashCount, bitCount, capacity, keyCount, falsePositiveRate);
+    }
+
+    // 예상 키 수를 넘었으면 같은 오탐률로 다시 구성 (키는 이미 파일에 기록된 뒤에 호출)
+    // 삭제된 키도 keyCount 에 남아 있으므로 남은 레코드 수 기준으로 크기를 정함 (삭제/삽입이 반복돼도 계속 커지지 않음)
+    public static void growIfFull(String dataFilename, FileStructure fs, FileStructure.Metadata meta) throws IOException {
+        BloomFilter bloom = openOrRebuild(dataFilename, fs, meta);
+        if (bloom != null && bloom.keyCount > bloom.capacity) {
+            build(dataFilename, fs, meta, Math.max(bloom.capacity, 2 * meta.recordCount), bloom.falsePositiveRate);
+        }
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    // 키 추가 (key 는 고정 길이로 바꾼 탐색키)
+    public void add(byte[] key) throws IOException {
+        addKey(key);
+        writeHeader();
+    }
+
+    private void addKey(byte[] key) throws IOException {
+        long[] h = Murmur3.hash128(key);
+        for (int i = 0; i < hashCount; i++) {
+            long bitIndex = ((h[0] + i * h[1]) & Long.MAX_VALUE) % bitCount;
+            long position = HEADER_SIZE + bitIndex / 8;
+            bufferPool.read(bloomFilename, position, bit, 0, 1);
+            int mask = 1 << (bitIndex % 8);
+            if ((bit[0] & mask) == 0) {
+                bit[0] = (byte) (bit[0] | mask);
+                bufferPool.write(bloomFilename, position, bit, 0, 1);
+            }
+        }
+        keyCount++;
+    }
+
+    // false 면 키가 확실히 없음
+    public boolean mightContain(byte[] key) throws IOException {
+        long[] h = Murmur3.hash128(key);
+        for (int i = 0; i < hashCount; i++) {
+            long bitIndex = ((h[0] + i * h[1]) & Long.MAX_VALUE) % bitCount;
+            bufferPool.read(bloomFilename, HEADER_SIZE + bitIndex / 8, bit, 0, 1);
+            if ((bit[0] & (1 << (bitIndex % 8))) == 0) return false;
+        }
+        return true;
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(BLOOM_MAGIC);
+        header.putInt(hashCount);
+        header.putLong(bitCount);
+        header.putLong(capacity);
+        header.putLong(keyCount);
+        header.putDouble(falsePositiveRate);
+        bufferPool.write(bloomFilename, 0, header.array(), 0, HEADER_SIZE);
+    }
+}
@@ -0,0 +1,543 @@
+package main_package;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// 모든 파일이 공유하는 블록 캐시 (LRU 교체, pin 카운트, dirty 페이지는 교체/flush 시 기록)
+// 디스크 읽기, 로그 fsync, 페이지 기록은 풀 잠금 밖에서 (한 파일의 입출력이 다른 파일을 쓰는 스레드를 막지 않도록)
+// 페이지 크기는 파일마다 (데이터 파일은 헤더의 블록 크기, 나머지 파일은 DEFAULT_PAGE_SIZE), 용량은 바이트 단위
+public class BufferPool {
+    public static final long DEFAULT_CAPACITY = 16L << 20; // 바이트
+    // 블록 크기를 등록하지 않은 파일 (인덱스, 블록 요약, 블룸 필터) 의 페이지 크기
+    public static final int DEFAULT_PAGE_SIZE = 1024;
+
+    private static final BufferPool INSTANCE = new BufferPool(DEFAULT_CAPACITY);
+
+    public static BufferPool getInstance() {
+        return INSTANCE;
+    }
+
+    // 캐시된 블록 하나
+    public static class Page {
+        final PageKey key;
+        final byte[] data;
+        int pinCount;
+        boolean dirty;
+        // 디스크에서 읽는 중 (다른 스레드는 다 읽을 때까지 기다림) / 잠금 밖에서 기록하는 중
+        boolean loading;
+        boolean writing;
+
+        Page(PageKey key, int blockSize) {
+            this.key = key;
+            this.data = new byte[blockSize];
+        }
+
+        public int getBlockNo() {
+            return key.blockNo;
+        }
+
+        public byte[] data() {
+            return data;
+        }
+
+        public ByteBuffer buffer() {
+            return ByteBuffer.wrap(data);
+        }
+    }
+
+    // (파일, 블록 번호)
+    static final class PageKey {
+        final Path file;
+        final int blockNo;
+
+        PageKey(Path file, int blockNo) {
+            this.file = file;
+            this.blockNo = blockNo;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PageKey)) return false;
+            PageKey other = (PageKey) o;
+            return blockNo == other.blockNo && file.equals(other.file);
+        }
+
+        @Override
+        public int hashCode() {
+            return file.hashCode() * 31 + blockNo;
+        }
+    }
+
+    private final long capacity;
+    // 캐시된 페이지 바이트 합
+    private long cachedBytes;
+    // 접근 순서 LinkedHashMap: 맨 앞이 가장 오래 전에 사용된 페이지
+    private final LinkedHashMap<PageKey, Page> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, PagedFile> files = new HashMap<>();
+    // 파일별 페이지 크기 (열기 전에 등록, 없으면 DEFAULT_PAGE_SIZE)
+    private final Map<Path, Integer> blockSizes = new HashMap<>();
+    // 캐시에만 있고 아직 디스크에 없는 블록까지 포함한 파일별 블록 수
+    private final Map<Path, Integer> logicalBlockCounts = new HashMap<>();
+    // 파일별 dirty 페이지 (flush 가 풀 전체를 돌지 않도록)
+    private final Map<Path, Set<Page>> dirtyPages = new HashMap<>();
+    // WAL 을 쓰는 파일: 페이지를 디스크에 쓰기 전에 로그부터 기록
+    private final Map<Path, Flushable> logs = new HashMap<>();
+
+    private long hits;
+    private long misses;
+
+    public BufferPool(long capacity) {
+        this.capacity = capacity;
+    }
+
+    private static Path normalize(String fileName) {
+        return Paths.get(fileName).toAbsolutePath().normalize();
+    }
+
+    // 열린 파일 조회 (create 가 false 면 없는 파일은 FileNotFoundException)
+    private PagedFile getFile(Path path, boolean create) throws IOException {
+        PagedFile file = files.get(path);
+        if (file == null) {
+            file = new PagedFile(path, blockSizes.getOrDefault(path, DEFAULT_PAGE_SIZE), create);
+            files.put(path, file);
+            logicalBlockCounts.put(path, file.blockCount());
+        }
+        return file;
+    }
+
+    // 파일 열기 (없으면 생성)
+    public synchronized void openFile(String fileName, boolean create) throws IOException {
+        getFile(normalize(fileName), create);
+    }
+
+    // 파일의 페이지 크기 등록 (이미 다른 크기로 열려 있으면 dirty 페이지를 기록하고 페이지를 버린 뒤 다시 엶)
+    public synchronized void setBlockSize(String fileName, int blockSize) throws IOException {
+        Path path = normalize(fileName);
+        blockSizes.put(path, blockSize);
+        PagedFile file = files.get(path);
+        if (file == null || file.getBlockSize() == blockSize) return;
+        awaitIo(path);
+        Iterator<Page> it = pages.values().iterator();
+        while (it.hasNext()) {
+            Page page = it.next();
+            if (page.key.file.equals(path)) {
+                if (page.pinCount > 0) {
+                    throw new IllegalStateException("Cannot change block size with pinned page: block " + page.key.blockNo);
+                }
+                if (page.dirty) {
+                    writePage(page);
+                }
+                cachedBytes -= page.data.length;
+                it.remove();
+            }
+        }
+        file.close();
+        files.remove(path);
+        getFile(path, false);
+    }
+
+    public synchronized boolean hasBlockSize(String fileName) {
+        return blockSizes.containsKey(normalize(fileName));
+    }
+
+    // 열려 있거나 디스크에 있는지
+    public synchronized boolean exists(String fileName) {
+        Path path = normalize(fileName);
+        return files.containsKey(path) || Files.exists(path);
+    }
+
+    // 캐시된 페이지를 버리고 파일 삭제 (파일을 새로 만들 때)
+    public synchronized void deleteFile(String fileName) throws IOException {
+        Path path = normalize(fileName);
+        discard(path);
+        Files.deleteIfExists(path);
+    }
+
+    // tempName 에 새로 만든 파일을 fsync 한 뒤 fileName 자리로 원자적으로 이름 바꿈 (파생 파일을 다시 만들 때)
+    // 도중에 끊겨도 디스크에는 기존 파일 또는 완성된 새 파일만 남음 (지우고 만드는 사이에 빈 파일이 남지 않음)
+    public void replaceFile(String tempName, String fileName) throws IOException {
+        Path temp = normalize(tempName);
+        Path path = normalize(fileName);
+        flush(tempName);
+        synchronized (this) {
+            Integer blockSize = blockSizes.get(temp);
+            discard(temp);
+            discard(path);
+            if (blockSize != null) {
+                blockSizes.put(path, blockSize);
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // 이름 바꾸기도 디스크에 남도록 디렉터리 fsync (디렉터리를 열 수 없는 운영체제면 건너뜀)
+        try (FileChannel dir = FileChannel.open(path.getParent(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // rename 자체는 끝났으므로 무시
+        }
+    }
+
+    // 파일의 캐시 페이지를 (기록하지 않고) 버리고 닫음
+    private void discard(Path path) throws IOException {
+        awaitIo(path);
+        pages.values().removeIf(page -> {
+            if (!page.key.file.equals(path)) return false;
+            cachedBytes -= page.data.length;
+            page.dirty = false;
+            return true;
+        });
+        PagedFile file = files.remove(path);
+        if (file != null) {
+            file.close();
+        }
+        logicalBlockCounts.remove(path);
+        blockSizes.remove(path);
+        dirtyPages.remove(path);
+    }
+
+    // 파일의 로그 등록 (null 이면 해제)
+    public synchronized void setLog(String fileName, Flushable log) {
+        if (log == null) {
+            logs.remove(normalize(fileName));
+        } else {
+            logs.put(normalize(fileName), log);
+        }
+    }
+
+    public synchronized int getBlockSize(String fileName) throws IOException {
+        return getFile(normalize(fileName), false).getBlockSize();
+    }
+
+    // 페이지 고정 (캐시에 없으면 디스크에서 읽음, 파일 끝 이후 블록은 0으로 채운 새 페이지)
+    // 읽는 동안 페이지는 loading 으로 풀에 두고 같은 페이지를 원하는 스레드만 기다림
+    public Page pin(String fileName, int blockNo) throws IOException {
+        Path path = normalize(fileName);
+        PageKey key = new PageKey(path, blockNo);
+        PagedFile file;
+        Page page;
+        synchronized (this) {
+            file = getFile(path, false);
+            while ((page = pages.get(key)) != null && page.loading) {
+                await();
+            }
+            if (page != null) {
+                hits++;
+                page.pinCount++;
+                return page;
+            }
+            misses++;
+            page = new Page(key, file.getBlockSize());
+            page.pinCount = 1;
+            page.loading = blockNo < logicalBlockCounts.get(path);
+            if (!page.loading) {
+                logicalBlockCounts.put(path, blockNo + 1);
+            }
+            cachedBytes += page.data.length;
+            pages.put(key, page);
+        }
+
+        if (page.loading) {
+            try {
+                file.readBlock(blockNo, page.data);
+            } catch (IOException e) {
+                synchronized (this) {
+                    pages.remove(key);
+                    cachedBytes -= page.data.length;
+                    page.loading = false;
+                    notifyAll();
+                }
+                throw e;
+            }
+            synchronized (this) {
+                page.loading = false;
+                notifyAll();
+            }
+        }
+        try {
+            evictIfFull();
+        } catch (IOException e) {
+            unpin(page, false);
+            throw e;
+        }
+        return page;
+    }
+
+    public synchronized void unpin(Page page, boolean dirty) {
+        if (page.pinCount <= 0) {
+            throw new IllegalStateException("Page is not pinned: block " + page.key.blockNo);
+        }
+        page.pinCount--;
+        if (dirty) {
+            markDirty(page);
+        }
+    }
+
+    private void markDirty(Page page) {
+        if (!page.dirty) {
+            page.dirty = true;
+            dirtyPages.computeIfAbsent(page.key.file, k -> new LinkedHashSet<>()).add(page);
+        }
+    }
+
+    // 용량을 넘었으면 고정되지 않은 오래된 페이지부터 교체 (모두 고정돼 있으면 일시적으로 용량 초과 허용)
+    // dirty 페이지는 잠금 밖에서 기록한 뒤 그 사이 다시 고정되거나 바뀌지 않았으면 교체
+    private void evictIfFull() throws IOException {
+        while (true) {
+            Page victim = null;
+            synchronized (this) {
+                Iterator<Page> it = pages.values().iterator();
+                while (cachedBytes > capacity && it.hasNext()) {
+                    Page page = it.next();
+                    if (page.pinCount > 0 || page.loading || page.writing) continue;
+                    if (page.dirty) {
+                        victim = page;
+                        break;
+                    }
+                    cachedBytes -= page.data.length;
+                    it.remove();
+                }
+                if (victim == null) return;
+            }
+            writeOut(List.of(victim));
+            synchronized (this) {
+                if (victim.pinCount == 0 && !victim.dirty && pages.get(victim.key) == victim) {
+                    pages.remove(victim.key);
+                    cachedBytes -= victim.data.length;
+                }
+            }
+        }
+    }
+
+    // 페이지들을 풀 잠금 밖에서 기록 (내용은 잠금 안에서 복사하고 clean 으로 표시, 디스크에는 로그를 먼저)
+    // 같은 페이지를 다른 스레드가 기록하는 중이면 끝난 뒤에 (오래된 내용이 나중에 기록되지 않도록)
+    private void writeOut(Collection<Page> candidates) throws IOException {
+        List<Page> writing = new ArrayList<>();
+        List<byte[]> images = new ArrayList<>();
+        List<PagedFile> targets = new ArrayList<>();
+        Set<Flushable> pendingLogs = new LinkedHashSet<>();
+        synchronized (this) {
+            while (candidates.stream().anyMatch(page -> page.writing)) {
+                await();
+            }
+            for (Page page : candidates) {
+                if (!page.dirty) continue;
+                page.writing = true;
+                page.dirty = false;
+                dirtyPages.get(page.key.file).remove(page);
+                writing.add(page);
+                images.add(page.data.clone());
+                targets.add(files.get(page.key.file));
+                Flushable log = logs.get(page.key.file);
+                if (log != null) {
+                    pendingLogs.add(log);
+                }
+            }
+        }
+        if (writing.isEmpty()) return;
+
+        boolean written = false;
+        try {
+            for (Flushable log : pendingLogs) {
+                log.flush();
+            }
+            for (int i = 0; i < writing.size(); i++) {
+                targets.get(i).writeBlock(writing.get(i).key.blockNo, images.get(i));
+            }
+            written = true;
+        } finally {
+            synchronized (this) {
+                for (Page page : writing) {
+                    page.writing = false;
+                    if (!written) {
+                        markDirty(page);
+                    }
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // 잠금 안에서 바로 기록 (블록 크기를 바꿀 때, 닫을 때만)
+    private void writePage(Page page) throws IOException {
+        Flushable log = logs.get(page.key.file);
+        if (log != null) {
+            log.flush();
+        }
+        files.get(page.key.file).writeBlock(page.key.blockNo, page.data);
+        page.dirty = false;
+        dirtyPages.get(page.key.file).remove(page);
+    }
+
+    // 파일의 페이지 중 잠금 밖에서 읽거나 기록하는 중인 것이 없을 때까지 (풀 잠금을 잡은 채 호출)
+    private void awaitIo(Path path) throws IOException {
+        while (pages.values().stream().anyMatch(page -> page.key.file.equals(path) && (page.loading || page.writing))) {
+            await();
+        }
+    }
+
+    private void await() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for page I/O");
+        }
+    }
+
+    // 바이트 범위 읽기 (여러 블록에 걸친 경우 포함)
+    public void read(String fileName, long position, byte[] dst, int off, int len) throws IOException {
+        int blockSize = getBlockSize(fileName);
+        while (len > 0) {
+            int blockNo = (int) (position / blockSize);
+            int inPage = (int) (position % blockSize);
+            int n = Math.min(len, blockSize - inPage);
+            Page page = pin(fileName, blockNo);
+            try {
+                System.arraycopy(page.data, inPage, dst, off, n);
+            } finally {
+                unpin(page, false);
+            }
+            position += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    // 바이트 범위 쓰기 (dirty 로 표시만 하고 실제 기록은 교체/flush 때)
+    public void write(String fileName, long position, byte[] src, int off, int len) throws IOException {
+        int blockSize = getBlockSize(fileName);
+        while (len > 0) {
+            int blockNo = (int) (position / blockSize);
+            int inPage = (int) (position % blockSize);
+            int n = Math.min(len, blockSize - inPage);
+            Page page = pin(fileName, blockNo);
+            try {
+                System.arraycopy(src, off, page.data, inPage, n);
+            } finally {
+                unpin(page, true);
+            }
+            position += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    // 블록 단위 순차 기록처럼 풀을 거치지 않는 입출력용 채널
+    public synchronized FileChannel getChannel(String fileName) throws IOException {
+        return getFile(normalize(fileName), false).getChannel();
+    }
+
+    // 채널로 직접 기록한 영역(fromBlock 이후)의 캐시 페이지 폐기 (dirty 페이지는 미리 flush 해 둘 것)
+    public synchronized void invalidate(String fileName, int fromBlock) throws IOException {
+        Path path = normalize(fileName);
+        PagedFile file = getFile(path, false);
+        awaitIo(path);
+        Iterator<Page> it = pages.values().iterator();
+        while (it.hasNext()) {
+            Page page = it.next();
+            if (page.key.file.equals(path) && page.key.blockNo >= fromBlock) {
+                if (page.dirty || page.pinCount > 0) {
+                    throw new IllegalStateException("Cannot invalidate dirty or pinned page: block " + page.key.blockNo);
+                }
+                cachedBytes -= page.data.length;
+                it.remove();
+            }
+        }
+        logicalBlockCounts.put(path, Math.max(logicalBlockCounts.get(path), file.blockCount()));
+    }
+
+    // 캐시 포함 블록 수
+    public synchronized int blockCount(String fileName) throws IOException {
+        Path path = normalize(fileName);
+        getFile(path, false);
+        return logicalBlockCounts.get(path);
+    }
+
+    // 디스크상 파일 길이 (아직 기록 안 된 dirty 페이지는 반영 안 됨)
+    public synchronized long physicalLength(String fileName) throws IOException {
+        return getFile(normalize(fileName), false).length();
+    }
+
+    // 파일의 dirty 페이지를 모두 기록 (다른 스레드가 기록 중인 페이지도 끝난 뒤 fsync)
+    public void flush(String fileName) throws IOException {
+        Path path = normalize(fileName);
+        PagedFile file;
+        synchronized (this) {
+            file = files.get(path);
+            if (file == null) return;
+        }
+        writeDirty(path);
+        file.force();
+    }
+
+    // 파일의 dirty 페이지를 운영체제에 넘기기만 (fsync 없음, 메모리 매핑으로 읽는 쪽에 보이면 충분할 때)
+    public void writeBack(String fileName) throws IOException {
+        writeDirty(normalize(fileName));
+    }
+
+    private void writeDirty(Path path) throws IOException {
+        List<Page> dirty;
+        synchronized (this) {
+            Set<Page> pending = dirtyPages.get(path);
+            dirty = pending == null ? List.of() : new ArrayList<>(pending);
+        }
+        writeOut(dirty);
+        synchronized (this) {
+            awaitIo(path);
+        }
+    }
+
+    public void flushAll() throws IOException {
+        List<Path> paths;
+        synchronized (this) {
+            paths = new ArrayList<>(dirtyPages.keySet());
+        }
+        for (Path path : paths) {
+            writeDirty(path);
+        }
+        List<PagedFile> open;
+        synchronized (this) {
+            open = new ArrayList<>(files.values());
+        }
+        for (PagedFile file : open) {
+            file.force();
+        }
+    }
+
+    // 전부 기록하고 파일 닫기 (프로그램 종료 시)
+    public void closeAll() throws IOException {
+        flushAll();
+        synchronized (this) {
+            // flushAll 뒤에 다시 쓰인 페이지가 있으면 마저
+            for (Page page : pages.values()) {
+                if (page.dirty) {
+                    writePage(page);
+                }
+            }
+            pages.clear();
+            dirtyPages.clear();
+            cachedBytes = 0;
+            for (PagedFile file : files.values()) {
+                file.close();
+            }
+            files.clear();
+            logicalBlockCounts.clear();
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+}
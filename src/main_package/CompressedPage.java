@@ -0,0 +1,151 @@
+package main_package;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 압축 블록 형식 (FileStructure.FORMAT_COMPRESSED)
+// 블록: [레코드 수 u16][키 영역 길이 u16][압축 영역 길이 u16][next 포인터 표: (next 블록, next 슬롯) ...][키 영역][압축 영역]
+// 키 영역: 레코드마다 [앞 키와 같은 접두사 길이][나머지 길이][나머지 바이트] (정렬 적재한 키는 이웃끼리 접두사가 길어 작아짐)
+// 압축 영역: 레코드마다 [nullBitmap][나머지 필드 (고정 길이)] 를 이어 붙여 LZ4 로 압축
+// next 포인터는 압축하지 않고 고정 위치에 두어 체인 연결, 삭제, 빈 자리 링크가 블록을 다시 압축하지 않고 8바이트만 기록
+// 레코드 주소의 offset 은 슬롯 번호, 읽는 쪽에는 고정 길이 형식으로 펼친 바이트를 돌려줌
+final class CompressedPage {
+    static final int PAGE_HEADER_SIZE = 2 + 2 + 2;
+    static final int POINTER_SIZE = 8;
+
+    private CompressedPage() {
+    }
+
+    // 블록 안 next 포인터 위치
+    static int pointerPosition(int slot) {
+        return PAGE_HEADER_SIZE + slot * POINTER_SIZE;
+    }
+
+    // 키 접두사/나머지 길이를 담는 바이트 수
+    private static int lengthBytes(int keyLength) {
+        return keyLength <= 0xFF ? 1 : 2;
+    }
+
+    // 압축 영역에 들어가는 레코드 한 개 길이 (nullBitmap + 키 뒤 필드들)
+    private static int restLength(FileStructure.Metadata meta, int recordSize) {
+        return recordSize - Projection.FIELDS_START - meta.fields.get(0).length + 1;
+    }
+
+    // 압축되지 않는 레코드 하나를 더할 때 블록이 늘어날 수 있는 최대 크기
+    static int maxRecordGrowth(FileStructure.Metadata meta, int recordSize) {
+        int keyLength = meta.fields.get(0).length;
+        return POINTER_SIZE + 2 * lengthBytes(keyLength) + keyLength + Lz4Codec.maxCompressedLength(restLength(meta, recordSize));
+    }
+
+    // 빈 블록에 레코드 하나가 들어가는지
+    static boolean fits(FileStructure.Metadata meta, int recordSize, int blockSize) {
+        return PAGE_HEADER_SIZE + maxRecordGrowth(meta, recordSize) <= blockSize;
+    }
+
+    // 고정 길이 형식 레코드들을 한 블록으로 압축 (블록 크기를 넘는지는 호출한 쪽이 확인)
+    static byte[] encode(FileStructure.Metadata meta, List<byte[]> images) {
+        int keyLength = meta.fields.get(0).length;
+        int lengthBytes = lengthBytes(keyLength);
+        int count = images.size();
+        int restLength = restLength(meta, images.get(0).length);
+        byte[] keys = new byte[count * (2 * lengthBytes + keyLength)];
+        byte[] rest = new byte[count * restLength];
+        int k = 0;
+        byte[] prev = null;
+        int prevLength = 0;
+        for (int i = 0; i < count; i++) {
+            byte[] image = images.get(i);
+            int end = Projection.FIELDS_START + keyLength;
+            while (end > Projection.FIELDS_START && image[end - 1] == ' ') end--;
+            int length = end - Projection.FIELDS_START;
+            int shared = 0;
+            if (prev != null) {
+                int max = Math.min(length, prevLength);
+                while (shared < max && image[Projection.FIELDS_START + shared] == prev[Projection.FIELDS_START + shared]) shared++;
+            }
+            k = putLength(keys, k, shared, lengthBytes);
+            k = putLength(keys, k, length - shared, lengthBytes);
+            System.arraycopy(image, Projection.FIELDS_START + shared, keys, k, length - shared);
+            k += length - shared;
+
+            rest[i * restLength] = image[Projection.FIELDS_START - 1];
+            System.arraycopy(image, Projection.FIELDS_START + keyLength, rest, i * restLength + 1, restLength - 1);
+            prev = image;
+            prevLength = length;
+        }
+        byte[] payload = Lz4Codec.compress(rest, 0, rest.length);
+
+        ByteBuffer page = ByteBuffer.allocate(PAGE_HEADER_SIZE + count * POINTER_SIZE + k + payload.length);
+        page.putShort((short) count);
+        page.putShort((short) k);
+        page.putShort((short) payload.length);
+        for (byte[] image : images) {
+            page.put(image, 0, POINTER_SIZE);
+        }
+        page.put(keys, 0, k);
+        page.put(payload);
+        return page.array();
+    }
+
+    // page[from] 부터의 블록을 고정 길이 형식 레코드들로 펼침
+    static List<byte[]> decode(FileStructure.Metadata meta, int recordSize, ByteBuffer page, int from) throws IOException {
+        int count = Short.toUnsignedInt(page.getShort(from));
+        int keysLength = Short.toUnsignedInt(page.getShort(from + 2));
+        int payloadLength = Short.toUnsignedInt(page.getShort(from + 4));
+        int keyLength = meta.fields.get(0).length;
+        int lengthBytes = lengthBytes(keyLength);
+        int restLength = restLength(meta, recordSize);
+
+        int k = from + pointerPosition(count);
+        byte[] payload = new byte[payloadLength];
+        page.get(k + keysLength, payload);
+        byte[] rest = new byte[count * restLength];
+        Lz4Codec.decompress(payload, 0, payloadLength, rest, 0, rest.length);
+
+        List<byte[]> images = new ArrayList<>(count);
+        byte[] prev = null;
+        for (int i = 0; i < count; i++) {
+            byte[] image = new byte[recordSize];
+            page.get(from + pointerPosition(i), image, 0, POINTER_SIZE);
+            image[Projection.FIELDS_START - 1] = rest[i * restLength];
+            Arrays.fill(image, Projection.FIELDS_START, Projection.FIELDS_START + keyLength, (byte) ' ');
+            int shared = getLength(page, k, lengthBytes);
+            int suffix = getLength(page, k + lengthBytes, lengthBytes);
+            k += 2 * lengthBytes;
+            if (shared > 0) {
+                if (prev == null || shared + suffix > keyLength) throw new IOException("Corrupt compressed block");
+                System.arraycopy(prev, Projection.FIELDS_START, image, Projection.FIELDS_START, shared);
+            }
+            page.get(k, image, Projection.FIELDS_START + shared, suffix);
+            k += suffix;
+            System.arraycopy(rest, i * restLength + 1, image, Projection.FIELDS_START + keyLength, restLength - 1);
+            images.add(image);
+            prev = image;
+        }
+        return images;
+    }
+
+    // 블록 전체 길이 (헤더만 읽고)
+    static int encodedLength(ByteBuffer page, int from) {
+        int count = Short.toUnsignedInt(page.getShort(from));
+        return pointerPosition(count) + Short.toUnsignedInt(page.getShort(from + 2)) + Short.toUnsignedInt(page.getShort(from + 4));
+    }
+
+    private static int putLength(byte[] b, int i, int length, int lengthBytes) {
+        if (lengthBytes == 2) {
+            b[i++] = (byte) (length >>> 8);
+        }
+        b[i++] = (byte) length;
+        return i;
+    }
+
+    private static int getLength(ByteBuffer page, int i, int lengthBytes) {
+        if (lengthBytes == 2) {
+            return Short.toUnsignedInt(page.getShort(i));
+        }
+        return page.get(i) & 0xFF;
+    }
+}
@@ -0,0 +1,259 @@
+package main_package;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 쓰는 스레드 하나가 insertRecord / appendRecords 를 섞어 추가하는 동안 읽는 스레드 여러 개가 동시에 읽어
+// 체인이 끊기거나 덜 연결된 상태로 보이지 않는지, 스냅샷 헤더의 레코드 수와 본 레코드 수가 같은지 확인
+// 레코드 i 의 키는 key(i), 체인 순서 = 추가 순서이므로 체인은 항상 key(0), key(1), ... 로 이어져야 함
+// stress_ix: B+ 트리 + 필드 해시 인덱스 + 블룸 필터, stress_zn: 블록 요약 + 블룸 필터 (인덱스 없이 블록 요약으로 탐색)
+// 사용법: java main_package.ConcurrentScanStress [레코드 수] [읽는 스레드 수]
+public class ConcurrentScanStress {
+    private static final String INDEXED = "stress_ix";
+    private static final String ZONED = "stress_zn";
+    private static final int GROUPS = 97;
+    private static final int RANGE_WIDTH = 50;
+
+    private final FileStructure fs = new FileStructure();
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final AtomicLong chainScans = new AtomicLong();
+    private final AtomicLong mappedScans = new AtomicLong();
+    private final AtomicLong zoneScans = new AtomicLong();
+    private final AtomicLong indexLookups = new AtomicLong();
+    private final AtomicLong hashLookups = new AtomicLong();
+
+    // 절반은 마지막 레코드 근처를 골라 헤더 공개 직후의 구간을 겨냥
+    private static long pick(Random random, long count, int width) {
+        if (random.nextBoolean()) {
+            return Math.max(0, count - 1 - random.nextInt(width));
+        }
+        return (long) (random.nextDouble() * count);
+    }
+
+    private static String key(long i) {
+        return String.format("k%08d", i);
+    }
+
+    private static FileStructure.Record record(long i) {
+        return new FileStructure.Record(new ArrayList<>(List.of(key(i), "g" + (i % GROUPS), "v" + i)), (byte) 0);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private static List<FileStructure.FieldInfo> fields() {
+        return List.of(
+            new FileStructure.FieldInfo("id", 9),
+            new FileStructure.FieldInfo("g", 6),
+            new FileStructure.FieldInfo("v", 30));
+    }
+
+    private void createFiles() throws IOException {
+        fs.createDataFile(INDEXED + ".dat", new FileStructure.Metadata(fields()));
+        BPlusTreeIndex.create(INDEXED + ".dat", 9);
+        new FieldSearcher().createIndex(INDEXED, "g");
+        // 블록 요약은 고정 길이 형식 파일을 만들 때 함께 생김
+        fs.createDataFile(ZONED + ".dat", new FileStructure.Metadata(fields()));
+        fs.flush(INDEXED + ".dat");
+        fs.flush(ZONED + ".dat");
+    }
+
+    // 두 파일에 같은 레코드를 같은 순서로 (하나씩 삽입과 묶음 적재를 섞고, 가끔 checkpoint)
+    private void write(long total) throws IOException {
+        FileStructure.Metadata indexed = fs.readHeader(INDEXED + ".dat");
+        FileStructure.Metadata zoned = fs.readHeader(ZONED + ".dat");
+        Random random = new Random(1);
+        long n = 0;
+        while (n < total && failure.get() == null) {
+            if (random.nextInt(2) == 0) {
+                fs.insertRecord(INDEXED + ".dat", indexed, record(n));
+                fs.insertRecord(ZONED + ".dat", zoned, record(n));
+                n++;
+            } else {
+                int count = (int) Math.min(total - n, 1 + random.nextInt(700));
+                List<FileStructure.Record> batch = new ArrayList<>();
+                List<FileStructure.Record> copy = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    batch.add(record(n + i));
+                    copy.add(record(n + i));
+                }
+                fs.appendRecords(INDEXED + ".dat", indexed, batch.iterator());
+                fs.appendRecords(ZONED + ".dat", zoned, copy.iterator());
+                n += count;
+            }
+            if (random.nextInt(50) == 0) {
+                fs.flush(INDEXED + ".dat");
+                fs.flush(ZONED + ".dat");
+            }
+        }
+    }
+
+    private void read(int seed) throws IOException {
+        Random random = new Random(seed);
+        RecordSearcher searcher = new RecordSearcher();
+        FieldSearcher fieldSearcher = new FieldSearcher();
+        while (!done.get() && failure.get() == null) {
+            String fileName = random.nextBoolean() ? INDEXED : ZONED;
+            switch (random.nextInt(5)) {
+                case 0 -> scanChain(fileName);
+                case 1 -> scanMapped(fileName);
+                case 2 -> scanZones(random, searcher);
+                case 3 -> lookupKey(random, searcher, fileName);
+                default -> lookupGroup(random, fieldSearcher);
+            }
+        }
+    }
+
+    // 버퍼 풀로 체인 전체: key(0) 부터 빠짐없이, 스냅샷의 레코드 수만큼
+    private void scanChain(String fileName) throws IOException {
+        String dataFilename = fileName + ".dat";
+        FileLatch.of(dataFilename).scan(() -> {
+            FileStructure.Metadata meta = fs.readHeader(dataFilename);
+            long count = 0;
+            int block = meta.firstRecordBlock;
+            int offset = meta.firstRecordOffset;
+            while (block != -1 && offset != -1) {
+                ByteBuffer rec = fs.readRecordBytes(dataFilename, meta, block, offset);
+                String key = new String(rec.array(), Projection.FIELDS_START, 9, StandardCharsets.UTF_8);
+                check(key.equals(key(count)), "Torn chain in " + dataFilename + " at record " + count + ": '" + key + "'");
+                count++;
+                if (meta.isLastRecord(block, offset)) break;
+                block = rec.getInt(0);
+                offset = rec.getInt(4);
+            }
+            check(count == meta.recordCount, "Chain of " + dataFilename + " has " + count + " records, header says " + meta.recordCount);
+            return null;
+        });
+        chainScans.incrementAndGet();
+    }
+
+    // 메모리 매핑으로 체인 전체 (열 때의 헤더가 스냅샷)
+    private void scanMapped(String fileName) throws IOException {
+        String dataFilename = fileName + ".dat";
+        try (MappedDataFile mapped = new MappedDataFile(dataFilename)) {
+            FileStructure.Metadata meta = mapped.readHeader();
+            int recordSize = fs.getRecordSize(meta);
+            long count = 0;
+            int block = meta.firstRecordBlock;
+            int offset = meta.firstRecordOffset;
+            byte[] key = new byte[9];
+            while (block != -1 && offset != -1) {
+                ByteBuffer rec = mapped.record(recordSize, block, offset);
+                int start = rec.position();
+                rec.get(start + Projection.FIELDS_START, key);
+                String text = new String(key, StandardCharsets.UTF_8);
+                check(text.equals(key(count)), "Torn mapped chain in " + dataFilename + " at record " + count + ": '" + text + "'");
+                count++;
+                if (meta.isLastRecord(block, offset)) break;
+                block = rec.getInt(start);
+                offset = rec.getInt(start + 4);
+            }
+            check(count == meta.recordCount, "Mapped chain of " + dataFilename + " has " + count + " records, header says " + meta.recordCount);
+        }
+        mappedScans.incrementAndGet();
+    }
+
+    // 블록 요약으로 범위 검색: 검색 전에 이미 있던 키는 모두, 키는 빈틈없이 이어져야 함
+    private void scanZones(Random random, RecordSearcher searcher) throws IOException {
+        long before = fs.readHeader(ZONED + ".dat").recordCount;
+        if (before == 0) return;
+        long from = pick(random, before, RANGE_WIDTH);
+        List<FileStructure.Record> found = searcher.searchRange(ZONED, key(from), key(from + RANGE_WIDTH - 1));
+        check(found.size() >= Math.min(from + RANGE_WIDTH, before) - from && found.size() <= RANGE_WIDTH,
+            "Zone scan from " + key(from) + " found " + found.size() + " records with " + before + " committed");
+        for (int i = 0; i < found.size(); i++) {
+            check(found.get(i).fieldValues.get(0).equals(key(from + i)), "Zone scan from " + key(from) + " skipped a record at " + i);
+        }
+        zoneScans.incrementAndGet();
+    }
+
+    // 탐색키 조회 (블룸 필터 -> B+ 트리 또는 블록 요약): 헤더에 보인 레코드는 반드시, 없는 키는 찾지 않아야 함
+    private void lookupKey(Random random, RecordSearcher searcher, String fileName) throws IOException {
+        long before = fs.readHeader(fileName + ".dat").recordCount;
+        if (before == 0) return;
+        long i = pick(random, before, 4);
+        List<FileStructure.Record> found = searcher.lookup(fileName, key(i));
+        check(found.size() == 1 && found.get(0).fieldValues.get(2).equals("v" + i),
+            "Lookup of " + key(i) + " in " + fileName + " found " + found.size() + " records with " + before + " committed");
+        check(searcher.lookup(fileName, "x" + i).isEmpty(), "Lookup of a missing key found a record in " + fileName);
+        indexLookups.incrementAndGet();
+    }
+
+    // 필드 해시 인덱스 조회: 조회 전에 있던 그룹 레코드 수 이상, 조회 후 헤더의 수 이하
+    private void lookupGroup(Random random, FieldSearcher fieldSearcher) throws IOException {
+        long before = fs.readHeader(INDEXED + ".dat").recordCount;
+        int group = (int) (pick(random, before, 4) % GROUPS);
+        int found = fieldSearcher.lookup(INDEXED, "g", "g" + group).size();
+        long after = fs.readHeader(INDEXED + ".dat").recordCount;
+        check(found >= inGroup(before, group) && found <= inGroup(after, group),
+            "Hash lookup of g" + group + " found " + found + " records, expected " + inGroup(before, group) + ".." + inGroup(after, group));
+        hashLookups.incrementAndGet();
+    }
+
+    // 0 ~ count-1 중 i % GROUPS == group 인 수
+    private static long inGroup(long count, int group) {
+        return count <= group ? 0 : (count - group - 1) / GROUPS + 1;
+    }
+
+    public static void main(String[] args) throws Exception {
+        long total = args.length > 0 ? Long.parseLong(args[0]) : 30000;
+        int readerCount = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        ConcurrentScanStress stress = new ConcurrentScanStress();
+        stress.createFiles();
+
+        Thread writer = new Thread(() -> {
+            try {
+                stress.write(total);
+            } catch (Throwable t) {
+                stress.failure.compareAndSet(null, t);
+            } finally {
+                stress.done.set(true);
+            }
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < readerCount; i++) {
+            int seed = i;
+            readers.add(new Thread(() -> {
+                try {
+                    stress.read(seed);
+                } catch (Throwable t) {
+                    stress.failure.compareAndSet(null, t);
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        writer.start();
+        readers.forEach(Thread::start);
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (stress.failure.get() != null) {
+            System.out.println("FAILED: " + stress.failure.get());
+            stress.failure.get().printStackTrace();
+            System.exit(1);
+        }
+        // 쓰기가 끝난 뒤 한 번 더 전체 확인
+        stress.scanChain(INDEXED);
+        stress.scanChain(ZONED);
+        stress.scanMapped(INDEXED);
+        BufferPool.getInstance().closeAll();
+        System.out.println("OK records=" + total + " readers=" + readerCount
+            + " chainScans=" + stress.chainScans + " mappedScans=" + stress.mappedScans
+            + " zoneScans=" + stress.zoneScans + " keyLookups=" + stress.indexLookups
+            + " hashLookups=" + stress.hashLookups
+            + " ms=" + (System.nanoTime() - start) / 1_000_000);
+    }
+}
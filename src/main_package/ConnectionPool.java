@@ -0,0 +1,241 @@
+package main_package;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// 모든 MySQL 작업이 공유하는 JDBC 연결 풀 (요청마다 새로 접속하지 않음)
+// getConnection 이 돌려주는 연결의 close() 는 연결을 닫지 않고 풀에 반환 (커밋하지 않은 작업은 롤백, autocommit 복원)
+// 접속 정보는 시스템 속성 db.url / db.user / db.password / db.poolSize 로 바꿀 수 있음
+// (예: -Ddb.url=jdbc:h2:mem:mydb;MODE=MySQL;DB_CLOSE_DELAY=-1 로 내장 DB 에 대해 시험)
+public class ConnectionPool {
+    // useCursorFetch: fetch size 를 준 문장은 결과를 서버 커서로 나눠 받음 (조인 입력을 스트리밍)
+    public static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/mydb?useCursorFetch=true";
+    public static final String DEFAULT_USER = "root";
+    public static final String DEFAULT_PASSWORD = "1234";
+    public static final int DEFAULT_MAX_SIZE = 8;
+    // 연결이 모두 사용 중일 때 기다리는 최대 시간
+    public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 30_000;
+    // 오래 쉬던 연결은 내주기 전에 살아 있는지 확인
+    private static final long VALIDATE_AFTER_MILLIS = 30_000;
+
+    private static ConnectionPool instance;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final Semaphore available;
+    // 쉬고 있는 연결 (맨 앞이 가장 최근에 반환된 것)
+    private final Deque<Idle> idle = new ArrayDeque<>();
+    private boolean closed = false;
+
+    private static class Idle {
+        final Connection connection;
+        final long returnedAt;
+
+        Idle(Connection connection, long returnedAt) {
+            this.connection = connection;
+            this.returnedAt = returnedAt;
+        }
+    }
+
+    public ConnectionPool(String url, String user, String password, int maxSize) {
+        this(url, user, password, maxSize, DEFAULT_BORROW_TIMEOUT_MILLIS);
+    }
+
+    public ConnectionPool(String url, String user, String password, int maxSize, long borrowTimeoutMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.available = new Semaphore(maxSize, true);
+    }
+
+    public static synchronized ConnectionPool getInstance() {
+        if (instance == null) {
+            instance = new ConnectionPool(
+                System.getProperty("db.url", DEFAULT_URL),
+                System.getProperty("db.user", DEFAULT_USER),
+                System.getProperty("db.password", DEFAULT_PASSWORD),
+                Integer.getInteger("db.poolSize", DEFAULT_MAX_SIZE));
+        }
+        return instance;
+    }
+
+    // 공유 풀을 다른 접속 정보로 교체 (이전 풀의 쉬는 연결은 닫음)
+    public static synchronized void configure(String url, String user, String password, int maxSize) {
+        if (instance != null) {
+            instance.close();
+        }
+        instance = new ConnectionPool(url, user, password, maxSize);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    // 쉬는 연결이 있으면 재사용, 없으면 새로 접속 (최대 maxSize 개, 모두 사용 중이면 기다림)
+    public Connection getConnection() throws SQLException {
+        acquire(1);
+        try {
+            return wrap(takeIdleOrConnect());
+        } catch (SQLException | RuntimeException e) {
+            available.release();
+            throw e;
+        }
+    }
+
+    // 연결 count 개를 한 번에 빌림 (연결이 여러 개 필요한 작업이 하나씩 빌리면
+    // 동시에 실행된 작업들이 하나씩 쥔 채 나머지를 기다리다 함께 시간 초과될 수 있음)
+    public List<Connection> getConnections(int count) throws SQLException {
+        if (count < 1 || count > maxSize) {
+            throw new IllegalArgumentException("Cannot borrow " + count + " connections from a pool of " + maxSize);
+        }
+        acquire(count);
+        List<Connection> borrowed = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                borrowed.add(wrap(takeIdleOrConnect()));
+            }
+            return borrowed;
+        } catch (SQLException | RuntimeException e) {
+            // 받은 연결은 close 로 하나씩 반환, 나머지 자리는 여기서 반환
+            for (Connection conn : borrowed) {
+                closeQuietly(conn);
+            }
+            available.release(count - borrowed.size());
+            throw e;
+        }
+    }
+
+    // 자리 count 개를 한꺼번에 (공정 모드라 먼저 기다린 쪽이 먼저)
+    private void acquire(int count) throws SQLException {
+        try {
+            if (!available.tryAcquire(count, borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("No free connection in pool after " + borrowTimeoutMillis + " ms (size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+    }
+
+    private Connection takeIdleOrConnect() throws SQLException {
+        while (true) {
+            Idle candidate;
+            synchronized (this) {
+                if (closed) throw new SQLException("Connection pool closed");
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return DriverManager.getConnection(url, user, password);
+            }
+            boolean stale = System.currentTimeMillis() - candidate.returnedAt > VALIDATE_AFTER_MILLIS;
+            if (!stale || isUsable(candidate.connection)) {
+                return candidate.connection;
+            }
+            closeQuietly(candidate.connection);
+        }
+    }
+
+    // close() 를 가로채 풀에 반환 (두 번 닫아도 한 번만 반환)
+    private Connection wrap(Connection physical) {
+        boolean[] returned = {false};
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (!returned[0]) {
+                    returned[0] = true;
+                    release(physical);
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return returned[0] || physical.isClosed();
+            }
+            if (returned[0]) {
+                throw new SQLException("Connection already returned to pool");
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private void release(Connection physical) {
+        boolean keep;
+        try {
+            if (physical.isClosed()) {
+                keep = false;
+            } else {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                keep = true;
+            }
+        } catch (SQLException e) {
+            keep = false;
+        }
+        synchronized (this) {
+            if (keep && !closed) {
+                idle.addFirst(new Idle(physical, System.currentTimeMillis()));
+            } else {
+                closeQuietly(physical);
+            }
+        }
+        available.release();
+    }
+
+    private static boolean isUsable(Connection connection) {
+        try {
+            return connection.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // 이미 끊어진 연결
+        }
+    }
+
+    // 쉬는 연결을 모두 닫음 (사용 중인 연결은 반환될 때 닫힘)
+    public synchronized void close() {
+        closed = true;
+        for (Idle i : idle) {
+            closeQuietly(i.connection);
+        }
+        idle.clear();
+    }
+
+    // 공유 풀이 만들어져 있으면 닫음 (프로그램 종료 시)
+    public static synchronized void closeInstance() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+}
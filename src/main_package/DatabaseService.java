@@ -0,0 +1,378 @@
+package main_package;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 여러 클라이언트의 요청을 동시에 처리하는 내장 서비스 (요청마다 가상 스레드 하나)
+// 동시에 처리 중인 요청은 maxInFlight 개까지 (넘으면 기다리지 않고 바로 거절), 요청마다 제한 시간
+// 열린 파일은 BufferPool 이, 해석한 헤더는 FileStructure 가 파일별로 공유 (쓰기가 있었으면 다시 해석)
+// 검색은 요청 시점의 헤더까지만 보고, 삽입/삭제는 파일별 writer 잠금으로 하나씩 (fsync 는 잠금을 푼 뒤라 동시에 끝난 삽입끼리 묶임)
+// startServer 로 localhost 소켓을 열면 한 줄 요청 / 여러 줄 응답 형식으로도 사용 가능
+public class DatabaseService implements AutoCloseable {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+
+    private final int maxInFlight;
+    private final long timeoutMillis;
+    private final Semaphore admission;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // 검색기들은 요청 사이에 상태가 없어 공유
+    private final FileStructure fs = new FileStructure();
+    private final RecordSearcher recordSearcher = new RecordSearcher();
+    private final FieldSearcher fieldSearcher = new FieldSearcher();
+    private final FileJoinProcessor joinProcessor = new FileJoinProcessor();
+    private final RecordDeleter deleter = new RecordDeleter();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    private ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed = false;
+
+    // 동시 요청 수가 한도를 넘었을 때
+    public static class ServiceBusyException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        ServiceBusyException(int maxInFlight) {
+            super("Service busy (" + maxInFlight + " requests in flight), try again later");
+        }
+    }
+
+    // 제한 시간 안에 끝나지 않았을 때 (요청은 끝까지 실행되고 결과만 버림)
+    public static class RequestTimeoutException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        RequestTimeoutException(long timeoutMillis) {
+            super("Request timed out after " + timeoutMillis + " ms");
+        }
+    }
+
+    private interface Request<T> {
+        T run() throws IOException;
+    }
+
+    public DatabaseService() {
+        this(DEFAULT_MAX_IN_FLIGHT, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    public DatabaseService(int maxInFlight, long timeoutMillis) {
+        if (maxInFlight < 1 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("maxInFlight and timeoutMillis must be positive");
+        }
+        this.maxInFlight = maxInFlight;
+        this.timeoutMillis = timeoutMillis;
+        this.admission = new Semaphore(maxInFlight);
+    }
+
+    // 탐색키 범위 검색
+    public List<FileStructure.Record> searchRange(String fileName, String minKey, String maxKey) throws IOException {
+        return call(() -> recordSearcher.searchRange(fileName, minKey, maxKey));
+    }
+
+    // 탐색키 하나 검색
+    public List<FileStructure.Record> lookup(String fileName, String key) throws IOException {
+        return call(() -> recordSearcher.lookup(fileName, key));
+    }
+
+    // 필드 값이 value 인 레코드 (필드 인덱스가 있으면 사용)
+    public List<FileStructure.Record> lookupField(String fileName, String fieldName, String value) throws IOException {
+        return call(() -> fieldSearcher.lookup(fileName, fieldName, value));
+    }
+
+    // 필드 스캔 (첫 번째 필드 값이 [minValue, maxValue] 인 행만, minValue 가 null 이면 전체)
+    public List<List<String>> scanFields(String fileName, String minValue, String maxValue, String... fields) throws IOException {
+        return call(() -> fieldSearcher.scanFields(fileName, minValue, maxValue, fields));
+    }
+
+    // 레코드 하나 삽입 (빈 값과 "null" 은 null, 탐색키 중복과 null 탐색키는 거절), 반환 시 로그가 디스크에 기록됨
+    public void insert(String fileName, List<String> values) throws IOException {
+        call(() -> {
+            String dataFilename = fileName + ".dat";
+            FileLatch latch = FileLatch.of(dataFilename);
+            latch.writer().lock();
+            try {
+                FileStructure.Metadata meta = fs.readHeader(dataFilename);
+                if (values.size() != meta.fieldCount) {
+                    throw new IOException("Expected " + meta.fieldCount + " values but got " + values.size());
+                }
+                List<String> fieldValues = new ArrayList<>();
+                byte nullBitmap = 0;
+                for (int i = 0; i < values.size(); i++) {
+                    String val = values.get(i) == null ? "" : values.get(i).trim();
+                    if (val.isEmpty() || val.equalsIgnoreCase("null")) {
+                        nullBitmap = (byte) (nullBitmap | (1 << i));
+                        fieldValues.add("");
+                    } else {
+                        fieldValues.add(val);
+                    }
+                }
+                String key = fieldValues.get(0);
+                if (key.isEmpty()) {
+                    throw new IOException("Search-key must not be null");
+                }
+                // writer 잠금 안이라 확인과 삽입 사이에 같은 키가 들어올 수 없음
+                if (!recordSearcher.lookup(fileName, key).isEmpty()) {
+                    throw new IOException("Duplicate search-key '" + key + "'");
+                }
+                fs.insertRecord(dataFilename, meta, new FileStructure.Record(fieldValues, nullBitmap));
+            } finally {
+                latch.writer().unlock();
+            }
+            WriteAheadLog.open(dataFilename).commit();
+            return null;
+        });
+    }
+
+    // 탐색키가 key 인 레코드 삭제 (진행 중인 검색이 끝난 뒤 반영), 삭제한 수 반환
+    public long delete(String fileName, String key) throws IOException {
+        return call(() -> deleter.deleteByKey(fileName, key));
+    }
+
+    // 해시 조인 결과를 outName 파일로 (같은 결과 파일에 대한 조인은 하나씩), 결과 레코드 수 반환
+    public long join(String fileR, String fileS, String joinField, String outName) throws IOException {
+        return call(() -> {
+            FileLatch latch = FileLatch.of(outName + ".dat");
+            latch.writer().lock();
+            try {
+                return joinProcessor.executeHashJoin(fileR, fileS, joinField, outName);
+            } finally {
+                latch.writer().unlock();
+            }
+        });
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    public int getInFlightCount() {
+        return maxInFlight - admission.availablePermits();
+    }
+
+    // 자리가 있으면 가상 스레드에서 실행하고 제한 시간까지 기다림
+    // 시간이 지나도 interrupt 하지 않음 (FileChannel 은 interrupt 되면 닫혀 버퍼 풀의 다른 요청까지 실패) -> 자리는 실제로 끝날 때 반환
+    private <T> T call(Request<T> request) throws IOException {
+        if (closed) {
+            throw new IOException("Service closed");
+        }
+        if (!admission.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new ServiceBusyException(maxInFlight);
+        }
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                try {
+                    return request.run();
+                } finally {
+                    admission.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admission.release();
+            throw new IOException("Service closed", e);
+        }
+
+        try {
+            T result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            completed.incrementAndGet();
+            return result;
+        } catch (TimeoutException e) {
+            timedOut.incrementAndGet();
+            throw new RequestTimeoutException(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof UncheckedIOException unchecked) throw unchecked.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw new IOException(cause);
+        }
+    }
+
+    // localhost 에서만 접속을 받음 (port 가 0 이면 빈 포트), 연결마다 가상 스레드 하나, 실제 포트 반환
+    public synchronized int startServer(int port) throws IOException {
+        if (serverSocket != null) {
+            throw new IOException("Server already running on port " + serverSocket.getLocalPort());
+        }
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        ServerSocket listening = serverSocket;
+        Thread.ofVirtual().name("db-service-accept").start(() -> {
+            while (!closed) {
+                try {
+                    Socket socket = listening.accept();
+                    connections.add(socket);
+                    Thread.ofVirtual().start(() -> serve(socket));
+                } catch (SocketException e) {
+                    break; // close() 로 닫힘
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        return serverSocket.getLocalPort();
+    }
+
+    // 요청 형식 (공백 구분, 여러 값은 ';' 로 구분, 응답은 결과 줄들 뒤에 "OK <개수>" 또는 "ERR <메시지>" 한 줄)
+    //   SEARCH <file> <minKey> <maxKey>
+    //   LOOKUP <file> <key>
+    //   FIND <file> <field> <value>
+    //   FIELDS <file> <field;field...> [<minValue> <maxValue>]
+    //   INSERT <file> <value;value...>
+    //   JOIN <fileR> <fileS> <joinField> <outName>
+    //   STATS
+    //   QUIT
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (line.equalsIgnoreCase("QUIT")) break;
+                try {
+                    handle(line, out);
+                } catch (IOException | RuntimeException e) {
+                    out.println("ERR " + e.getMessage());
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                System.out.println("Client connection failed: " + e.getMessage());
+            }
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void handle(String line, PrintWriter out) throws IOException {
+        String[] parts = line.split("\\s+", 2);
+        String command = parts[0].toUpperCase();
+        String rest = parts.length > 1 ? parts[1] : "";
+
+        switch (command) {
+            case "SEARCH": {
+                String[] args = arguments(rest, 3, "SEARCH <file> <minKey> <maxKey>");
+                printRecords(out, searchRange(args[0], args[1], args[2]));
+                break;
+            }
+            case "LOOKUP": {
+                String[] args = arguments(rest, 2, "LOOKUP <file> <key>");
+                printRecords(out, lookup(args[0], args[1]));
+                break;
+            }
+            case "FIND": {
+                String[] args = arguments(rest, 3, "FIND <file> <field> <value>");
+                printRecords(out, lookupField(args[0], args[1], args[2]));
+                break;
+            }
+            case "FIELDS": {
+                String[] args = rest.isEmpty() ? new String[0] : rest.split("\\s+");
+                if (args.length != 2 && args.length != 4) {
+                    throw new IOException("Usage: FIELDS <file> <field;field...> [<minValue> <maxValue>]");
+                }
+                List<List<String>> rows = args.length == 4
+                    ? scanFields(args[0], args[2], args[3], args[1].split(";"))
+                    : scanFields(args[0], null, null, args[1].split(";"));
+                for (List<String> row : rows) {
+                    out.println(String.join(";", row.stream().map(v -> v == null ? "null" : v).toList()));
+                }
+                out.println("OK " + rows.size());
+                break;
+            }
+            case "INSERT": {
+                // 값에 공백이 있을 수 있어 파일 이름 뒤는 통째로
+                String[] args = rest.split("\\s+", 2);
+                if (args.length < 2) {
+                    throw new IOException("Usage: INSERT <file> <value;value...>");
+                }
+                insert(args[0], Arrays.asList(args[1].split(";", -1)));
+                out.println("OK 1");
+                break;
+            }
+            case "DELETE": {
+                String[] args = arguments(rest, 2, "DELETE <file> <key>");
+                out.println("OK " + delete(args[0], args[1]));
+                break;
+            }
+            case "JOIN": {
+                String[] args = arguments(rest, 4, "JOIN <fileR> <fileS> <joinField> <outName>");
+                out.println("OK " + join(args[0], args[1], args[2], args[3]));
+                break;
+            }
+            case "STATS":
+                out.println("inFlight=" + getInFlightCount() + " completed=" + getCompletedCount()
+                    + " rejected=" + getRejectedCount() + " timedOut=" + getTimedOutCount());
+                out.println("OK 1");
+                break;
+            default:
+                throw new IOException("Unknown command '" + parts[0] + "'");
+        }
+    }
+
+    private static String[] arguments(String rest, int count, String usage) throws IOException {
+        String[] args = rest.isEmpty() ? new String[0] : rest.split("\\s+");
+        if (args.length != count) {
+            throw new IOException("Usage: " + usage);
+        }
+        return args;
+    }
+
+    // 레코드 한 줄씩 (null 필드는 "null")
+    private static void printRecords(PrintWriter out, List<FileStructure.Record> records) {
+        for (FileStructure.Record rec : records) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < rec.fieldValues.size(); i++) {
+                if (i > 0) line.append(';');
+                line.append(FileStructure.isNull(rec.nullBitmap, i) ? "null" : rec.fieldValues.get(i));
+            }
+            out.println(line);
+        }
+        out.println("OK " + records.size());
+    }
+
+    // 새 요청은 받지 않고 처리 중인 요청이 끝날 때까지 기다림 (제한 시간만큼)
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        synchronized (this) {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        }
+        for (Socket socket : connections) {
+            socket.close();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                System.out.println("Some requests were still running when the service closed.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
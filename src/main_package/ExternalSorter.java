@@ -0,0 +1,264 @@
+package main_package;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// 메모리 한도를 넘는 입력용 외부 정렬
+// 한도까지 모은 레코드를 정렬해 임시 파일(run)로 내보내고, 읽을 때 힙으로 k-way 병합
+// run 이 한 번에 병합할 수 있는 수보다 많으면 앞에서부터 묶어 병합한 run 으로 줄인 뒤 병합 (여러 단계)
+public class ExternalSorter implements AutoCloseable {
+    // 레코드 한 개 메모리 사용량 추정용 (객체/리스트 헤더, 필드당 String 오버헤드)
+    private static final int RECORD_OVERHEAD = 64;
+    private static final int FIELD_OVERHEAD = 48;
+    // run 을 쓰고 읽을 때 run 마다 잡는 버퍼 크기
+    private static final int RUN_BUFFER_SIZE = 1 << 16;
+    // 한 번에 병합하는 run 수 상한 (run 마다 읽기 버퍼와 파일 핸들을 잡으므로 입력 크기에 비례해 늘지 않도록)
+    private static final int MAX_FAN_IN = 128;
+
+    private final Comparator<FileStructure.Record> comparator;
+    private final long memoryBudget;
+    // 병합 한 번의 run 수 (읽기 버퍼 합이 메모리 한도를 넘지 않게, 최소 2)
+    private final int fanIn;
+
+    private List<FileStructure.Record> buffer = new ArrayList<>();
+    private long bufferedBytes = 0;
+    private long count = 0;
+    private final List<Path> runs = new ArrayList<>();
+    private final List<DataInputStream> openReaders = new ArrayList<>();
+    private boolean finished = false;
+
+    public ExternalSorter(Comparator<FileStructure.Record> comparator, long memoryBudget) {
+        this.comparator = comparator;
+        this.memoryBudget = memoryBudget;
+        this.fanIn = (int) Math.max(2, Math.min(MAX_FAN_IN, memoryBudget / RUN_BUFFER_SIZE));
+    }
+
+    public void add(FileStructure.Record record) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Cannot add records after iteration started");
+        }
+        buffer.add(record);
+        count++;
+        bufferedBytes += estimateSize(record);
+        if (bufferedBytes >= memoryBudget) {
+            spill();
+        }
+    }
+
+    // 넣은 레코드 수
+    public long size() {
+        return count;
+    }
+
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    private static long estimateSize(FileStructure.Record record) {
+        long size = RECORD_OVERHEAD;
+        for (String v : record.fieldValues) {
+            size += FIELD_OVERHEAD + 2L * v.length();
+        }
+        return size;
+    }
+
+    // 현재 버퍼를 정렬해 run 파일로 기록
+    private void spill() throws IOException {
+        buffer.sort(comparator);
+        Path run = Files.createTempFile("sort-run", ".tmp");
+        try (DataOutputStream out = openRunWriter(run)) {
+            for (FileStructure.Record rec : buffer) {
+                writeRecord(out, rec);
+            }
+        }
+        runs.add(run);
+        buffer = new ArrayList<>();
+        bufferedBytes = 0;
+    }
+
+    private static DataOutputStream openRunWriter(Path run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), RUN_BUFFER_SIZE));
+    }
+
+    // 앞에서부터 fanIn 개씩 병합해 새 run 하나로 (묶음 순서를 유지하므로 같은 값의 순서도 그대로)
+    private void mergePass() throws IOException {
+        List<Path> merged = new ArrayList<>();
+        try {
+            for (int from = 0; from < runs.size(); from += fanIn) {
+                List<Path> group = runs.subList(from, Math.min(from + fanIn, runs.size()));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                Path run = Files.createTempFile("sort-run", ".tmp");
+                merged.add(run);
+                try (DataOutputStream out = openRunWriter(run)) {
+                    Iterator<FileStructure.Record> it = merge(group);
+                    while (it.hasNext()) {
+                        writeRecord(out, it.next());
+                    }
+                }
+                for (Path input : group) {
+                    Files.deleteIfExists(input);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // 이번 단계에서 만든 run 은 runs 에 없으므로 close() 가 지우지 못함
+            for (Path run : merged) {
+                if (!runs.contains(run)) {
+                    Files.deleteIfExists(run);
+                }
+            }
+            throw e;
+        }
+        runs.clear();
+        runs.addAll(merged);
+    }
+
+    private static void writeRecord(DataOutputStream out, FileStructure.Record rec) throws IOException {
+        out.writeByte(rec.nullBitmap);
+        out.writeInt(rec.fieldValues.size());
+        for (String v : rec.fieldValues) {
+            writeString(out, v);
+        }
+    }
+
+    // 임시 파일의 문자열: int 바이트 길이 + UTF-8 바이트 (writeUTF 는 64KB 가 넘는 값을 쓰지 못함), NULL 은 길이 -1
+    static void writeString(DataOutputStream out, String v) throws IOException {
+        if (v == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 파일 끝이면 null
+    private static FileStructure.Record readRecord(DataInputStream in) throws IOException {
+        int nullBitmap;
+        try {
+            nullBitmap = in.readByte();
+        } catch (EOFException e) {
+            return null;
+        }
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return new FileStructure.Record(values, (byte) nullBitmap);
+    }
+
+    // 정렬된 전체 레코드 순회 (호출할 때마다 처음부터 다시 병합, 모두 메모리에 들어가면 디스크 사용 없음)
+    public Iterator<FileStructure.Record> iterator() throws IOException {
+        if (!finished) {
+            finished = true;
+            if (!runs.isEmpty() && !buffer.isEmpty()) {
+                spill();
+            } else {
+                buffer.sort(comparator);
+            }
+        }
+        if (runs.isEmpty()) {
+            return Collections.unmodifiableList(buffer).iterator();
+        }
+        while (runs.size() > fanIn) {
+            mergePass();
+        }
+        return merge(runs);
+    }
+
+    // run 들을 열어 k-way 병합 (각 run 은 다 읽으면 닫음)
+    private Iterator<FileStructure.Record> merge(List<Path> group) throws IOException {
+        List<DataInputStream> readers = new ArrayList<>();
+        for (Path run : group) {
+            DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(run), RUN_BUFFER_SIZE));
+            readers.add(in);
+            openReaders.add(in);
+        }
+        return new MergeIterator(readers);
+    }
+
+    // 병합 힙 원소 (같은 값이면 앞쪽 run 우선 -> 안정 정렬)
+    private static class HeapEntry {
+        FileStructure.Record record;
+        int run;
+
+        HeapEntry(FileStructure.Record record, int run) {
+            this.record = record;
+            this.run = run;
+        }
+    }
+
+    private class MergeIterator implements Iterator<FileStructure.Record> {
+        private final List<DataInputStream> readers;
+        private final PriorityQueue<HeapEntry> heap;
+
+        MergeIterator(List<DataInputStream> readers) throws IOException {
+            this.readers = readers;
+            this.heap = new PriorityQueue<>(Math.max(1, readers.size()), (a, b) -> {
+                int cmp = comparator.compare(a.record, b.record);
+                return cmp != 0 ? cmp : Integer.compare(a.run, b.run);
+            });
+            for (int i = 0; i < readers.size(); i++) {
+                FileStructure.Record rec = readRecord(readers.get(i));
+                if (rec != null) {
+                    heap.add(new HeapEntry(rec, i));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public FileStructure.Record next() {
+            HeapEntry top = heap.poll();
+            if (top == null) {
+                throw new NoSuchElementException();
+            }
+            try {
+                DataInputStream in = readers.get(top.run);
+                FileStructure.Record rec = readRecord(in);
+                if (rec != null) {
+                    heap.add(new HeapEntry(rec, top.run));
+                } else {
+                    in.close();
+                    openReaders.remove(in);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return top.record;
+        }
+    }
+
+    // run 파일 삭제
+    @Override
+    public void close() throws IOException {
+        for (DataInputStream in : openReaders) {
+            in.close();
+        }
+        openReaders.clear();
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        buffer = new ArrayList<>();
+    }
+}
@@ -1,50 +1,253 @@
 package main_package;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class FieldSearcher {
 	private final FileStructure fs = new FileStructure();
+	private boolean mappedScan = false;
+
+	// 범위 조건을 만족한 행 하나 처리
+	private interface RowHandler {
+	    void accept(Projection projection, Projection.Row row, int block, int offset) throws IOException;
+	}
+
+	// 요청한 필드가 파일에 없을 때
+	private static class UnknownFieldException extends IOException {
+	    private static final long serialVersionUID = 1L;
+
+	    UnknownFieldException(String field) {
+	        super("Cannot find field '" + field.trim() + "'.");
+	    }
+	}
+
+	// 스캔 방식 선택 (true 면 버퍼 풀 대신 메모리 매핑으로 읽음)
+	public void setMappedScan(boolean mappedScan) {
+	    this.mappedScan = mappedScan;
+	}
 
 	// 모든 레코드 값 검색
 	public void searchField(String fileName, String searchField) {
-	    String dataFilename = fileName + ".dat";
-	    try (RandomAccessFile raf = new RandomAccessFile(dataFilename, "r")) {
-	        FileStructure.Metadata meta = fs.readHeader(raf);
+	    searchFields(fileName, searchField);
+	}
+
+	// 여러 필드를 한 번에 검색 (요청한 필드 바이트만 읽고 출력할 때 디코딩)
+	public void searchFields(String fileName, String... searchFields) {
+	    searchFieldsInRange(fileName, null, null, searchFields);
+	}
+
+	// 첫 번째 필드 값이 [minValue, maxValue] 인 레코드만 (minValue 가 null 이면 전체)
+	public void searchFieldsInRange(String fileName, String minValue, String maxValue, String... searchFields) {
+	    try {
+	        scanRows(fileName + ".dat", minValue, maxValue, searchFields,
+	            (projection, row, block, offset) -> printRow(projection, row, block, offset, searchFields));
+	    } catch (UnknownFieldException e) {
+	        System.out.println(e.getMessage());
+	    } catch (IOException e) {
+	        e.printStackTrace();
+	    }
+	}
+
+	// 출력하지 않고 요청한 필드 값들을 행 단위로 반환 (null 필드는 null)
+	public List<List<String>> scanFields(String fileName, String minValue, String maxValue, String... searchFields) throws IOException {
+	    List<List<String>> rows = new ArrayList<>();
+	    scanRows(fileName + ".dat", minValue, maxValue, searchFields, (projection, row, block, offset) -> {
+	        List<String> values = new ArrayList<>(projection.size());
+	        for (int j = 0; j < projection.size(); j++) {
+	            values.add(row.isNull(j) ? null : row.get(j));
+	        }
+	        rows.add(values);
+	    });
+	    return rows;
+	}
+
+	// 블록 요약이 있으면 범위와 겹치지 않는 블록은 건너뜀, 범위 조건을 만족하는 행만 handler 로
+	private void scanRows(String dataFilename, String minValue, String maxValue, String[] searchFields,
+	                      RowHandler handler) throws IOException {
+	    FileLatch.of(dataFilename).scan(() -> {
+	        scanRowsLocked(dataFilename, minValue, maxValue, searchFields, handler);
+	        return null;
+	    });
+	}
+
+	private void scanRowsLocked(String dataFilename, String minValue, String maxValue, String[] searchFields,
+	                            RowHandler handler) throws IOException {
+	    try (MappedDataFile mapped = mappedScan ? new MappedDataFile(dataFilename) : null) {
+	        FileStructure.Metadata meta = mapped != null ? mapped.readHeader() : fs.readHeader(dataFilename);
+	        int recordSize = fs.getRecordSize(meta);
 
 	        // 인덱스 검색
-	        int fieldIndex = -1;
-	        for (int i = 0; i < meta.fieldCount; i++) {
-	            if (meta.fields.get(i).name.equalsIgnoreCase(searchField)) {
-	                fieldIndex = i;
-	                break;
+	        for (String field : searchFields) {
+	            if (Projection.of(meta, field) == null) {
+	                throw new UnknownFieldException(field);
 	            }
 	        }
-	        if (fieldIndex == -1) {
-	            System.out.println("Cannot find field '" + searchField + "'.");
+	        Projection projection = Projection.of(meta, searchFields);
+	        Projection.Row row = projection.newRow();
+	        KeyRange range = minValue == null ? null
+	            : new KeyRange(minValue, maxValue, meta.fields.get(projection.fieldIndexes[0]).length);
+	        ZoneMap zones = range != null && ZoneMap.exists(dataFilename) ? ZoneMap.open(dataFilename, meta) : null;
+	        FileLatch latch = FileLatch.of(dataFilename);
+
+	        if (zones != null) {
+	            // 파일 순서대로 스캔하며 블록 단위로 건너뛰기
+	            long position = FileStructure.nextRecordPosition(meta.blockSize, recordSize, meta.blockSize);
+	            int checkedBlock = -1;
+	            boolean blockMatches = false;
+	            while (position < meta.dataEnd) {
+	                int block = (int) (position / meta.blockSize);
+	                int offset = (int) (position % meta.blockSize);
+	                if (block != checkedBlock) {
+	                    checkedBlock = block;
+	                    blockMatches = latch.read(() -> zones.mayContain(block, projection.fieldIndexes[0], range));
+	                }
+	                if (blockMatches) {
+	                    readRow(dataFilename, mapped, meta, projection, recordSize, block, offset, row);
+	                    // 삭제돼 비어 있는 자리는 건너뜀
+	                    if (!FileStructure.isFreeSlot(row.getNextRecordBlock()) && range.contains(row.raw[0], 0)) {
+	                        handler.accept(projection, row, block, offset);
+	                    }
+	                }
+	                position = FileStructure.nextRecordPosition(position + recordSize, recordSize, meta.blockSize);
+	            }
 	            return;
 	        }
 
 	        int block  = meta.firstRecordBlock;
             int offset = meta.firstRecordOffset;
             while (block != -1 && offset != -1) {
-	            FileStructure.Record rec = fs.readRecord(raf, meta, block, offset);
-	            String val = rec.fieldValues.get(fieldIndex).trim();
-	            System.out.println(
-	                "Block:" + block +
-	                " Offset:" + offset +
-	                " Field " + searchField +
-	                " Value: " + (val.isEmpty() ? "null" : val)
-	            );
+	            readRow(dataFilename, mapped, meta, projection, recordSize, block, offset, row);
+	            if (range == null || range.contains(row.raw[0], 0)) {
+	                handler.accept(projection, row, block, offset);
+	            }
 	
-	            block  = rec.nextRecordBlock;
-	            offset = rec.nextRecordOffset;
+	            if (meta.isLastRecord(block, offset)) break;
+	            block  = row.getNextRecordBlock();
+	            offset = row.getNextRecordOffset();
 	        }
+	    }
+	}
 
+	// 필드 해시 인덱스 생성 (기존 레코드로 구성, 이후 삽입 때 자동 갱신)
+	public void createIndex(String fileName, String fieldName) {
+	    String dataFilename = fileName + ".dat";
+	    try {
+	        FileStructure.Metadata meta = fs.readHeader(dataFilename);
+	        Projection projection = Projection.of(meta, fieldName);
+	        if (projection == null) {
+	            System.out.println("Cannot find field '" + fieldName.trim() + "'.");
+	            return;
+	        }
+	        // 구성하는 동안 삽입/삭제가 끼어들지 않게
+	        FileLatch latch = FileLatch.of(dataFilename);
+	        HashIndex index;
+	        latch.writer().lock();
+	        try {
+	            FileStructure.Metadata current = fs.readHeader(dataFilename);
+	            HashIndex[] built = new HashIndex[1];
+	            latch.write(() -> {
+	                built[0] = HashIndex.build(dataFilename, fs, current, projection.fieldIndexes[0]);
+	                built[0].flush();
+	            });
+	            index = built[0];
+	        } finally {
+	            latch.writer().unlock();
+	        }
+	        System.out.println("Index on '" + projection.name(0) + "' created (" + index.getEntryCount() + " entries).");
 	    } catch (IOException e) {
 	        e.printStackTrace();
 	    }
 	}
 
+	public void dropIndex(String fileName, String fieldName) {
+	    String dataFilename = fileName + ".dat";
+	    try {
+	        FileStructure.Metadata meta = fs.readHeader(dataFilename);
+	        Projection projection = Projection.of(meta, fieldName);
+	        if (projection == null || !HashIndex.exists(dataFilename, projection.name(0))) {
+	            System.out.println("No index on field '" + fieldName.trim() + "'.");
+	            return;
+	        }
+	        HashIndex.drop(dataFilename, projection.name(0));
+	        System.out.println("Index on '" + projection.name(0) + "' dropped.");
+	    } catch (IOException e) {
+	        e.printStackTrace();
+	    }
+	}
+
+	// 필드 값이 value 인 레코드 (인덱스가 있으면 해당 버킷과 후보 레코드만 읽음, 없으면 전체 스캔)
+	public List<FileStructure.Record> lookup(String fileName, String fieldName, String value) throws IOException {
+	    String dataFilename = fileName + ".dat";
+	    return FileLatch.of(dataFilename).scan(() -> lookupValue(dataFilename, fieldName, value));
+	}
+
+	private List<FileStructure.Record> lookupValue(String dataFilename, String fieldName, String value) throws IOException {
+	    FileStructure.Metadata meta = fs.readHeader(dataFilename);
+	    Projection projection = Projection.of(meta, fieldName);
+	    if (projection == null) {
+	        throw new UnknownFieldException(fieldName);
+	    }
+	    int fieldIndex = projection.fieldIndexes[0];
+	    int from = projection.offsets[0];
+	    byte[] expected = FileStructure.encodeField(value.trim(), projection.lengths[0]);
+	    List<FileStructure.Record> found = new ArrayList<>();
+
+	    if (HashIndex.exists(dataFilename, projection.name(0))) {
+	        List<FileStructure.RecordAddress> addrs = FileLatch.of(dataFilename)
+	            .read(() -> HashIndex.open(dataFilename, meta, fieldIndex).lookup(value));
+	        for (FileStructure.RecordAddress addr : addrs) {
+	            if (!meta.contains(addr.block, addr.offset)) continue;
+	            ByteBuffer rec = fs.readRecordBytes(dataFilename, meta, addr.block, addr.offset);
+	            if (matches(rec.array(), fieldIndex, from, expected)) {
+	                found.add(FileStructure.decodeRecord(rec, meta));
+	            }
+	        }
+	        return found;
+	    }
+
+	    int block = meta.firstRecordBlock;
+	    int offset = meta.firstRecordOffset;
+	    while (block != -1 && offset != -1) {
+	        ByteBuffer rec = fs.readRecordBytes(dataFilename, meta, block, offset);
+	        if (matches(rec.array(), fieldIndex, from, expected)) {
+	            found.add(FileStructure.decodeRecord(rec, meta));
+	        }
+	        if (meta.isLastRecord(block, offset)) break;
+	        block = rec.getInt(0);
+	        offset = rec.getInt(4);
+	    }
+	    return found;
+	}
+
+	// null 이 아니고 저장된 필드 바이트가 찾는 값과 같은지
+	private static boolean matches(byte[] rec, int fieldIndex, int from, byte[] expected) {
+	    if (FileStructure.isNull(rec[8], fieldIndex)) return false;
+	    return Arrays.equals(rec, from, from + expected.length, expected, 0, expected.length);
+	}
+
+	private void readRow(String dataFilename, MappedDataFile mapped, FileStructure.Metadata meta, Projection projection, int recordSize,
+	                     int block, int offset, Projection.Row row) throws IOException {
+	    if (mapped != null) {
+	        row.load(mapped.record(recordSize, block, offset));
+	    } else {
+	        fs.readProjected(dataFilename, meta, projection, block, offset, row);
+	    }
+	}
+
+	private void printRow(Projection projection, Projection.Row row, int block, int offset, String[] searchFields) {
+	    StringBuilder line = new StringBuilder();
+	    line.append("Block:").append(block).append(" Offset:").append(offset);
+	    for (int j = 0; j < projection.size(); j++) {
+	        String val = row.get(j);
+	        line.append(" Field ").append(searchFields[j].trim())
+	            .append(" Value: ").append(val.isEmpty() ? "null" : val);
+	    }
+	    System.out.println(line);
+	}
+
 	/*
 	public static void main(String[] args) {
 	    FieldSearcher searcher = new FieldSearcher();
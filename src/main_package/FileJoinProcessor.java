@@ -0,0 +1,452 @@
+package main_package;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// 두 .dat 파일을 MySQL 없이 직접 조인 (FileStructure 로 읽고 결과도 .dat 로 기록)
+// 출력 형식은 JoinProcessor 와 같음: R 의 필드 전부 + 이름이 겹치지 않는 S 의 필드
+public class FileJoinProcessor {
+    private static final long SORT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    private static final long GROUP_BUFFER_BUDGET = 16L * 1024 * 1024;
+    // 해시 조인 빌드 테이블 메모리 한도 (넘으면 분할해 디스크로)
+    private static final long HASH_MEMORY_BUDGET = 64L * 1024 * 1024;
+    // 결과를 모아 한 번에 순차 기록하는 레코드 수
+    private static final int OUTPUT_BATCH_SIZE = 4096;
+
+    private final FileStructure fileStructure = new FileStructure();
+
+    // 체인 순서가 조인 키 순서가 아닐 때 (정렬 경로로 다시 시도)
+    private static class UnsortedInputException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UnsortedInputException(String filename) {
+            super("Record chain of '" + filename + "' is not in key order");
+        }
+    }
+
+    // 조인 입력 파일 하나 (헤더와 조인 필드 위치)
+    private static class JoinInput {
+        final String filename;
+        final FileStructure.Metadata meta;
+        final int keyIndex;
+
+        JoinInput(String filename, FileStructure.Metadata meta, int keyIndex) {
+            this.filename = filename;
+            this.meta = meta;
+            this.keyIndex = keyIndex;
+        }
+    }
+
+    // 머지 조인: 파일 이름은 확장자 없이, 결과 레코드 수 반환
+    public long executeMergeJoin(String fileR, String fileS, String joinField, String outName) throws IOException {
+        return scanInputs(fileR, fileS, () -> runMergeJoin(fileR, fileS, joinField, outName));
+    }
+
+    private long runMergeJoin(String fileR, String fileS, String joinField, String outName) throws IOException {
+        JoinInput r = openInput(fileR, joinField);
+        JoinInput s = openInput(fileS, joinField);
+        String outFile = outName + ".dat";
+
+        long count;
+        try {
+            count = mergeJoin(r, s, outFile, false);
+        } catch (UnsortedInputException e) {
+            System.out.println(e.getMessage() + ", sorting inputs instead.");
+            count = mergeJoin(r, s, outFile, true);
+        }
+        fileStructure.flush(outFile);
+        System.out.println("Merge join completed. " + count + " records saved to '" + outFile + "'.");
+        return count;
+    }
+
+    // 해시 조인: 정렬 없이 작은 쪽으로 해시 테이블을 만들고 큰 쪽으로 탐색
+    public long executeHashJoin(String fileR, String fileS, String joinField, String outName) throws IOException {
+        return scanInputs(fileR, fileS, () -> runHashJoin(fileR, fileS, joinField, outName));
+    }
+
+    private long runHashJoin(String fileR, String fileS, String joinField, String outName) throws IOException {
+        JoinInput r = openInput(fileR, joinField);
+        JoinInput s = openInput(fileS, joinField);
+        String outFile = outName + ".dat";
+
+        FileStructure.Metadata outMeta = outputMetadata(r.meta, s.meta);
+        int[] sColumns = outputColumns(r.meta, s.meta);
+        fileStructure.createDataFile(outFile, outMeta);
+
+        boolean buildIsR = r.meta.recordCount <= s.meta.recordCount;
+        JoinInput build = buildIsR ? r : s;
+        JoinInput probe = buildIsR ? s : r;
+        HashJoiner joiner = new HashJoiner(HASH_MEMORY_BUDGET);
+        long count;
+        try (OutputWriter out = new OutputWriter(outFile, outMeta)) {
+            joiner.join(
+                keyedRows(build), build.keyIndex,
+                keyedRows(probe), probe.keyIndex,
+                buildIsR,
+                (rRow, sRow) -> out.add(joinRow(rRow, sRow, sColumns)));
+            count = out.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        fileStructure.flush(outFile);
+        if (joiner.getSpilledPartitions() > 0) {
+            System.out.println("Build side exceeded memory, joined through " + joiner.getSpilledPartitions() + " disk partitions.");
+        }
+        System.out.println("Hash join completed. " + count + " records saved to '" + outFile + "'.");
+        return count;
+    }
+
+    // 병렬 해시 조인: 양쪽을 키 해시로 분할해 threads 개 스레드에서 분할별로 동시에 조인
+    public long executeParallelJoin(String fileR, String fileS, String joinField, String outName, int threads) throws IOException {
+        return scanInputs(fileR, fileS, () -> runParallelJoin(fileR, fileS, joinField, outName, threads));
+    }
+
+    private long runParallelJoin(String fileR, String fileS, String joinField, String outName, int threads) throws IOException {
+        JoinInput r = openInput(fileR, joinField);
+        JoinInput s = openInput(fileS, joinField);
+        String outFile = outName + ".dat";
+
+        FileStructure.Metadata outMeta = outputMetadata(r.meta, s.meta);
+        int[] sColumns = outputColumns(r.meta, s.meta);
+        fileStructure.createDataFile(outFile, outMeta);
+
+        boolean buildIsR = r.meta.recordCount <= s.meta.recordCount;
+        JoinInput build = buildIsR ? r : s;
+        JoinInput probe = buildIsR ? s : r;
+        ParallelJoiner joiner = new ParallelJoiner(threads, HASH_MEMORY_BUDGET);
+        long count;
+        try (OutputWriter out = new OutputWriter(outFile, outMeta)) {
+            joiner.join(
+                keyedRows(build), build.keyIndex,
+                keyedRows(probe), probe.keyIndex,
+                buildIsR,
+                (rRow, sRow) -> joinRow(rRow, sRow, sColumns),
+                out::add);
+            count = out.finish();
+        }
+        fileStructure.flush(outFile);
+        if (joiner.getSkewedPartitions() > 0) {
+            System.out.println(joiner.getSkewedPartitions() + " skewed partitions were split across threads.");
+        }
+        System.out.println("Parallel hash join (" + threads + " threads) completed. " + count + " records saved to '" + outFile + "'.");
+        return count;
+    }
+
+    // 두 입력을 읽는 동안 레코드 자리가 바뀌지 않도록 (삭제는 조인이 끝난 뒤에)
+    // 다른 조인, 삭제와 서로 기다리지 않도록 항상 이름 순서로 잡음
+    private static <T> T scanInputs(String fileR, String fileS, FileLatch.IOAction<T> action) throws IOException {
+        String first = fileR + ".dat";
+        String second = fileS + ".dat";
+        if (first.compareTo(second) > 0) {
+            String t = first;
+            first = second;
+            second = t;
+        }
+        FileLatch inner = FileLatch.of(second);
+        return FileLatch.of(first).scan(() -> inner.scan(action));
+    }
+
+    // 조인 키가 NULL 이 아닌 레코드의 필드 값 (체인 순서)
+    private Iterator<List<String>> keyedRows(JoinInput input) {
+        Iterator<FileStructure.Record> chain = chainRecords(input);
+        return new Iterator<List<String>>() {
+            private FileStructure.Record next = nextWithKey(chain, input.keyIndex);
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public List<String> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                List<String> row = rowOf(next);
+                next = nextWithKey(chain, input.keyIndex);
+                return row;
+            }
+        };
+    }
+
+    private JoinInput openInput(String name, String joinField) throws IOException {
+        String filename = name + ".dat";
+        FileStructure.Metadata meta = fileStructure.readHeader(filename);
+        for (int i = 0; i < meta.fieldCount; i++) {
+            if (meta.fields.get(i).name.equalsIgnoreCase(joinField)) {
+                return new JoinInput(filename, meta, i);
+            }
+        }
+        throw new IOException("Join field '" + joinField + "' not found in " + filename);
+    }
+
+    private long mergeJoin(JoinInput r, JoinInput s, String outFile, boolean forceSort) throws IOException {
+        FileStructure.Metadata outMeta = outputMetadata(r.meta, s.meta);
+        int[] sColumns = outputColumns(r.meta, s.meta);
+        fileStructure.createDataFile(outFile, outMeta);
+        boolean bufferR = r.meta.recordCount < s.meta.recordCount;
+
+        try (
+            ExternalSorter sorterR = forceSort || r.keyIndex != 0 ? newSorter(r) : null;
+            ExternalSorter sorterS = forceSort || s.keyIndex != 0 ? newSorter(s) : null;
+            SpillableRowBuffer group = new SpillableRowBuffer(GROUP_BUFFER_BUDGET);
+            OutputWriter out = new OutputWriter(outFile, outMeta)
+        ) {
+            Iterator<FileStructure.Record> itR = sortedRecords(r, sorterR);
+            Iterator<FileStructure.Record> itS = sortedRecords(s, sorterS);
+            FileStructure.Record recR = nextWithKey(itR, r.keyIndex);
+            FileStructure.Record recS = nextWithKey(itS, s.keyIndex);
+
+            while (recR != null && recS != null) {
+                String keyR = recR.fieldValues.get(r.keyIndex);
+                String keyS = recS.fieldValues.get(s.keyIndex);
+                int cmp = compareKeys(keyR, keyS);
+                if (cmp < 0) {
+                    recR = nextWithKey(itR, r.keyIndex);
+                } else if (cmp > 0) {
+                    recS = nextWithKey(itS, s.keyIndex);
+                } else {
+                    // 작은 쪽의 같은 키 그룹만 버퍼링하고 반대쪽은 한 건씩 조인
+                    group.clear();
+                    if (bufferR) {
+                        do {
+                            group.add(rowOf(recR));
+                            recR = nextWithKey(itR, r.keyIndex);
+                        } while (recR != null && compareKeys(keyR, recR.fieldValues.get(r.keyIndex)) == 0);
+                        do {
+                            List<String> sRow = rowOf(recS);
+                            group.forEach(rRow -> out.add(joinRow(rRow, sRow, sColumns)));
+                            recS = nextWithKey(itS, s.keyIndex);
+                        } while (recS != null && compareKeys(keyS, recS.fieldValues.get(s.keyIndex)) == 0);
+                    } else {
+                        do {
+                            group.add(rowOf(recS));
+                            recS = nextWithKey(itS, s.keyIndex);
+                        } while (recS != null && compareKeys(keyS, recS.fieldValues.get(s.keyIndex)) == 0);
+                        do {
+                            List<String> rRow = rowOf(recR);
+                            group.forEach(sRow -> out.add(joinRow(rRow, sRow, sColumns)));
+                            recR = nextWithKey(itR, r.keyIndex);
+                        } while (recR != null && compareKeys(keyR, recR.fieldValues.get(r.keyIndex)) == 0);
+                    }
+                }
+            }
+            return out.finish();
+        }
+    }
+
+    private ExternalSorter newSorter(JoinInput input) {
+        int k = input.keyIndex;
+        return new ExternalSorter(
+            (a, b) -> compareKeys(a.fieldValues.get(k), b.fieldValues.get(k)), SORT_MEMORY_BUDGET);
+    }
+
+    // 조인 키 순서의 레코드
+    // 탐색키(0번 필드)로 조인하면 인덱스 순서, 인덱스가 없으면 체인 순서를 그대로 사용 (정렬 생략)
+    private Iterator<FileStructure.Record> sortedRecords(JoinInput input, ExternalSorter sorter) throws IOException {
+        if (sorter != null) {
+            Iterator<FileStructure.Record> chain = chainRecords(input);
+            while (chain.hasNext()) {
+                sorter.add(chain.next());
+            }
+            return sorter.iterator();
+        }
+        if (BPlusTreeIndex.exists(input.filename)) {
+            BPlusTreeIndex index = FileLatch.of(input.filename).read(() -> BPlusTreeIndex.open(input.filename));
+            Iterator<FileStructure.RecordAddress> addresses = index.scanAll(input.filename, input.meta);
+            return new Iterator<FileStructure.Record>() {
+                @Override
+                public boolean hasNext() {
+                    return addresses.hasNext();
+                }
+
+                @Override
+                public FileStructure.Record next() {
+                    FileStructure.RecordAddress addr = addresses.next();
+                    try {
+                        return fileStructure.readRecord(input.filename, input.meta, addr.block, addr.offset);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+        }
+        return checkOrder(chainRecords(input), input);
+    }
+
+    // 체인을 따라 레코드 순회 (헤더를 읽은 시점의 마지막 레코드까지)
+    private Iterator<FileStructure.Record> chainRecords(JoinInput input) {
+        return new Iterator<FileStructure.Record>() {
+            private int block = input.meta.firstRecordBlock;
+            private int offset = input.meta.firstRecordOffset;
+
+            @Override
+            public boolean hasNext() {
+                return block != -1 && offset != -1;
+            }
+
+            @Override
+            public FileStructure.Record next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    FileStructure.Record rec = fileStructure.readRecord(input.filename, input.meta, block, offset);
+                    if (input.meta.isLastRecord(block, offset)) {
+                        block = -1;
+                        offset = -1;
+                    } else {
+                        block = rec.nextRecordBlock;
+                        offset = rec.nextRecordOffset;
+                    }
+                    return rec;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    // 키가 줄어드는 레코드를 만나면 UnsortedInputException (여러 번 나눠 적재한 파일)
+    private Iterator<FileStructure.Record> checkOrder(Iterator<FileStructure.Record> records, JoinInput input) {
+        return new Iterator<FileStructure.Record>() {
+            private String previous;
+
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public FileStructure.Record next() {
+                FileStructure.Record rec = records.next();
+                String key = rec.fieldValues.get(input.keyIndex);
+                if (previous != null && compareKeys(previous, key) > 0) {
+                    throw new UnsortedInputException(input.filename);
+                }
+                previous = key;
+                return rec;
+            }
+        };
+    }
+
+    // 조인 키가 NULL 이 아닌 다음 레코드 (없으면 null)
+    private static FileStructure.Record nextWithKey(Iterator<FileStructure.Record> it, int keyIndex) {
+        while (it.hasNext()) {
+            FileStructure.Record rec = it.next();
+            if (!FileStructure.isNull(rec.nullBitmap, keyIndex)) {
+                return rec;
+            }
+        }
+        return null;
+    }
+
+    // 조인에 쓰는 행: NULL 비트가 선 필드는 null 로 (결과 레코드를 기록할 때 다시 비트맵으로)
+    private static List<String> rowOf(FileStructure.Record rec) {
+        List<String> row = new ArrayList<>(rec.fieldValues);
+        for (int i = 0; i < row.size(); i++) {
+            if (FileStructure.isNull(rec.nullBitmap, i)) {
+                row.set(i, null);
+            }
+        }
+        return row;
+    }
+
+    // 저장된 바이트 기준 비교 (UTF-8, 짧은 쪽은 공백으로 채운 것으로 봄 -> 인덱스 순서와 같음)
+    static int compareKeys(String a, String b) {
+        byte[] x = a.getBytes(StandardCharsets.UTF_8);
+        byte[] y = b.getBytes(StandardCharsets.UTF_8);
+        int n = Math.max(x.length, y.length);
+        for (int i = 0; i < n; i++) {
+            int cx = i < x.length ? x[i] & 0xff : ' ';
+            int cy = i < y.length ? y[i] & 0xff : ' ';
+            if (cx != cy) {
+                return cx - cy;
+            }
+        }
+        return 0;
+    }
+
+    // 결과 파일 필드: R 전부 + 이름이 겹치지 않는 S 필드
+    static FileStructure.Metadata outputMetadata(FileStructure.Metadata r, FileStructure.Metadata s) {
+        List<FileStructure.FieldInfo> fields = new ArrayList<>(r.fields);
+        for (int i : outputColumns(r, s)) {
+            fields.add(s.fields.get(i));
+        }
+        return new FileStructure.Metadata(fields);
+    }
+
+    // 결과에 들어가는 S 필드 위치
+    static int[] outputColumns(FileStructure.Metadata r, FileStructure.Metadata s) {
+        Set<String> seen = new HashSet<>();
+        for (FileStructure.FieldInfo f : r.fields) {
+            seen.add(f.name);
+        }
+        List<Integer> columns = new ArrayList<>();
+        for (int i = 0; i < s.fieldCount; i++) {
+            if (seen.add(s.fields.get(i).name)) {
+                columns.add(i);
+            }
+        }
+        return columns.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // R 행 + 결과에 들어가는 S 필드 (NULL 인 값은 null 그대로 옮김 -> S 의 NULL 비트도 결과 위치로)
+    static List<String> joinRow(List<String> rRow, List<String> sRow, int[] sColumns) {
+        List<String> merged = new ArrayList<>(rRow.size() + sColumns.length);
+        merged.addAll(rRow);
+        for (int i : sColumns) {
+            merged.add(sRow.get(i));
+        }
+        return merged;
+    }
+
+    // 결과 레코드를 모았다가 appendRecords 로 블록 단위 순차 기록
+    static class OutputWriter implements AutoCloseable {
+        private final FileStructure fileStructure = new FileStructure();
+        private final String filename;
+        private final FileStructure.Metadata meta;
+        private final List<FileStructure.Record> batch = new ArrayList<>(OUTPUT_BATCH_SIZE);
+        private long count = 0;
+
+        OutputWriter(String filename, FileStructure.Metadata meta) {
+            this.filename = filename;
+            this.meta = meta;
+        }
+
+        // null 인 값은 NULL 비트로 (비트맵은 앞의 8개 필드까지)
+        void add(List<String> row) throws IOException {
+            List<String> values = new ArrayList<>(row.size());
+            int nullBitmap = 0;
+            for (int i = 0; i < row.size(); i++) {
+                String v = row.get(i);
+                if (v == null && i < Byte.SIZE) {
+                    nullBitmap |= 1 << i;
+                }
+                values.add(v == null ? "" : v);
+            }
+            batch.add(new FileStructure.Record(values, (byte) nullBitmap));
+            if (batch.size() >= OUTPUT_BATCH_SIZE) {
+                flushBatch();
+            }
+        }
+
+        private void flushBatch() throws IOException {
+            count += fileStructure.appendRecords(filename, meta, batch.iterator());
+            batch.clear();
+        }
+
+        // 남은 레코드 기록 후 전체 레코드 수
+        long finish() throws IOException {
+            flushBatch();
+            return count;
+        }
+
+        @Override
+        public void close() {
+            batch.clear();
+        }
+    }
+}
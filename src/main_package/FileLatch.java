@@ -0,0 +1,97 @@
+package main_package;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// 데이터 파일별 래치 (인덱스, 블록 요약 등 파생 파일도 데이터 파일 래치로 보호)
+// 쓰는 쪽은 바이트를 바꾸는 짧은 구간만 배타로 잡고, 읽는 쪽은 헤더 하나/레코드 하나 단위로 공유로 잡음
+// 읽는 쪽은 처음 읽은 헤더(스냅샷)의 마지막 레코드에서 멈추므로 스캔 도중 추가된 레코드는 보지 않음
+// 레코드 자리를 바꾸는 작업(삭제, 빈 자리 재사용)은 structure 잠금을 배타로 잡아 진행 중인 스캔이 끝난 뒤에만 실행
+// (스캔은 체인 포인터나 인덱스에서 얻은 주소를 따라가므로 그 사이 자리가 비거나 다른 레코드로 바뀌면 안 됨)
+final class FileLatch {
+    private static final Map<Path, FileLatch> LATCHES = new HashMap<>();
+    // 레코드를 읽을 때마다 경로를 정규화하지 않도록 받은 이름으로도 캐시
+    private static final Map<String, FileLatch> BY_NAME = new ConcurrentHashMap<>();
+
+    private final ReentrantReadWriteLock latch = new ReentrantReadWriteLock();
+    // 파일에 쓰는 작업은 한 번에 하나 (삽입 하나, 적재 하나 전체)
+    private final ReentrantLock writer = new ReentrantLock();
+    // 스캔 전체(공유) / 레코드 자리 변경(배타)
+    private final ReentrantReadWriteLock structure = new ReentrantReadWriteLock();
+    // 배타 구간이 끝날 때마다 증가 (캐시해 둔 헤더가 아직 유효한지 확인)
+    private volatile long version = 0;
+
+    interface IOAction<T> {
+        T run() throws IOException;
+    }
+
+    interface IORunnable {
+        void run() throws IOException;
+    }
+
+    private FileLatch() {
+    }
+
+    static FileLatch of(String dataFilename) {
+        FileLatch latch = BY_NAME.get(dataFilename);
+        if (latch == null) {
+            synchronized (LATCHES) {
+                latch = LATCHES.computeIfAbsent(Paths.get(dataFilename).toAbsolutePath().normalize(), k -> new FileLatch());
+            }
+            BY_NAME.put(dataFilename, latch);
+        }
+        return latch;
+    }
+
+    // 공유로 읽기
+    <T> T read(IOAction<T> action) throws IOException {
+        return locked(latch.readLock(), action);
+    }
+
+    // 배타로 쓰기
+    void write(IORunnable action) throws IOException {
+        locked(latch.writeLock(), () -> {
+            try {
+                action.run();
+            } finally {
+                version++;
+            }
+            return null;
+        });
+    }
+
+    // 공유 구간 안에서 읽으면 구간이 끝날 때까지 바뀌지 않음
+    long version() {
+        return version;
+    }
+
+    Lock writer() {
+        return writer;
+    }
+
+    // 스캔 하나 전체 동안 레코드 자리가 바뀌지 않도록 (안에서 삭제를 부르면 교착)
+    <T> T scan(IOAction<T> action) throws IOException {
+        return locked(structure.readLock(), action);
+    }
+
+    // 삭제, 빈 자리 재사용 (writer 잠금을 잡은 쪽만)
+    Lock structure() {
+        return structure.writeLock();
+    }
+
+    private static <T> T locked(Lock lock, IOAction<T> action) throws IOException {
+        lock.lock();
+        try {
+            return action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
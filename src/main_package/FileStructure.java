@@ -1,14 +1,72 @@
 package main_package;
 
-import java.io.RandomAccessFile;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 public class FileStructure {
-	private static final int BLOCK_SIZE = 1024;
+	// 데이터 블록 크기는 파일마다 (만들 때 정하고 헤더에 기록), 순차 스캔이 많은 표는 크게, 점 조회가 많은 표는 작게
+	// OS 페이지(4 KiB)의 배수라 블록 하나를 읽고 쓰는 입출력이 페이지 경계에 맞음
+	static final int DEFAULT_BLOCK_SIZE = 4096;
+	static final int[] BLOCK_SIZES = { 4096, 8192, 16384, 65536 };
+	// version 5 미만 헤더의 파일 (블록 크기가 고정이던 때)
+	static final int LEGACY_BLOCK_SIZE = 1024;
+	// 헤더는 블록 크기와 무관하게 파일 앞 1 KiB 안에 (블록 크기를 모르고도 헤더를 읽을 수 있도록)
+	static final int HEADER_AREA_SIZE = 1024;
+	// 순차 적재 시 한 번에 기록하는 블록 수
+	private static final int BULK_WRITE_BLOCKS = 256;
 	private static final int FIELD_NAME_SIZE = 16;
+	// 헤더 확장 영역 (필드 목록 뒤): magic + version + tail 포인터 + 레코드 수 + 다음 삽입 위치
+	// (+ version 3: 빈 자리 목록 머리 + 빈 자리 수, + version 4: 블록 형식, + version 5: 블록 크기)
+	private static final int HEADER_MAGIC = 0x44424846; // "DBHF"
+	private static final int HEADER_VERSION = 5;
+	private static final int HEADER_EXT_V2_SIZE = 4 + 4 + 4 + 4 + 8 + 8;
+	private static final int HEADER_EXT_V4_SIZE = HEADER_EXT_V2_SIZE + 4 + 4 + 8 + 4;
+	private static final int HEADER_EXT_SIZE = HEADER_EXT_V4_SIZE + 4;
+	// 데이터 블록 형식 (파일을 만들 때 정하고 헤더에 기록)
+	static final int FORMAT_FIXED = 0;		// 고정 길이 레코드를 블록에 차례로 (주소의 offset 은 블록 안 바이트 위치)
+	static final int FORMAT_SLOTTED = 1;	// 슬롯 디렉터리 + 가변 길이 레코드 (SlottedPage, 주소의 offset 은 슬롯 번호)
+	static final int FORMAT_COMPRESSED = 2;	// 키 접두사 압축 + LZ4 로 압축한 블록 (CompressedPage, 주소의 offset 은 슬롯 번호)
+	// 삭제된 자리는 next 블록 자리에 -(다음 빈 자리 블록 + 2) 를 기록 (-1 은 체인 끝이므로 빈 자리는 항상 -2 이하)
+	private static final int FREE_LIST_END = Integer.MIN_VALUE;
+	// 삭제 시 한 번에 체인에서 떼어 내는 레코드 수 (그동안만 스캔이 기다림)
+	private static final int DELETE_BATCH = 1024;
+	// 파일별로 마지막에 해석한 헤더 (동시에 들어오는 요청마다 헤더 블록을 다시 해석하지 않도록)
+	private static final Map<String, CachedHeader> HEADERS = new ConcurrentHashMap<>();
+	// 스레드별로 마지막에 푼 압축 블록 (같은 블록의 레코드를 차례로 읽는 스캔이 블록을 한 번만 풀도록)
+	private static final ThreadLocal<DecodedBlock> DECODED = new ThreadLocal<>();
+
+	// 해석한 헤더와 그때의 래치 버전 (버전이 바뀌었으면 그 사이 파일에 쓴 것)
+	private static class CachedHeader {
+	    final long version;
+	    final Metadata meta;
+
+	    CachedHeader(long version, Metadata meta) {
+	        this.version = version;
+	        this.meta = meta;
+	    }
+	}
+
+	// 푼 압축 블록과 그때의 래치 버전 (버전이 바뀌었으면 포인터나 블록 내용이 바뀌었을 수 있음)
+	private static class DecodedBlock {
+	    final String filename;
+	    final int block;
+	    final long version;
+	    final List<byte[]> images;
+
+	    DecodedBlock(String filename, int block, long version, List<byte[]> images) {
+	        this.filename = filename;
+	        this.block = block;
+	        this.version = version;
+	        this.images = images;
+	    }
+	}
 
 	// 필드 정보
 	public static class FieldInfo {
@@ -24,15 +82,73 @@ public class FileStructure {
 	public static class Metadata {
 	    int firstRecordBlock;
 	    int firstRecordOffset;
+	    int lastRecordBlock;	// 체인의 마지막 레코드 (구 헤더 파일은 -1, 첫 삽입 때 복구)
+	    int lastRecordOffset;
+	    long recordCount;
+	    long dataEnd;			// 다음 레코드를 놓을 파일 위치 (페이지 단위 기록이라 파일 길이로는 알 수 없음, 슬롯/압축 형식은 마지막 블록 * blockSize + 슬롯 수)
+	    int freeBlock;			// 삭제로 비운 자리 목록의 첫 자리 (없으면 -1, 삽입이 파일 끝보다 먼저 사용)
+	    int freeOffset;
+	    long freeCount;
+	    int format;				// 데이터 블록 형식 (FORMAT_FIXED / FORMAT_SLOTTED / FORMAT_COMPRESSED)
+	    int blockSize;			// 블록 크기 (BLOCK_SIZES 중 하나, 구 파일은 LEGACY_BLOCK_SIZE), 블록 0 은 헤더
 	    int fieldCount;
 	    List<FieldInfo> fields;
 
 	    public Metadata(List<FieldInfo> fields) {
 	        this.firstRecordBlock = -1;
 	        this.firstRecordOffset = -1;
+	        this.lastRecordBlock = -1;
+	        this.lastRecordOffset = -1;
+	        this.recordCount = 0;
+	        this.blockSize = DEFAULT_BLOCK_SIZE;
+	        this.dataEnd = blockSize;
+	        this.freeBlock = -1;
+	        this.freeOffset = -1;
+	        this.freeCount = 0;
+	        this.format = FORMAT_FIXED;
 	        this.fieldCount = fields.size();
 	        this.fields = fields;
 	    }
+
+	    public boolean isSlotted() {
+	        return format == FORMAT_SLOTTED;
+	    }
+
+	    public boolean isCompressed() {
+	        return format == FORMAT_COMPRESSED;
+	    }
+
+	    // 주소의 offset 이 블록 안 바이트 위치인지 (아니면 슬롯 번호)
+	    public boolean isFixed() {
+	        return format == FORMAT_FIXED;
+	    }
+
+	    // 헤더를 읽은 시점의 마지막 레코드인지 (스캔은 여기서 멈춤, 이후 삽입된 레코드는 보지 않음)
+	    public boolean isLastRecord(int block, int offset) {
+	        return block == lastRecordBlock && offset == lastRecordOffset;
+	    }
+
+	    // 헤더를 읽은 시점에 이미 있던 위치인지 (인덱스에는 이후 삽입된 레코드가 섞여 있을 수 있음)
+	    public boolean contains(int block, int offset) {
+	        return (long) block * blockSize + offset < dataEnd;
+	    }
+
+	    // 필드 목록은 공유 (바꾸지 않음)
+	    Metadata copy() {
+	        Metadata copy = new Metadata(fields);
+	        copy.firstRecordBlock = firstRecordBlock;
+	        copy.firstRecordOffset = firstRecordOffset;
+	        copy.lastRecordBlock = lastRecordBlock;
+	        copy.lastRecordOffset = lastRecordOffset;
+	        copy.recordCount = recordCount;
+	        copy.dataEnd = dataEnd;
+	        copy.freeBlock = freeBlock;
+	        copy.freeOffset = freeOffset;
+	        copy.freeCount = freeCount;
+	        copy.format = format;
+	        copy.blockSize = blockSize;
+	        return copy;
+	    }
 	}
 
 	// 레코드
@@ -50,9 +166,90 @@ public class FileStructure {
 	    }
 	}
 
-	// 메타데이터 헤더에 기록
-	public void writeHeader(RandomAccessFile raf, Metadata meta) throws IOException {
-	    ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+	// 레코드 주소 (인덱스 검색 결과)
+	public static class RecordAddress {
+	    int block;
+	    int offset;
+
+	    public RecordAddress(int block, int offset) {
+	        this.block = block;
+	        this.offset = offset;
+	    }
+	}
+
+	private final BufferPool bufferPool = BufferPool.getInstance();
+
+	// 새 데이터 파일 생성 (같은 이름의 이전 파일과 인덱스들은 삭제, 빈 블록 요약과 블룸 필터 생성)
+	public void createDataFile(String filename, Metadata meta) throws IOException {
+	    if (Arrays.stream(BLOCK_SIZES).noneMatch(size -> size == meta.blockSize)) {
+	        throw new IOException("Block size must be one of " + Arrays.toString(BLOCK_SIZES) + " bytes, got " + meta.blockSize);
+	    }
+	    // 블록 크기를 적을 확장 영역까지 헤더 영역에 들어가야 함
+	    if (12 + meta.fieldCount * (FIELD_NAME_SIZE + 4) + HEADER_EXT_SIZE > HEADER_AREA_SIZE) {
+	        throw new IOException("Too many fields for the file header: " + meta.fieldCount);
+	    }
+	    if (meta.isSlotted() && !SlottedPage.fits(meta, meta.blockSize)) {
+	        throw new IOException("Records of up to " + SlottedPage.maxStoredSize(meta) + " bytes do not fit a slotted " + meta.blockSize + "-byte block");
+	    }
+	    if (meta.isCompressed() && !CompressedPage.fits(meta, getRecordSize(meta), meta.blockSize)) {
+	        throw new IOException("Records of " + getRecordSize(meta) + " bytes do not fit a compressed " + meta.blockSize + "-byte block");
+	    }
+	    // 이전 파일의 필드 인덱스도 삭제
+	    if (bufferPool.exists(filename)) {
+	        for (FieldInfo field : readHeader(filename).fields) {
+	            HashIndex.drop(filename, field.name);
+	        }
+	    }
+	    for (FieldInfo field : meta.fields) {
+	        HashIndex.drop(filename, field.name);
+	    }
+	    WriteAheadLog.discard(filename);
+	    bufferPool.deleteFile(filename);
+	    bufferPool.deleteFile(BPlusTreeIndex.indexFileFor(filename));
+	    // 블록 0 은 헤더, 버퍼 풀은 이 파일을 블록 크기 페이지로 다룸
+	    meta.dataEnd = meta.blockSize;
+	    bufferPool.setBlockSize(filename, meta.blockSize);
+	    writeHeader(filename, meta);
+	    // 슬롯/압축 형식은 레코드 위치가 파일 순서로 정해지지 않아 블록 요약 스캔을 쓰지 않음
+	    if (!meta.isFixed()) {
+	        bufferPool.deleteFile(ZoneMap.zoneFileFor(filename));
+	    } else {
+	        ZoneMap.create(filename, meta);
+	    }
+	    BloomFilter.create(filename, BloomFilter.DEFAULT_EXPECTED_KEYS, BloomFilter.DEFAULT_FALSE_POSITIVE_RATE);
+	    // 다시 열 때 블록 크기를 디스크의 헤더에서 읽으므로 바로 기록
+	    flush(filename);
+	}
+
+	// 데이터 파일과 인덱스들, 블록 요약, 블룸 필터의 dirty 페이지 기록 후 로그 비움 (checkpoint)
+	public void flush(String filename) throws IOException {
+	    WriteAheadLog.open(filename).checkpoint();
+	}
+
+	// 파생 파일(인덱스들, 블록 요약, 블룸 필터)의 dirty 페이지 기록
+	// checkpoint 가 로그를 비우기 전에 호출 (비운 뒤 충돌하면 재실행할 로그가 없어 recover 가 파생 파일을 다시 만들지 않음)
+	void flushDerived(String filename) throws IOException {
+	    bufferPool.flush(BPlusTreeIndex.indexFileFor(filename));
+	    bufferPool.flush(ZoneMap.zoneFileFor(filename));
+	    bufferPool.flush(BloomFilter.bloomFileFor(filename));
+	    if (bufferPool.exists(filename)) {
+	        for (FieldInfo field : readHeader(filename).fields) {
+	            bufferPool.flush(HashIndex.indexFileFor(filename, field.name));
+	            bufferPool.flush(HashIndex.overflowFileFor(filename, field.name));
+	        }
+	    }
+	}
+
+	// 메타데이터 헤더에 기록 (파일이 없으면 생성)
+	public void writeHeader(String filename, Metadata meta) throws IOException {
+	    WriteAheadLog.Batch batch = new WriteAheadLog.Batch();
+	    batch.add(0, encodeHeader(meta));
+	    logAndWrite(filename, batch);
+	}
+
+	// 헤더 블록 앞부분 바이트
+	byte[] encodeHeader(Metadata meta) {
+	    ByteBuffer buffer = ByteBuffer.allocate(HEADER_AREA_SIZE);
 	    buffer.putInt(meta.firstRecordBlock);
 	    buffer.putInt(meta.firstRecordOffset);
 	    buffer.putInt(meta.fieldCount);
@@ -65,16 +262,119 @@ public class FileStructure {
 	        buffer.putInt(field.length);
 	    }
 
-	    raf.seek(0);
-	    raf.write(buffer.array());
+	    // 필드가 너무 많아 확장 영역이 안 들어가면 구 헤더 형식으로 남김 (블록 크기를 못 적으므로 구 블록 크기 파일만, createDataFile 이 확인)
+	    // 블록 크기 자리만 모자란 구 파일은 version 4 로
+	    int version = buffer.remaining() >= HEADER_EXT_SIZE ? HEADER_VERSION
+	        : buffer.remaining() >= HEADER_EXT_V4_SIZE ? 4 : 0;
+	    if (version > 0) {
+	        buffer.putInt(HEADER_MAGIC);
+	        buffer.putInt(version);
+	        buffer.putInt(meta.lastRecordBlock);
+	        buffer.putInt(meta.lastRecordOffset);
+	        buffer.putLong(meta.recordCount);
+	        buffer.putLong(meta.dataEnd);
+	        buffer.putInt(meta.freeBlock);
+	        buffer.putInt(meta.freeOffset);
+	        buffer.putLong(meta.freeCount);
+	        buffer.putInt(meta.format);
+	    }
+	    if (version >= 5) {
+	        buffer.putInt(meta.blockSize);
+	    }
+	    // 나머지는 항상 0 이라 사용한 부분만 (로그 크기를 줄이기 위해)
+	    return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+
+	// 변경할 바이트 범위들을 한 묶음으로 WAL 에 먼저 남긴 뒤 버퍼 풀에 반영 (재실행은 묶음 단위로 전부 또는 전혀)
+	private void logAndWrite(String filename, WriteAheadLog.Batch batch) throws IOException {
+	    logAndWrite(filename, batch, () -> { });
+	}
+
+	// derived 는 같은 배타 구간 안에서 파생 파일 갱신 (읽는 쪽은 헤더와 체인, 인덱스, 블룸 필터가 모두 바뀐 뒤에만 봄)
+	private void logAndWrite(String filename, WriteAheadLog.Batch batch, FileLatch.IORunnable derived) throws IOException {
+	    WriteAheadLog wal = WriteAheadLog.open(filename);
+	    long lsn = wal.append(batch);
+	    bufferPool.openFile(filename, true);
+	    // 읽는 쪽에는 묶음 전체가 한 번에 보이도록 배타 래치 안에서 반영
+	    FileLatch.of(filename).write(() -> {
+	        for (int i = 0; i < batch.positions.size(); i++) {
+	            byte[] image = batch.images.get(i);
+	            bufferPool.write(filename, batch.positions.get(i), image, 0, image.length);
+	        }
+	        derived.run();
+	    });
+	    wal.applied(lsn);
+	}
+
+	// 처음 여는 파일이면 남은 로그 재실행, 재실행했으면 파생 파일(인덱스, 블록 요약, 블룸 필터)을 데이터 파일에 맞춰 다시 구성
+	void recover(String filename) throws IOException {
+	    registerBlockSize(filename);
+	    if (!WriteAheadLog.open(filename).takeReplayed()) return;
+	    Metadata meta = readHeader(filename);
+	    if (BPlusTreeIndex.exists(filename)) {
+	        BPlusTreeIndex.build(filename, this, meta);
+	    }
+	    if (ZoneMap.exists(filename)) {
+	        ZoneMap.build(filename, this, meta);
+	    }
+	    if (BloomFilter.exists(filename)) {
+	        double rate = BloomFilter.DEFAULT_FALSE_POSITIVE_RATE;
+	        long expected = BloomFilter.DEFAULT_EXPECTED_KEYS;
+	        try {
+	            BloomFilter old = BloomFilter.open(filename);
+	            rate = old.getFalsePositiveRate();
+	            expected = old.getCapacity();
+	        } catch (IOException e) {
+	            System.out.println("Bloom filter header unreadable, rebuilding with defaults: " + e.getMessage());
+	        }
+	        BloomFilter.build(filename, this, meta, Math.max(expected, meta.recordCount), rate);
+	    }
+	    for (int i = 0; i < meta.fieldCount; i++) {
+	        if (HashIndex.exists(filename, meta.fields.get(i).name)) {
+	            HashIndex.build(filename, this, meta, i);
+	        }
+	    }
+	    flush(filename);
+	}
+
+	// 버퍼 풀이 데이터 파일을 헤더에 적힌 블록 크기의 페이지로 다루도록 처음 한 번 등록
+	// (헤더 영역은 블록 크기와 무관하므로 풀을 거치지 않고 디스크에서 직접, 블록 크기는 만든 뒤 바뀌지 않음)
+	private void registerBlockSize(String filename) throws IOException {
+	    if (bufferPool.hasBlockSize(filename) || !bufferPool.exists(filename)) return;
+	    ByteBuffer buffer = ByteBuffer.allocate(HEADER_AREA_SIZE);
+	    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+	        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+	        }
+	    }
+	    buffer.clear();
+	    bufferPool.setBlockSize(filename, decodeHeader(buffer).blockSize);
 	}
 
 	// 헤더에서 메타데이터 읽기
-	public Metadata readHeader(RandomAccessFile raf) throws IOException {
-	    ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
-	    raf.seek(0);
-	    raf.readFully(buffer.array());
-	    buffer.rewind();
+	public Metadata readHeader(String filename) throws IOException {
+	    recover(filename);
+	    FileLatch latch = FileLatch.of(filename);
+	    // 쓰는 쪽이 묶음을 반영하는 도중의 헤더는 보지 않음, 그 사이 쓴 것이 없으면 캐시한 헤더의 복사본
+	    Metadata meta = latch.read(() -> {
+	        long version = latch.version();
+	        CachedHeader cached = HEADERS.get(filename);
+	        if (cached == null || cached.version != version) {
+	            ByteBuffer buffer = ByteBuffer.allocate(HEADER_AREA_SIZE);
+	            bufferPool.read(filename, 0, buffer.array(), 0, HEADER_AREA_SIZE);
+	            cached = new CachedHeader(version, decodeHeader(buffer));
+	            HEADERS.put(filename, cached);
+	        }
+	        return cached.meta.copy();
+	    });
+	    // version 2 미만은 바이트 단위로 기록되던 파일이라 파일 길이가 곧 다음 삽입 위치
+	    if (meta.dataEnd == -1) {
+	        meta.dataEnd = Math.max(meta.blockSize, bufferPool.physicalLength(filename));
+	    }
+	    return meta;
+	}
+
+	// 헤더 블록 해석 (다음 삽입 위치가 기록돼 있지 않은 구 형식이면 dataEnd 는 -1)
+	public static Metadata decodeHeader(ByteBuffer buffer) {
 	    int firstRecordBlock = buffer.getInt();
 	    int firstRecordOffset = buffer.getInt();
 	    int fieldCount = buffer.getInt();
@@ -91,11 +391,33 @@ public class FileStructure {
 	    Metadata meta = new Metadata(fields);
 	    meta.firstRecordBlock = firstRecordBlock;
 	    meta.firstRecordOffset = firstRecordOffset;
+
+	    // 구 헤더 형식이면 확장 영역이 0으로 채워져 있음 -> tail 은 첫 삽입 때 복구
+	    int version = 0;
+	    if (buffer.remaining() >= HEADER_EXT_V2_SIZE && buffer.getInt() == HEADER_MAGIC) {
+	        version = buffer.getInt();
+	        meta.lastRecordBlock = buffer.getInt();
+	        meta.lastRecordOffset = buffer.getInt();
+	        meta.recordCount = buffer.getLong();
+	    }
+	    meta.dataEnd = (version >= 2) ? buffer.getLong() : -1;
+	    // version 3 미만은 삭제가 없던 파일이라 빈 자리도 없음
+	    if (version >= 3) {
+	        meta.freeBlock = buffer.getInt();
+	        meta.freeOffset = buffer.getInt();
+	        meta.freeCount = buffer.getLong();
+	    }
+	    // version 4 미만은 고정 길이 형식뿐
+	    if (version >= 4) {
+	        meta.format = buffer.getInt();
+	    }
+	    // version 5 미만은 블록 크기가 고정이던 파일
+	    meta.blockSize = version >= 5 ? buffer.getInt() : LEGACY_BLOCK_SIZE;
 	    return meta;
 	}
 	
 	// 레코드 크기 계산
-	private int getRecordSize(Metadata meta) {
+	public int getRecordSize(Metadata meta) {
 	    int size = 4 + 4 + 1; // nextBlock + nextOffset + nullBitmap
 	    for (FieldInfo field : meta.fields) {
 	        size += field.length;
@@ -103,92 +425,854 @@ public class FileStructure {
 	    return size;
 	}
 
-	// 레코드 삽입
+	// 다음 레코드 위치: 마지막 블록에 안 들어가면 새 블록의 처음
+	static long nextRecordPosition(long dataEnd, int recordSize, int blockSize) {
+	    if (dataEnd % blockSize + recordSize > blockSize) {
+	        return (dataEnd / blockSize + 1) * blockSize;
+	    }
+	    return dataEnd;
+	}
+
+	// 첫 자리부터 nextRecordPosition 으로 차례로 놓이는 레코드 자리인지 (빈 자리를 재사용한 파일은 체인 순서가 파일 순서와 다름)
+	static boolean isSlotPosition(long position, int recordSize, int blockSize) {
+	    long first = nextRecordPosition(blockSize, recordSize, blockSize);
+	    if (position < first) return false;
+	    if (recordSize <= blockSize) {
+	        long offset = position % blockSize;
+	        return offset % recordSize == 0 && offset + recordSize <= blockSize;
+	    }
+	    long stride = nextRecordPosition(first + recordSize, recordSize, blockSize) - first;
+	    return (position - first) % stride == 0;
+	}
+
+	// 삭제돼 빈 자리 목록에 있는 자리인지 (레코드 첫 4바이트 = next 블록 값으로 판단)
+	static boolean isFreeSlot(int nextBlock) {
+	    return nextBlock <= -2;
+	}
+
+	// 레코드 삽입 (파일에 쓰는 작업은 한 번에 하나)
 	public void insertRecord(String filename, Metadata meta, Record newRecord) throws IOException {
-	    try (RandomAccessFile raf = new RandomAccessFile(filename, "rw")) {
-	        int recordSize = getRecordSize(meta);
-	        int fileLength = (int) raf.length();
-	        int lastBlockStart = (fileLength / BLOCK_SIZE) * BLOCK_SIZE;
-	        int offsetInLastBlock = fileLength % BLOCK_SIZE;
-
-	        int newBlock = fileLength / BLOCK_SIZE;
-	        int newOffset = offsetInLastBlock;
-
-	        // 새 블록으로 이동
-	        if (offsetInLastBlock + recordSize > BLOCK_SIZE) {
-	            newBlock++;
-	            newOffset = 0;
-	        }
-
-	        // 헤더에 위치 기록
-	        if (meta.firstRecordBlock == -1 && meta.firstRecordOffset == -1) {
-	            meta.firstRecordBlock = newBlock;
-	            meta.firstRecordOffset = newOffset;
-	            raf.seek(0);
-	            raf.writeInt(meta.firstRecordBlock);
-	            raf.writeInt(meta.firstRecordOffset);
+	    FileLatch latch = FileLatch.of(filename);
+	    latch.writer().lock();
+	    try {
+	        insertRecord(filename, meta, newRecord, latch);
+	    } finally {
+	        latch.writer().unlock();
+	    }
+	}
+
+	private void insertRecord(String filename, Metadata meta, Record newRecord, FileLatch latch) throws IOException {
+	    syncWithHeader(filename, meta);
+	    // 삭제로 비운 자리가 있으면 먼저 사용 (진행 중인 스캔이 있어 바로 잡히지 않으면 이번에는 파일 끝에)
+	    boolean reuse = meta.freeCount > 0 && meta.freeBlock != -1 && latch.structure().tryLock();
+	    try {
+	        insertRecord(filename, meta, newRecord, latch, reuse);
+	    } finally {
+	        if (reuse) {
+	            latch.structure().unlock();
+	        }
+	    }
+	}
+
+	private void insertRecord(String filename, Metadata meta, Record newRecord, FileLatch latch, boolean reuse) throws IOException {
+	    int recordSize = getRecordSize(meta);
+	    byte[] image = encodeRecord(meta, newRecord);
+	    byte[] bytes = meta.isSlotted() ? SlottedPage.encode(meta, newRecord) : image;
+	    // 압축 형식은 새 레코드를 넣어 블록을 다시 압축 (블록에 안 들어가면 재사용하지 않음)
+	    byte[] page = reuse && meta.isCompressed() ? compressedWith(filename, meta, meta.freeBlock, meta.freeOffset, image) : null;
+	    // 슬롯 형식은 지운 레코드 자리보다 길면 재사용하지 않음
+	    boolean useFree = reuse && (meta.isFixed()
+	        || meta.isSlotted() && bytes.length <= readSlot(filename, meta, meta.freeBlock, meta.freeOffset)[1]
+	        || page != null);
+	    // 압축 형식에서 들어가지 않는 빈 자리는 목록에서 빼고 파일 끝에 (내용은 그 블록을 다시 압축할 때 비워짐)
+	    // 그대로 두면 목록 머리에 남아 이후 삽입이 모두 재사용을 못 함
+	    boolean dropFree = reuse && meta.isCompressed() && !useFree;
+
+	    // 이전 레코드 next 포인터, 새 레코드 (슬롯 형식은 슬롯 디렉터리도, 압축 형식은 블록 전체), 헤더를 한 묶음으로 기록
+	    WriteAheadLog.Batch batch = new WriteAheadLog.Batch();
+	    long position;
+	    int newBlock, newOffset;
+	    int nextFreeBlock = -1, nextFreeOffset = -1;
+	    if (useFree || dropFree) {
+	        byte[] link = new byte[8];
+	        bufferPool.read(filename, recordPosition(filename, meta, meta.freeBlock, meta.freeOffset), link, 0, link.length);
+	        ByteBuffer buffer = ByteBuffer.wrap(link);
+	        int encoded = buffer.getInt();
+	        nextFreeBlock = encoded == FREE_LIST_END ? -1 : -encoded - 2;
+	        nextFreeOffset = buffer.getInt();
+	    }
+	    if (useFree) {
+	        newBlock = meta.freeBlock;
+	        newOffset = meta.freeOffset;
+	        position = recordPosition(filename, meta, newBlock, newOffset);
+	        if (meta.isCompressed()) {
+	            batch.add((long) newBlock * meta.blockSize, page);
+	        }
+	    } else if (meta.isCompressed()) {
+	        // 마지막 블록에 넣어 다시 압축한 것이 블록을 넘으면 새 블록의 0번 슬롯
+	        int block = (int) (meta.dataEnd / meta.blockSize);
+	        int slot = (int) (meta.dataEnd % meta.blockSize);
+	        page = slot == 0 ? null : compressedWith(filename, meta, block, slot, image);
+	        if (page == null) {
+	            block = slot == 0 ? block : block + 1;
+	            slot = 0;
+	            page = CompressedPage.encode(meta, List.of(image));
+	        }
+	        newBlock = block;
+	        newOffset = slot;
+	        batch.add((long) newBlock * meta.blockSize, page);
+	        position = recordPosition(filename, meta, newBlock, newOffset);
+	    } else if (meta.isSlotted()) {
+	        // 마지막 블록의 빈 공간에 슬롯 항목과 레코드가 안 들어가면 새 블록의 0번 슬롯
+	        int block = (int) (meta.dataEnd / meta.blockSize);
+	        int slot = (int) (meta.dataEnd % meta.blockSize);
+	        int dataStart = slot == 0 ? meta.blockSize : readSlot(filename, meta, block, slot - 1)[0];
+	        if (dataStart - bytes.length < SlottedPage.slotPosition(slot + 1)) {
+	            block++;
+	            slot = 0;
+	            dataStart = meta.blockSize;
+	        }
+	        newBlock = block;
+	        newOffset = slot;
+	        long base = (long) newBlock * meta.blockSize;
+	        batch.add(base, SlottedPage.headerBytes(newOffset + 1));
+	        batch.add(base + SlottedPage.slotPosition(newOffset), SlottedPage.slotBytes(dataStart - bytes.length, bytes.length));
+	        position = base + dataStart - bytes.length;
+	    } else {
+	        position = nextRecordPosition(meta.dataEnd, recordSize, meta.blockSize);
+	        newBlock = (int) (position / meta.blockSize);
+	        newOffset = (int) (position % meta.blockSize);
+	    }
+
+	    if (meta.firstRecordBlock == -1 && meta.firstRecordOffset == -1) {
+	        meta.firstRecordBlock = newBlock;
+	        meta.firstRecordOffset = newOffset;
+	    } else {
+	        if (meta.lastRecordBlock == -1) {
+	            locateTail(filename, meta);
+	        }
+	        // 마지막 레코드의 next 포인터만 갱신
+	        batch.add(recordPosition(filename, meta, meta.lastRecordBlock, meta.lastRecordOffset), pointerBytes(newBlock, newOffset));
+	    }
+	    // 압축 형식은 블록을 이미 넣었고 그 뒤의 포인터 기록이 블록 안 포인터를 덮어야 함
+	    if (!meta.isCompressed()) {
+	        batch.add(position, bytes);
+	    }
+
+	    meta.lastRecordBlock = newBlock;
+	    meta.lastRecordOffset = newOffset;
+	    meta.recordCount++;
+	    if (useFree || dropFree) {
+	        meta.freeBlock = nextFreeBlock;
+	        meta.freeOffset = nextFreeOffset;
+	        meta.freeCount--;
+	    }
+	    if (!useFree) {
+	        meta.dataEnd = meta.isFixed() ? position + recordSize : (long) newBlock * meta.blockSize + newOffset + 1;
+	    }
+	    batch.add(0, encodeHeader(meta));
+	    // 파생 파일도 같은 배타 구간에서 (헤더에 보이는 레코드는 블룸 필터, 인덱스, 블록 요약에도 있음)
+	    logAndWrite(filename, batch, () -> {
+	        updateIndex(filename, meta, newRecord, newBlock, newOffset);
+	        if (ZoneMap.exists(filename)) {
+	            ZoneMap.open(filename, meta).add(newBlock, image, 0);
+	        }
+	        for (HashIndex fieldIndex : HashIndex.openAll(filename, meta)) {
+	            fieldIndex.insert(image, 0, newBlock, newOffset);
+	        }
+	        BloomFilter bloom = BloomFilter.openOrRebuild(filename, this, meta);
+	        if (bloom != null) {
+	            bloom.add(encodeField(newRecord, meta, 0));
+	        }
+	        BloomFilter.growIfFull(filename, this, meta);
+	    });
+	    // checkpoint 가 로그를 비우기 전에 기록하는 파생 파일에 이번 레코드도 들어 있도록 갱신 뒤에
+	    WriteAheadLog.open(filename).commitIfDue();
+	}
+
+	// 여러 레코드를 순서대로 파일 끝에 적재
+	// 메모리에서 블록 단위로 채우며 next 포인터를 연결하고 FileChannel 로 큰 단위 순차 기록,
+	// 기존 tail 과 헤더는 마지막에 한 번만 갱신 (그 전까지 읽는 쪽에는 새 레코드가 보이지 않음)
+	// records 가 도중에 예외를 던지면 (입력 검사 실패 등) 파일에는 아무것도 추가되지 않음
+	public long appendRecords(String filename, Metadata meta, Iterator<Record> records) throws IOException {
+	    if (!records.hasNext()) return 0;
+	    FileLatch latch = FileLatch.of(filename);
+	    latch.writer().lock();
+	    try {
+	        return appendRecords(filename, meta, records, latch);
+	    } catch (IOException | RuntimeException e) {
+	        try {
+	            rebuildIndexes(filename, latch);
+	        } catch (IOException | RuntimeException suppressed) {
+	            e.addSuppressed(suppressed);
+	        }
+	        throw e;
+	    } finally {
+	        latch.writer().unlock();
+	    }
+	}
+
+	// 적재가 중간에 멈추면 체인과 헤더는 그대로지만 인덱스에는 연결되지 않은 레코드의 주소가 남으므로 연결된 레코드로 다시 구성
+	// (블룸 필터와 블록 요약은 넓어지기만 해서 검색 결과는 같음)
+	private void rebuildIndexes(String filename, FileLatch latch) throws IOException {
+	    Metadata committed = readHeader(filename);
+	    latch.write(() -> {
+	        if (BPlusTreeIndex.exists(filename)) {
+	            BPlusTreeIndex.build(filename, this, committed);
+	        }
+	        for (HashIndex fieldIndex : HashIndex.openAll(filename, committed)) {
+	            HashIndex.build(filename, this, committed, fieldIndex.getFieldIndex());
+	        }
+	    });
+	}
+
+	private long appendRecords(String filename, Metadata meta, Iterator<Record> records, FileLatch latch) throws IOException {
+	    syncWithHeader(filename, meta);
+	    int recordSize = getRecordSize(meta);
+	    if (meta.firstRecordBlock != -1 && meta.lastRecordBlock == -1) {
+	        locateTail(filename, meta);
+	    }
+	    if (meta.isSlotted()) {
+	        return appendSlotted(filename, meta, records, latch);
+	    }
+	    if (meta.isCompressed()) {
+	        return appendCompressed(filename, meta, records, latch);
+	    }
+
+	    // 직접 기록할 영역이 풀의 오래된 페이지로 덮이지 않도록 먼저 flush
+	    bufferPool.flush(filename);
+	    FileChannel channel = bufferPool.getChannel(filename);
+	    BPlusTreeIndex index = BPlusTreeIndex.exists(filename) ? BPlusTreeIndex.open(filename) : null;
+	    ZoneMap zones = ZoneMap.exists(filename) ? ZoneMap.open(filename, meta) : null;
+	    BloomFilter bloom = openBloomForAppend(filename, meta, latch);
+	    List<HashIndex> fieldIndexes = HashIndex.openAll(filename, meta);
+
+	    long position = nextRecordPosition(meta.dataEnd, recordSize, meta.blockSize);
+	    int startBlock = (int) (position / meta.blockSize);
+	    int firstBlock = startBlock;
+	    int firstOffset = (int) (position % meta.blockSize);
+
+	    byte[] chunk = new byte[Math.max(BULK_WRITE_BLOCKS * meta.blockSize, 2 * (recordSize + meta.blockSize))];
+	    long chunkBase = (long) startBlock * meta.blockSize;
+	    int chunkLength = (int) (meta.dataEnd - chunkBase);
+	    if (chunkLength > 0) {
+	        // 일부만 찬 마지막 블록은 기존 내용 위에 이어서 채움
+	        bufferPool.read(filename, chunkBase, chunk, 0, chunkLength);
+	    } else {
+	        chunkLength = 0;
+	    }
+
+	    long count = 0;
+	    int lastBlock = -1, lastOffset = -1;
+	    Record rec = records.next();
+	    while (rec != null) {
+	        Record next = records.hasNext() ? records.next() : null;
+	        long nextPosition = nextRecordPosition(position + recordSize, recordSize, meta.blockSize);
+
+	        // 버퍼가 차면 현재 레코드 블록 이전까지 기록하고 나머지는 앞으로 이동
+	        if (position + recordSize - chunkBase > chunk.length) {
+	            long keepFrom = (position / meta.blockSize) * meta.blockSize;
+	            int written = (int) (keepFrom - chunkBase);
+	            int remaining = Math.max(0, chunkLength - written);
+	            writeFully(channel, chunk, written, chunkBase);
+	            System.arraycopy(chunk, written, chunk, 0, remaining);
+	            Arrays.fill(chunk, remaining, chunk.length, (byte) 0);
+	            chunkLength = remaining;
+	            chunkBase = keepFrom;
+	        }
+
+	        int block = (int) (position / meta.blockSize);
+	        int offset = (int) (position % meta.blockSize);
+	        rec.nextRecordBlock = next != null ? (int) (nextPosition / meta.blockSize) : -1;
+	        rec.nextRecordOffset = next != null ? (int) (nextPosition % meta.blockSize) : -1;
+	        byte[] bytes = encodeRecord(meta, rec);
+	        System.arraycopy(bytes, 0, chunk, (int) (position - chunkBase), recordSize);
+	        chunkLength = (int) (position + recordSize - chunkBase);
+
+	        Record current = rec;
+	        int from = (int) (position - chunkBase);
+	        latch.write(() -> {
+	            if (index != null) {
+	                index.insert(encodeField(current, meta, 0), block, offset);
+	            }
+	            if (zones != null) {
+	                zones.add(block, chunk, from);
+	            }
+	            if (bloom != null) {
+	                bloom.add(encodeField(current, meta, 0));
+	            }
+	            for (HashIndex fieldIndex : fieldIndexes) {
+	                fieldIndex.insert(chunk, from, block, offset);
+	            }
+	        });
+
+	        lastBlock = block;
+	        lastOffset = offset;
+	        count++;
+	        position = nextPosition;
+	        rec = next;
+	    }
+	    writeFully(channel, chunk, chunkLength, chunkBase);
+	    channel.force(false);
+	    // 읽는 쪽이 고정한 페이지가 없을 때 폐기
+	    latch.write(() -> bufferPool.invalidate(filename, startBlock));
+
+	    linkAppended(filename, meta, firstBlock, firstOffset, lastBlock, lastOffset, count,
+	        (long) lastBlock * meta.blockSize + lastOffset + recordSize, latch);
+	    return count;
+	}
+
+	// 적재용 블룸 필터 (파일을 읽을 수 없으면 읽는 쪽과 겹치지 않게 배타 구간에서 기존 레코드로 다시 구성)
+	private BloomFilter openBloomForAppend(String filename, Metadata meta, FileLatch latch) throws IOException {
+	    BloomFilter bloom = BloomFilter.openIfReadable(filename);
+	    if (bloom == null && BloomFilter.exists(filename)) {
+	        latch.write(() -> BloomFilter.openOrRebuild(filename, this, meta));
+	        bloom = BloomFilter.open(filename);
+	    }
+	    return bloom;
+	}
+
+	// 슬롯 형식 순차 적재: 블록 이미지를 메모리에서 채워 (슬롯 디렉터리 + 블록 끝부터 레코드) FileChannel 로 기록
+	// 다음 레코드가 같은 블록에 들어갈지 미리 보고 next 포인터를 정함
+	private long appendSlotted(String filename, Metadata meta, Iterator<Record> records, FileLatch latch) throws IOException {
+	    bufferPool.flush(filename);
+	    FileChannel channel = bufferPool.getChannel(filename);
+	    BPlusTreeIndex index = BPlusTreeIndex.exists(filename) ? BPlusTreeIndex.open(filename) : null;
+	    BloomFilter bloom = openBloomForAppend(filename, meta, latch);
+	    List<HashIndex> fieldIndexes = HashIndex.openAll(filename, meta);
+
+	    int block = (int) (meta.dataEnd / meta.blockSize);
+	    int slot = (int) (meta.dataEnd % meta.blockSize);
+	    int startBlock = block;
+	    byte[] chunk = new byte[BULK_WRITE_BLOCKS * meta.blockSize];
+	    ByteBuffer pages = ByteBuffer.wrap(chunk);
+	    int chunkBlock = block;
+	    int dataStart = meta.blockSize;
+	    if (slot > 0) {
+	        // 일부만 찬 마지막 블록은 기존 내용 위에 이어서 채움
+	        bufferPool.read(filename, (long) block * meta.blockSize, chunk, 0, meta.blockSize);
+	        dataStart = Short.toUnsignedInt(pages.getShort(SlottedPage.slotPosition(slot - 1)));
+	    }
+
+	    Record rec = records.next();
+	    byte[] stored = SlottedPage.encode(meta, rec);
+	    if (dataStart - stored.length < SlottedPage.slotPosition(slot + 1)) {
+	        block++;
+	        slot = 0;
+	        dataStart = meta.blockSize;
+	    }
+	    int firstBlock = block, firstOffset = slot;
+	    int lastBlock = -1, lastOffset = -1;
+	    long count = 0;
+	    while (rec != null) {
+	        Record next = records.hasNext() ? records.next() : null;
+	        byte[] nextStored = next != null ? SlottedPage.encode(meta, next) : null;
+	        int at = dataStart - stored.length;
+	        int nextBlock = block, nextSlot = slot + 1, nextDataStart = at;
+	        if (next != null && nextDataStart - nextStored.length < SlottedPage.slotPosition(nextSlot + 1)) {
+	            nextBlock = block + 1;
+	            nextSlot = 0;
+	            nextDataStart = meta.blockSize;
+	        }
+	        ByteBuffer.wrap(stored).putInt(0, next != null ? nextBlock : -1).putInt(4, next != null ? nextSlot : -1);
+
+	        int pageBase = (block - chunkBlock) * meta.blockSize;
+	        System.arraycopy(stored, 0, chunk, pageBase + at, stored.length);
+	        pages.putShort(pageBase + SlottedPage.slotPosition(slot), (short) at);
+	        pages.putShort(pageBase + SlottedPage.slotPosition(slot) + 2, (short) stored.length);
+	        pages.putShort(pageBase, (short) (slot + 1));
+
+	        Record current = rec;
+	        int currentBlock = block, currentSlot = slot;
+	        latch.write(() -> {
+	            if (index != null) {
+	                index.insert(encodeField(current, meta, 0), currentBlock, currentSlot);
+	            }
+	            if (bloom != null) {
+	                bloom.add(encodeField(current, meta, 0));
+	            }
+	            if (!fieldIndexes.isEmpty()) {
+	                byte[] image = encodeRecord(meta, current);
+	                for (HashIndex fieldIndex : fieldIndexes) {
+	                    fieldIndex.insert(image, 0, currentBlock, currentSlot);
+	                }
+	            }
+	        });
+
+	        lastBlock = block;
+	        lastOffset = slot;
+	        count++;
+	        // 버퍼가 차면 다음 블록 이전까지 기록
+	        if (nextBlock != block && (nextBlock - chunkBlock + 1) * meta.blockSize > chunk.length) {
+	            writeFully(channel, chunk, (nextBlock - chunkBlock) * meta.blockSize, (long) chunkBlock * meta.blockSize);
+	            Arrays.fill(chunk, (byte) 0);
+	            chunkBlock = nextBlock;
+	        }
+	        block = nextBlock;
+	        slot = nextSlot;
+	        dataStart = nextDataStart;
+	        rec = next;
+	        stored = nextStored;
+	    }
+	    writeFully(channel, chunk, (lastBlock - chunkBlock + 1) * meta.blockSize, (long) chunkBlock * meta.blockSize);
+	    channel.force(false);
+	    latch.write(() -> bufferPool.invalidate(filename, startBlock));
+
+	    linkAppended(filename, meta, firstBlock, firstOffset, lastBlock, lastOffset, count,
+	        (long) lastBlock * meta.blockSize + lastOffset + 1, latch);
+	    return count;
+	}
+
+	// 압축 형식 순차 적재: 레코드를 블록에 들어갈 만큼 모아 압축해 FileChannel 로 기록
+	// 블록마다 실제로 압축해 본 크기에서 레코드당 평균 크기로 몇 개 더 들어갈지 어림하고, 넘치면 넘친 레코드를 다음 블록으로
+	// 일부만 찬 마지막 블록은 다시 압축하지 않고 (읽는 쪽이 그 블록을 보고 있을 수 있음) 다음 블록부터 채움
+	private long appendCompressed(String filename, Metadata meta, Iterator<Record> records, FileLatch latch) throws IOException {
+	    bufferPool.flush(filename);
+	    FileChannel channel = bufferPool.getChannel(filename);
+	    BPlusTreeIndex index = BPlusTreeIndex.exists(filename) ? BPlusTreeIndex.open(filename) : null;
+	    BloomFilter bloom = openBloomForAppend(filename, meta, latch);
+	    List<HashIndex> fieldIndexes = HashIndex.openAll(filename, meta);
+	    int recordSize = getRecordSize(meta);
+	    int keyLength = meta.fields.get(0).length;
+
+	    int block = (int) ((meta.dataEnd + meta.blockSize - 1) / meta.blockSize);
+	    int startBlock = block;
+	    byte[] chunk = new byte[BULK_WRITE_BLOCKS * meta.blockSize];
+	    int chunkBlock = block;
+
+	    List<byte[]> page = new ArrayList<>();
+	    // 넘쳐서 다음 블록으로 넘긴 레코드
+	    Deque<byte[]> carry = new ArrayDeque<>();
+	    // 블록에 들어간다고 확인한 레코드 수와 그때 압축 크기, 레코드 하나가 더할 것으로 어림한 크기
+	    int fitted = 0;
+	    int fittedSize = CompressedPage.PAGE_HEADER_SIZE;
+	    double perRecord = CompressedPage.maxRecordGrowth(meta, recordSize);
+
+	    int firstBlock = block, firstOffset = 0;
+	    long count = 0;
+	    while (true) {
+	        boolean more = !carry.isEmpty() || records.hasNext();
+	        if (more) {
+	            page.add(carry.isEmpty() ? encodeRecord(meta, records.next()) : carry.pollFirst());
+	            if (fittedSize + (page.size() - fitted) * perRecord <= meta.blockSize) continue;
+	        }
+	        byte[] encoded = page.size() == fitted ? null : CompressedPage.encode(meta, page);
+	        boolean overflowed = false;
+	        while (encoded != null && encoded.length > meta.blockSize) {
+	            carry.addFirst(page.remove(page.size() - 1));
+	            overflowed = true;
+	            encoded = page.size() == fitted ? null : CompressedPage.encode(meta, page);
+	        }
+	        if (!overflowed && more) {
+	            fitted = page.size();
+	            fittedSize = encoded.length;
+	            perRecord = 1.1 * (fittedSize - CompressedPage.PAGE_HEADER_SIZE) / fitted;
+	            continue;
+	        }
+	        if (encoded == null) {
+	            encoded = CompressedPage.encode(meta, page);
+	        }
+
+	        // 블록 완성: 블록 안 레코드는 다음 슬롯으로, 마지막 레코드는 다음 블록 0번 슬롯으로 연결
+	        boolean hasNext = !carry.isEmpty() || records.hasNext();
+	        ByteBuffer pointers = ByteBuffer.wrap(encoded);
+	        for (int s = 0; s < page.size(); s++) {
+	            boolean lastInPage = s == page.size() - 1;
+	            pointers.putInt(CompressedPage.pointerPosition(s), lastInPage ? (hasNext ? block + 1 : -1) : block);
+	            pointers.putInt(CompressedPage.pointerPosition(s) + 4, lastInPage ? (hasNext ? 0 : -1) : s + 1);
+	        }
+	        if ((block - chunkBlock + 1) * meta.blockSize > chunk.length) {
+	            writeFully(channel, chunk, (block - chunkBlock) * meta.blockSize, (long) chunkBlock * meta.blockSize);
+	            Arrays.fill(chunk, (byte) 0);
+	            chunkBlock = block;
+	        }
+	        System.arraycopy(encoded, 0, chunk, (block - chunkBlock) * meta.blockSize, encoded.length);
+
+	        int pageBlock = block;
+	        List<byte[]> placed = new ArrayList<>(page);
+	        latch.write(() -> {
+	            for (int s = 0; s < placed.size(); s++) {
+	                byte[] image = placed.get(s);
+	                byte[] key = Arrays.copyOfRange(image, Projection.FIELDS_START, Projection.FIELDS_START + keyLength);
+	                if (index != null) {
+	                    index.insert(key, pageBlock, s);
+	                }
+	                if (bloom != null) {
+	                    bloom.add(key);
+	                }
+	                for (HashIndex fieldIndex : fieldIndexes) {
+	                    fieldIndex.insert(image, 0, pageBlock, s);
+	                }
+	            }
+	        });
+	        count += page.size();
+	        if (!hasNext) break;
+	        block++;
+	        page.clear();
+	        fitted = 0;
+	        fittedSize = CompressedPage.PAGE_HEADER_SIZE;
+	    }
+	    writeFully(channel, chunk, (block - chunkBlock + 1) * meta.blockSize, (long) chunkBlock * meta.blockSize);
+	    channel.force(false);
+	    latch.write(() -> bufferPool.invalidate(filename, startBlock));
+
+	    linkAppended(filename, meta, firstBlock, firstOffset, block, page.size() - 1, count,
+	        (long) block * meta.blockSize + page.size(), latch);
+	    return count;
+	}
+
+	// 압축 블록의 slot 자리에 레코드를 넣거나 (slot 이 레코드 수와 같으면 뒤에 추가) 바꿔 다시 압축, 블록을 넘으면 null
+	// 빈 자리로 남은 레코드는 내용을 공백으로 비워 (포인터만 유지) 새 레코드가 들어갈 공간을 만듦
+	private byte[] compressedWith(String filename, Metadata meta, int block, int slot, byte[] image) throws IOException {
+	    List<byte[]> images = readCompressed(filename, meta, block);
+	    for (byte[] stale : images) {
+	        if (isFreeSlot(ByteBuffer.wrap(stale).getInt(0))) {
+	            stale[Projection.FIELDS_START - 1] = 0;
+	            Arrays.fill(stale, Projection.FIELDS_START, stale.length, (byte) ' ');
+	        }
+	    }
+	    if (slot == images.size()) {
+	        images.add(image);
+	    } else {
+	        images.set(slot, image);
+	    }
+	    byte[] page = CompressedPage.encode(meta, images);
+	    return page.length <= meta.blockSize ? page : null;
+	}
+
+	// 압축 블록을 풀어 고정 길이 형식 레코드들로 (새 목록)
+	private List<byte[]> readCompressed(String filename, Metadata meta, int block) throws IOException {
+	    byte[] page = new byte[meta.blockSize];
+	    bufferPool.read(filename, (long) block * meta.blockSize, page, 0, page.length);
+	    return CompressedPage.decode(meta, getRecordSize(meta), ByteBuffer.wrap(page), 0);
+	}
+
+	// 파일 끝에 직접 기록한 레코드들을 기존 체인에 연결하고 헤더 갱신
+	// (새 레코드는 이미 기존 끝 뒤에 기록돼 있으므로 연결과 헤더만 로그에 남기고 바로 commit)
+	// 파생 파일은 적재하면서 먼저 갱신해 두었으므로 헤더가 바뀌는 순간 모두 보임 (그 전에는 스냅샷 dataEnd 밖 주소라 읽는 쪽이 거름)
+	private void linkAppended(String filename, Metadata meta, int firstBlock, int firstOffset, int lastBlock, int lastOffset,
+	                          long count, long dataEnd, FileLatch latch) throws IOException {
+	    WriteAheadLog.Batch batch = new WriteAheadLog.Batch();
+	    if (meta.firstRecordBlock == -1 && meta.firstRecordOffset == -1) {
+	        meta.firstRecordBlock = firstBlock;
+	        meta.firstRecordOffset = firstOffset;
+	    } else {
+	        batch.add(recordPosition(filename, meta, meta.lastRecordBlock, meta.lastRecordOffset), pointerBytes(firstBlock, firstOffset));
+	    }
+	    meta.lastRecordBlock = lastBlock;
+	    meta.lastRecordOffset = lastOffset;
+	    meta.recordCount += count;
+	    meta.dataEnd = dataEnd;
+	    batch.add(0, encodeHeader(meta));
+	    logAndWrite(filename, batch);
+	    WriteAheadLog.open(filename).commit();
+	    latch.write(() -> BloomFilter.growIfFull(filename, this, meta));
+	}
+
+	// 조건을 만족하는 레코드 삭제: 체인에서 떼어 내고 자리는 빈 자리 목록에 (이후 삽입이 재사용), 삭제한 수 반환
+	// matcher 는 레코드 원본 바이트 (next 포인터부터), 체인을 한 번 따라가며 DELETE_BATCH 개씩 로그에 남기고 반영
+	public long deleteRecords(String filename, Predicate<byte[]> matcher) throws IOException {
+	    FileLatch latch = FileLatch.of(filename);
+	    latch.writer().lock();
+	    try {
+	        Metadata meta = readHeader(filename);
+	        if (meta.firstRecordBlock == -1) return 0;
+	        if (meta.lastRecordBlock == -1) {
+	            locateTail(filename, meta);
+	        }
+
+	        // writer 잠금 중에는 체인이 바뀌지 않으므로 찾는 동안 스캔은 계속됨
+	        long deleted = 0;
+	        List<Victim> victims = new ArrayList<>();
+	        int prevBlock = -1, prevOffset = -1;
+	        int block = meta.firstRecordBlock;
+	        int offset = meta.firstRecordOffset;
+	        while (block != -1 && offset != -1) {
+	            ByteBuffer rec = readRecordBytes(filename, meta, block, offset);
+	            boolean last = meta.isLastRecord(block, offset);
+	            if (matcher.test(rec.array())) {
+	                victims.add(new Victim(block, offset, prevBlock, prevOffset, rec.array()));
+	                if (victims.size() == DELETE_BATCH) {
+	                    unlink(filename, meta, victims, latch);
+	                    deleted += victims.size();
+	                    victims.clear();
+	                }
+	            } else {
+	                prevBlock = block;
+	                prevOffset = offset;
+	            }
+	            if (last) break;
+	            block = rec.getInt(0);
+	            offset = rec.getInt(4);
+	        }
+	        if (!victims.isEmpty()) {
+	            unlink(filename, meta, victims, latch);
+	            deleted += victims.size();
+	        }
+	        if (deleted > 0) {
+	            WriteAheadLog.open(filename).commit();
+	        }
+	        return deleted;
+	    } finally {
+	        latch.writer().unlock();
+	    }
+	}
+
+	// 지울 레코드와 그 앞의 남는 레코드 (앞 레코드가 없으면 -1, 헤더의 첫 레코드 포인터를 바꿈)
+	private static class Victim {
+	    final int block, offset, prevBlock, prevOffset;
+	    final byte[] bytes;
+
+	    Victim(int block, int offset, int prevBlock, int prevOffset, byte[] bytes) {
+	        this.block = block;
+	        this.offset = offset;
+	        this.prevBlock = prevBlock;
+	        this.prevOffset = prevOffset;
+	        this.bytes = bytes;
+	    }
+	}
+
+	// 앞 레코드 포인터, 지운 자리의 빈 자리 링크, 헤더를 한 묶음으로 (진행 중인 스캔이 끝난 뒤 반영)
+	private void unlink(String filename, Metadata meta, List<Victim> victims, FileLatch latch) throws IOException {
+	    WriteAheadLog.Batch batch = new WriteAheadLog.Batch();
+	    for (Victim v : victims) {
+	        ByteBuffer rec = ByteBuffer.wrap(v.bytes);
+	        int nextBlock = rec.getInt(0);
+	        int nextOffset = rec.getInt(4);
+	        if (v.prevBlock == -1) {
+	            meta.firstRecordBlock = nextBlock;
+	            meta.firstRecordOffset = nextOffset;
 	        } else {
-	        	// 새로운 레코드로 연결
-	            int currBlock = meta.firstRecordBlock;
-	            int currOffset = meta.firstRecordOffset;
-
-	            while (true) {
-	                raf.seek((long) currBlock * BLOCK_SIZE + currOffset);
-	                int nextBlock = raf.readInt();
-	                int nextOffset = raf.readInt();
-
-	                if (nextBlock == -1 && nextOffset == -1) {
-	                    raf.seek((long) currBlock * BLOCK_SIZE + currOffset);
-	                    raf.writeInt(newBlock);
-	                    raf.writeInt(newOffset);
-	                    break;
-	                } else {
-	                    currBlock = nextBlock;
-	                    currOffset = nextOffset;
+	            batch.add(recordPosition(filename, meta, v.prevBlock, v.prevOffset), pointerBytes(nextBlock, nextOffset));
+	        }
+	        if (meta.isLastRecord(v.block, v.offset)) {
+	            meta.lastRecordBlock = v.prevBlock;
+	            meta.lastRecordOffset = v.prevOffset;
+	        }
+	        batch.add(recordPosition(filename, meta, v.block, v.offset),
+	            pointerBytes(meta.freeBlock == -1 ? FREE_LIST_END : -(meta.freeBlock + 2), meta.freeOffset));
+	        meta.freeBlock = v.block;
+	        meta.freeOffset = v.offset;
+	        meta.freeCount++;
+	        meta.recordCount--;
+	    }
+	    batch.add(0, encodeHeader(meta));
+
+	    latch.structure().lock();
+	    try {
+	        // 인덱스에서도 같은 배타 구간에서 제거 (블룸 필터는 지울 수 없고, 블록 요약은 넓은 채로 두어도 결과는 같음)
+	        logAndWrite(filename, batch, () -> {
+	            BPlusTreeIndex index = BPlusTreeIndex.exists(filename) ? BPlusTreeIndex.open(filename) : null;
+	            List<HashIndex> fieldIndexes = HashIndex.openAll(filename, meta);
+	            int keyLength = meta.fields.get(0).length;
+	            for (Victim v : victims) {
+	                if (index != null) {
+	                    index.delete(Arrays.copyOfRange(v.bytes, Projection.FIELDS_START, Projection.FIELDS_START + keyLength),
+	                        v.block, v.offset);
+	                }
+	                for (HashIndex fieldIndex : fieldIndexes) {
+	                    fieldIndex.remove(v.bytes, 0, v.block, v.offset);
 	                }
 	            }
+	        });
+	    } finally {
+	        latch.structure().unlock();
+	    }
+	}
+
+	// 호출한 쪽이 들고 있던 헤더는 그 사이 다른 삽입/삭제로 바뀌었을 수 있으므로 writer 잠금 안에서 현재 헤더로 맞춤
+	private void syncWithHeader(String filename, Metadata meta) throws IOException {
+	    Metadata current = readHeader(filename);
+	    meta.firstRecordBlock = current.firstRecordBlock;
+	    meta.firstRecordOffset = current.firstRecordOffset;
+	    meta.lastRecordBlock = current.lastRecordBlock;
+	    meta.lastRecordOffset = current.lastRecordOffset;
+	    meta.recordCount = current.recordCount;
+	    meta.dataEnd = current.dataEnd;
+	    meta.freeBlock = current.freeBlock;
+	    meta.freeOffset = current.freeOffset;
+	    meta.freeCount = current.freeCount;
+	}
+
+	private static void writeFully(FileChannel channel, byte[] bytes, int length, long position) throws IOException {
+	    ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+	    while (buffer.hasRemaining()) {
+	        channel.write(buffer, position + buffer.position());
+	    }
+	}
+
+	// 인덱스가 있으면 새 레코드의 탐색키 추가
+	private void updateIndex(String filename, Metadata meta, Record record, int block, int offset) throws IOException {
+	    if (!BPlusTreeIndex.exists(filename)) return;
+	    BPlusTreeIndex index = BPlusTreeIndex.open(filename);
+	    index.insert(encodeField(record, meta, 0), block, offset);
+	}
+
+	// 구 헤더 파일: 체인을 한 번 순회해 tail 과 레코드 수 복구 (이후 헤더에 기록되어 업그레이드됨)
+	private void locateTail(String filename, Metadata meta) throws IOException {
+	    int currBlock = meta.firstRecordBlock;
+	    int currOffset = meta.firstRecordOffset;
+	    long count = 0;
+	    byte[] pointer = new byte[8];
+
+	    while (true) {
+	        count++;
+	        bufferPool.read(filename, recordPosition(filename, meta, currBlock, currOffset), pointer, 0, 8);
+	        ByteBuffer buffer = ByteBuffer.wrap(pointer);
+	        int nextBlock = buffer.getInt();
+	        int nextOffset = buffer.getInt();
+	        if (nextBlock == -1 && nextOffset == -1) {
+	            break;
 	        }
+	        currBlock = nextBlock;
+	        currOffset = nextOffset;
+	    }
+
+	    meta.lastRecordBlock = currBlock;
+	    meta.lastRecordOffset = currOffset;
+	    meta.recordCount = count;
+	}
 
-	        writeRecord(raf, newBlock, newOffset, meta, newRecord);
+	// 레코드 next 포인터 바이트
+	private static byte[] pointerBytes(int nextBlock, int nextOffset) {
+	    ByteBuffer buffer = ByteBuffer.allocate(8);
+	    buffer.putInt(nextBlock);
+	    buffer.putInt(nextOffset);
+	    return buffer.array();
+	}
+
+	// 레코드의 파일 위치 (슬롯 형식은 슬롯 디렉터리에서 찾음, 압축 형식은 next 포인터 표 항목 위치)
+	private long recordPosition(String filename, Metadata meta, int block, int offset) throws IOException {
+	    if (meta.isFixed()) {
+	        return (long) block * meta.blockSize + offset;
 	    }
+	    if (meta.isCompressed()) {
+	        return (long) block * meta.blockSize + CompressedPage.pointerPosition(offset);
+	    }
+	    return (long) block * meta.blockSize + readSlot(filename, meta, block, offset)[0];
 	}
 
-	// 레코드 위치 기록
-	public void writeRecord(RandomAccessFile raf, int block, int offset, Metadata meta, Record record) throws IOException {
-	    int recordSize = getRecordSize(meta);
-	    raf.seek((long) block * BLOCK_SIZE + offset);
-	    ByteBuffer buffer = ByteBuffer.allocate(recordSize);
+	// 슬롯 디렉터리 항목 (블록 안 레코드 위치, 길이)
+	private int[] readSlot(String filename, Metadata meta, int block, int slot) throws IOException {
+	    byte[] entry = new byte[SlottedPage.SLOT_SIZE];
+	    bufferPool.read(filename, (long) block * meta.blockSize + SlottedPage.slotPosition(slot), entry, 0, entry.length);
+	    ByteBuffer buffer = ByteBuffer.wrap(entry);
+	    return new int[] { Short.toUnsignedInt(buffer.getShort()), Short.toUnsignedInt(buffer.getShort()) };
+	}
+
+	// 레코드 위치 기록 (고정 길이 형식만, 슬롯/압축 형식은 insertRecord 로)
+	public void writeRecord(String filename, int block, int offset, Metadata meta, Record record) throws IOException {
+	    if (!meta.isFixed()) {
+	        throw new IOException("writeRecord needs a fixed-length file: " + filename);
+	    }
+	    WriteAheadLog.Batch batch = new WriteAheadLog.Batch();
+	    batch.add((long) block * meta.blockSize + offset, encodeRecord(meta, record));
+	    logAndWrite(filename, batch);
+	}
+
+	// 레코드를 저장 형식의 바이트로 변환
+	byte[] encodeRecord(Metadata meta, Record record) {
+	    ByteBuffer buffer = ByteBuffer.allocate(getRecordSize(meta));
 
 	    buffer.putInt(record.nextRecordBlock);
 	    buffer.putInt(record.nextRecordOffset);
 	    buffer.put(record.nullBitmap);
 
 	    for (int i = 0; i < meta.fieldCount; i++) {
-	    	    byte[] fixedField = new byte[meta.fields.get(i).length];
-	    	    Arrays.fill(fixedField, (byte) ' ');
-	    	
-	    	    // null 비트가 0이면 실제 값 복사, 1이면 공백 그대로 남김
-	    	    if (((record.nullBitmap >> i) & 1) == 0) {
-	    	        String val = record.fieldValues.get(i);
-	    	        byte[] src = val.getBytes(StandardCharsets.UTF_8);
-	    	        System.arraycopy(src, 0, fixedField, 0,
-	    	                         Math.min(src.length, fixedField.length));
-	    	    }
-	    	    buffer.put(fixedField); 
+	        buffer.put(encodeField(record, meta, i));
+	    }
+	    return buffer.array();
+	}
+
+	// i 번째 필드의 null 비트
+	// 비트맵은 8개 필드까지이므로 그 뒤 필드는 항상 값 (음수 바이트를 밀면 부호 비트가 채워지므로 비트로 판단하지 않음)
+	static boolean isNull(byte nullBitmap, int i) {
+	    return i < Byte.SIZE && ((nullBitmap >> i) & 1) != 0;
+	}
+
+	// 필드 값을 고정 길이로 변환 (null 비트가 1이면 공백 그대로 남김)
+	static byte[] encodeField(Record record, Metadata meta, int i) {
+	    if (!isNull(record.nullBitmap, i)) {
+	        return encodeField(record.fieldValues.get(i), meta.fields.get(i).length);
 	    }
+	    return encodeField("", meta.fields.get(i).length);
+	}
 
-	    raf.write(buffer.array());
+	// 문자열을 UTF-8 로 바꾸고 길이에 맞춰 자르거나 공백으로 채움
+	static byte[] encodeField(String val, int length) {
+	    byte[] fixedField = new byte[length];
+	    Arrays.fill(fixedField, (byte) ' ');
+	    byte[] src = val.getBytes(StandardCharsets.UTF_8);
+	    System.arraycopy(src, 0, fixedField, 0, Math.min(src.length, fixedField.length));
+	    return fixedField;
+	}
+
+	// 레코드 원본 바이트 (next 포인터 + 비트맵 + 필드, 슬롯/압축 형식도 고정 길이 형식으로 펼쳐서)
+	public ByteBuffer readRecordBytes(String filename, Metadata meta, int block, int offset) throws IOException {
+	    if (meta.isCompressed()) {
+	        FileLatch latch = FileLatch.of(filename);
+	        return ByteBuffer.wrap(latch.read(() -> {
+	            // 공유 구간 안에서는 버전이 그대로이므로 같은 버전에 푼 블록은 그대로 사용
+	            DecodedBlock decoded = DECODED.get();
+	            long version = latch.version();
+	            if (decoded == null || decoded.version != version || decoded.block != block || !decoded.filename.equals(filename)) {
+	                decoded = new DecodedBlock(filename, block, version, readCompressed(filename, meta, block));
+	                DECODED.set(decoded);
+	            }
+	            return decoded.images.get(offset);
+	        }));
+	    }
+	    if (meta.isSlotted()) {
+	        return ByteBuffer.wrap(FileLatch.of(filename).read(() -> {
+	            int[] slot = readSlot(filename, meta, block, offset);
+	            byte[] stored = new byte[slot[1]];
+	            bufferPool.read(filename, (long) block * meta.blockSize + slot[0], stored, 0, stored.length);
+	            return SlottedPage.expand(meta, getRecordSize(meta), stored);
+	        }));
+	    }
+	    byte[] bytes = new byte[getRecordSize(meta)];
+	    FileLatch.of(filename).read(() -> {
+	        bufferPool.read(filename, (long) block * meta.blockSize + offset, bytes, 0, bytes.length);
+	        return null;
+	    });
+	    return ByteBuffer.wrap(bytes);
 	}
 	
-	public Record readRecord(RandomAccessFile raf, Metadata meta, int block, int offset) throws IOException {
-	    raf.seek((long)block * BLOCK_SIZE + offset);
-	    int nextBlock = raf.readInt();
-	    int nextOffset= raf.readInt();
-	    byte nullBitmap = raf.readByte();
+	public Record readRecord(String filename, Metadata meta, int block, int offset) throws IOException {
+	    return decodeRecord(readRecordBytes(filename, meta, block, offset), meta);
+	}
+
+	// 레코드에서 투영 필드와 next 포인터, nullBitmap 만 읽어 row 에 채움 (나머지 필드는 읽지도 디코딩하지도 않음)
+	// 슬롯/압축 형식은 필드 위치가 레코드마다 달라 레코드 전체를 읽어 펼침
+	public void readProjected(String filename, Metadata meta, Projection projection, int block, int offset, Projection.Row row) throws IOException {
+	    if (!meta.isFixed()) {
+	        row.load(readRecordBytes(filename, meta, block, offset));
+	        return;
+	    }
+	    long start = (long) block * meta.blockSize + offset;
+	    FileLatch.of(filename).read(() -> {
+	        bufferPool.read(filename, start, row.head, 0, row.head.length);
+	        for (int j = 0; j < projection.size(); j++) {
+	            bufferPool.read(filename, start + projection.offsets[j], row.raw[j], 0, projection.lengths[j]);
+	        }
+	        return null;
+	    });
+	    ByteBuffer buffer = ByteBuffer.wrap(row.head);
+	    row.nextRecordBlock = buffer.getInt();
+	    row.nextRecordOffset = buffer.getInt();
+	    row.nullBitmap = buffer.get();
+	    row.reset();
+	}
+
+	// 버퍼의 현재 위치에서 레코드 하나 해석
+	public static Record decodeRecord(ByteBuffer buffer, Metadata meta) {
+	    int nextBlock = buffer.getInt();
+	    int nextOffset= buffer.getInt();
+	    byte nullBitmap = buffer.get();
 	    List<String> vals = new ArrayList<>(meta.fieldCount);
 	    for (FieldInfo f : meta.fields) {
 	        byte[] buf = new byte[f.length];
-	        raf.readFully(buf);
+	        buffer.get(buf);
 	        vals.add(new String(buf, StandardCharsets.UTF_8).trim());
 	    }
 	    Record r = new Record(vals, nullBitmap);
@@ -0,0 +1,332 @@
+package main_package;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// 임의 필드에 대한 보조 해시 인덱스 (linear hashing, BufferPool 을 통해 접근)
+// <이름>.<필드>.hix: 0번 블록 헤더 + 버킷 b 의 기본 페이지는 b+1 번 블록 (버킷은 끝에만 추가되므로 연속)
+// <이름>.<필드>.hov: 넘친 엔트리를 담는 overflow 페이지 (분할로 비면 free list 로 재사용)
+// 엔트리는 값 자체 대신 (값 해시 64비트, 블록, 오프셋) -> 해시가 같은 다른 값은 찾은 레코드를 읽어 걸러 냄
+public class HashIndex {
+    private static final int BLOCK_SIZE = BufferPool.DEFAULT_PAGE_SIZE;
+    private static final int HASH_MAGIC = 0x48494458; // "HIDX"
+    private static final int PAGE_HEADER_SIZE = 4 + 4; // count + 다음 overflow 페이지
+    private static final int ENTRY_SIZE = 8 + 4 + 4;
+    private static final int PAGE_CAPACITY = (BLOCK_SIZE - PAGE_HEADER_SIZE) / ENTRY_SIZE;
+    private static final int INITIAL_LEVEL = 2;
+    // 평균 버킷 사용률이 이 값을 넘으면 다음 버킷 분할
+    private static final double MAX_LOAD = 0.75;
+
+    private final BufferPool bufferPool = BufferPool.getInstance();
+    private final String bucketFilename;
+    private final String overflowFilename;
+    private final int fieldIndex;
+    private final int fieldLength;
+    private final int fieldStart; // 레코드 안 필드 시작 위치
+
+    // 인덱스 헤더 (0번 블록)
+    private int level;
+    private int splitNext;
+    private int overflowPages;
+    private int freeOverflow = -1;
+    private long entryCount;
+
+    private final byte[] page = new byte[BLOCK_SIZE];
+
+    private HashIndex(String dataFilename, FileStructure.Metadata meta, int fieldIndex) {
+        String fieldName = meta.fields.get(fieldIndex).name;
+        this.bucketFilename = indexFileFor(dataFilename, fieldName);
+        this.overflowFilename = overflowFileFor(dataFilename, fieldName);
+        this.fieldIndex = fieldIndex;
+        this.fieldLength = meta.fields.get(fieldIndex).length;
+        int pos = Projection.FIELDS_START;
+        for (int i = 0; i < fieldIndex; i++) {
+            pos += meta.fields.get(i).length;
+        }
+        this.fieldStart = pos;
+    }
+
+    private static String baseOf(String dataFilename) {
+        return dataFilename.endsWith(".dat")
+            ? dataFilename.substring(0, dataFilename.length() - 4)
+            : dataFilename;
+    }
+
+    public static String indexFileFor(String dataFilename, String fieldName) {
+        return baseOf(dataFilename) + "." + fieldName + ".hix";
+    }
+
+    static String overflowFileFor(String dataFilename, String fieldName) {
+        return baseOf(dataFilename) + "." + fieldName + ".hov";
+    }
+
+    public static boolean exists(String dataFilename, String fieldName) {
+        return BufferPool.getInstance().exists(indexFileFor(dataFilename, fieldName));
+    }
+
+    public static HashIndex open(String dataFilename, FileStructure.Metadata meta, int fieldIndex) throws IOException {
+        HashIndex index = new HashIndex(dataFilename, meta, fieldIndex);
+        ByteBuffer header = ByteBuffer.allocate(4 + 4 + 4 + 4 + 4 + 4 + 4 + 8);
+        BufferPool.getInstance().read(index.bucketFilename, 0, header.array(), 0, header.capacity());
+        if (header.getInt() != HASH_MAGIC || header.getInt() != fieldIndex || header.getInt() != index.fieldLength) {
+            throw new IOException("Hash index does not match data file: " + index.bucketFilename);
+        }
+        index.level = header.getInt();
+        index.splitNext = header.getInt();
+        index.overflowPages = header.getInt();
+        index.freeOverflow = header.getInt();
+        index.entryCount = header.getLong();
+        return index;
+    }
+
+    // 데이터 파일에 있는 필드 인덱스를 모두 열기 (삽입 때 갱신용)
+    public static List<HashIndex> openAll(String dataFilename, FileStructure.Metadata meta) throws IOException {
+        List<HashIndex> indexes = new ArrayList<>();
+        for (int i = 0; i < meta.fieldCount; i++) {
+            if (exists(dataFilename, meta.fields.get(i).name)) {
+                indexes.add(open(dataFilename, meta, i));
+            }
+        }
+        return indexes;
+    }
+
+    // 빈 인덱스 생성 (버킷 2^INITIAL_LEVEL 개)
+    public static HashIndex create(String dataFilename, FileStructure.Metadata meta, int fieldIndex) throws IOException {
+        HashIndex index = new HashIndex(dataFilename, meta, fieldIndex);
+        BufferPool pool = BufferPool.getInstance();
+        pool.deleteFile(index.bucketFilename);
+        pool.deleteFile(index.overflowFilename);
+        pool.openFile(index.bucketFilename, true);
+        pool.openFile(index.overflowFilename, true);
+
+        index.level = INITIAL_LEVEL;
+        index.splitNext = 0;
+        for (int b = 0; b < (1 << INITIAL_LEVEL); b++) {
+            index.clearPage(index.bucketFilename, b + 1);
+        }
+        index.writeIndexHeader();
+        return index;
+    }
+
+    // 기존 레코드로 인덱스 새로 구성
+    public static HashIndex build(String dataFilename, FileStructure fs, FileStructure.Metadata meta, int fieldIndex) throws IOException {
+        HashIndex index = create(dataFilename, meta, fieldIndex);
+        int block = meta.firstRecordBlock;
+        int offset = meta.firstRecordOffset;
+        while (block != -1 && offset != -1) {
+            ByteBuffer rec = fs.readRecordBytes(dataFilename, meta, block, offset);
+            index.insert(rec.array(), 0, block, offset);
+            block = rec.getInt(0);
+            offset = rec.getInt(4);
+        }
+        return index;
+    }
+
+    public static void drop(String dataFilename, String fieldName) throws IOException {
+        BufferPool.getInstance().deleteFile(indexFileFor(dataFilename, fieldName));
+        BufferPool.getInstance().deleteFile(overflowFileFor(dataFilename, fieldName));
+    }
+
+    public void flush() throws IOException {
+        bufferPool.flush(bucketFilename);
+        bufferPool.flush(overflowFilename);
+    }
+
+    public int getFieldIndex() {
+        return fieldIndex;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    // 레코드 하나의 필드 값 추가 (record[from] 부터 레코드 바이트, null 값은 색인하지 않음)
+    public void insert(byte[] record, int from, int block, int offset) throws IOException {
+        if (FileStructure.isNull(record[from + 8], fieldIndex)) return;
+        long hash = hashOf(record, from + fieldStart);
+        addEntry(bucketOf(hash), hash, block, offset);
+        entryCount++;
+        if (entryCount > MAX_LOAD * PAGE_CAPACITY * bucketCount()) {
+            split();
+        }
+        writeIndexHeader();
+    }
+
+    // 레코드 하나의 엔트리 제거 (레코드 삭제 시), 없으면 false
+    // 페이지의 마지막 엔트리를 빈 자리로 옮김 (체인 중간 페이지에 생긴 자리는 다음 addEntry 가 채움)
+    public boolean remove(byte[] record, int from, int block, int offset) throws IOException {
+        if (FileStructure.isNull(record[from + 8], fieldIndex)) return false;
+        long hash = hashOf(record, from + fieldStart);
+        String file = bucketFilename;
+        int pageNo = bucketOf(hash) + 1;
+        while (pageNo != -1) {
+            ByteBuffer buffer = readPage(file, pageNo);
+            int count = buffer.getInt(0);
+            for (int i = 0; i < count; i++) {
+                int pos = PAGE_HEADER_SIZE + i * ENTRY_SIZE;
+                if (buffer.getLong(pos) == hash && buffer.getInt(pos + 8) == block && buffer.getInt(pos + 12) == offset) {
+                    int last = PAGE_HEADER_SIZE + (count - 1) * ENTRY_SIZE;
+                    System.arraycopy(page, last, page, pos, ENTRY_SIZE);
+                    buffer.putInt(0, count - 1);
+                    writePage(file, pageNo);
+                    entryCount--;
+                    writeIndexHeader();
+                    return true;
+                }
+            }
+            file = overflowFilename;
+            pageNo = buffer.getInt(4);
+        }
+        return false;
+    }
+
+    // 값이 value 일 수 있는 레코드 주소 (해시 충돌한 다른 값이 섞일 수 있으므로 호출한 쪽에서 확인)
+    public List<FileStructure.RecordAddress> lookup(String value) throws IOException {
+        byte[] key = FileStructure.encodeField(value.trim(), fieldLength);
+        long hash = hashOf(key, 0);
+        List<FileStructure.RecordAddress> result = new ArrayList<>();
+        String file = bucketFilename;
+        int pageNo = bucketOf(hash) + 1;
+        while (pageNo != -1) {
+            ByteBuffer buffer = readPage(file, pageNo);
+            int count = buffer.getInt(0);
+            for (int i = 0; i < count; i++) {
+                int pos = PAGE_HEADER_SIZE + i * ENTRY_SIZE;
+                if (buffer.getLong(pos) == hash) {
+                    result.add(new FileStructure.RecordAddress(buffer.getInt(pos + 8), buffer.getInt(pos + 12)));
+                }
+            }
+            file = overflowFilename;
+            pageNo = buffer.getInt(4);
+        }
+        return result;
+    }
+
+    private long hashOf(byte[] bytes, int from) {
+        return Murmur3.hash128(Arrays.copyOfRange(bytes, from, from + fieldLength))[0];
+    }
+
+    private int bucketCount() {
+        return (1 << level) + splitNext;
+    }
+
+    // 아직 분할되지 않은 버킷은 level 비트, 이번 라운드에 분할된 버킷은 level+1 비트로
+    private int bucketOf(long hash) {
+        int b = (int) (hash & ((1L << level) - 1));
+        if (b < splitNext) {
+            b = (int) (hash & ((1L << (level + 1)) - 1));
+        }
+        return b;
+    }
+
+    // 버킷 체인에서 자리가 있는 페이지에 추가 (없으면 overflow 페이지를 이어 붙임)
+    private void addEntry(int bucket, long hash, int block, int offset) throws IOException {
+        String file = bucketFilename;
+        int pageNo = bucket + 1;
+        while (true) {
+            ByteBuffer buffer = readPage(file, pageNo);
+            int count = buffer.getInt(0);
+            if (count < PAGE_CAPACITY) {
+                int pos = PAGE_HEADER_SIZE + count * ENTRY_SIZE;
+                buffer.putLong(pos, hash);
+                buffer.putInt(pos + 8, block);
+                buffer.putInt(pos + 12, offset);
+                buffer.putInt(0, count + 1);
+                writePage(file, pageNo);
+                return;
+            }
+            int next = buffer.getInt(4);
+            if (next == -1) {
+                next = allocateOverflow();
+                readPage(file, pageNo).putInt(4, next);
+                writePage(file, pageNo);
+            }
+            file = overflowFilename;
+            pageNo = next;
+        }
+    }
+
+    // splitNext 버킷의 엔트리를 한 비트 더 보고 splitNext, splitNext + 2^level 로 나눔
+    private void split() throws IOException {
+        int bucket = splitNext;
+        List<long[]> entries = new ArrayList<>();
+        int pageNo = bucket + 1;
+        String file = bucketFilename;
+        while (pageNo != -1) {
+            ByteBuffer buffer = readPage(file, pageNo);
+            int count = buffer.getInt(0);
+            for (int i = 0; i < count; i++) {
+                int pos = PAGE_HEADER_SIZE + i * ENTRY_SIZE;
+                entries.add(new long[] { buffer.getLong(pos), buffer.getInt(pos + 8), buffer.getInt(pos + 12) });
+            }
+            int next = buffer.getInt(4);
+            if (file.equals(overflowFilename)) {
+                freeOverflowPage(pageNo);
+            }
+            file = overflowFilename;
+            pageNo = next;
+        }
+
+        clearPage(bucketFilename, bucket + 1);
+        clearPage(bucketFilename, bucket + (1 << level) + 1);
+        splitNext++;
+        for (long[] e : entries) {
+            addEntry(bucketOf(e[0]), e[0], (int) e[1], (int) e[2]);
+        }
+        if (splitNext == (1 << level)) {
+            level++;
+            splitNext = 0;
+        }
+    }
+
+    private int allocateOverflow() throws IOException {
+        int pageNo;
+        if (freeOverflow != -1) {
+            pageNo = freeOverflow;
+            freeOverflow = readPage(overflowFilename, pageNo).getInt(4);
+        } else {
+            pageNo = overflowPages++;
+        }
+        clearPage(overflowFilename, pageNo);
+        return pageNo;
+    }
+
+    // 빈 overflow 페이지는 next 자리를 free list 링크로 사용
+    private void freeOverflowPage(int pageNo) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(page);
+        Arrays.fill(page, (byte) 0);
+        buffer.putInt(4, freeOverflow);
+        writePage(overflowFilename, pageNo);
+        freeOverflow = pageNo;
+    }
+
+    private void clearPage(String file, int pageNo) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(page);
+        Arrays.fill(page, (byte) 0);
+        buffer.putInt(4, -1);
+        writePage(file, pageNo);
+    }
+
+    private ByteBuffer readPage(String file, int pageNo) throws IOException {
+        bufferPool.read(file, (long) pageNo * BLOCK_SIZE, page, 0, BLOCK_SIZE);
+        return ByteBuffer.wrap(page);
+    }
+
+    private void writePage(String file, int pageNo) throws IOException {
+        bufferPool.write(file, (long) pageNo * BLOCK_SIZE, page, 0, BLOCK_SIZE);
+    }
+
+    private void writeIndexHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4 + 4 + 4 + 4 + 4 + 4 + 4 + 8);
+        header.putInt(HASH_MAGIC);
+        header.putInt(fieldIndex);
+        header.putInt(fieldLength);
+        header.putInt(level);
+        header.putInt(splitNext);
+        header.putInt(overflowPages);
+        header.putInt(freeOverflow);
+        header.putLong(entryCount);
+        bufferPool.write(bucketFilename, 0, header.array(), 0, header.capacity());
+    }
+}
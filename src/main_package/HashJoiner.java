@@ -0,0 +1,126 @@
+package main_package;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+// Grace 해시 조인: 작은 쪽으로 메모리 해시 테이블을 만들고 큰 쪽으로 탐색
+// 빌드 쪽이 메모리 한도를 넘으면 양쪽을 키 해시로 분할해 디스크에 내리고 분할마다 다시 조인
+public class HashJoiner {
+    static final int PARTITION_COUNT = 32;
+    // 한 키에 몰린 행은 다시 나눠도 줄지 않으므로 이 깊이 이후에는 그대로 메모리에서 조인
+    private static final int MAX_DEPTH = 3;
+
+    // 키가 같은 R 행, S 행 한 쌍
+    public interface MatchSink {
+        void accept(List<String> rRow, List<String> sRow) throws IOException;
+    }
+
+    private final long memoryBudget;
+    private int spilledPartitions = 0;
+
+    public HashJoiner(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    // 디스크로 내린 분할 수 (0 이면 메모리에서 끝남)
+    public int getSpilledPartitions() {
+        return spilledPartitions;
+    }
+
+    // buildIsR: build 가 R 쪽 입력인지 (결과는 항상 R, S 순서로 전달)
+    public void join(Iterator<List<String>> build, int buildKey,
+                     Iterator<List<String>> probe, int probeKey,
+                     boolean buildIsR, MatchSink sink) throws IOException {
+        try {
+            join(build, buildKey, probe, probeKey, buildIsR, sink, 0);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void join(Iterator<List<String>> build, int buildKey,
+                      Iterator<List<String>> probe, int probeKey,
+                      boolean buildIsR, MatchSink sink, int depth) throws IOException {
+        Map<String, List<List<String>>> table = new HashMap<>();
+        long used = 0;
+
+        while (build.hasNext()) {
+            List<String> row = build.next();
+            table.computeIfAbsent(row.get(buildKey), k -> new ArrayList<>(1)).add(row);
+            used += SpillableRowBuffer.estimateSize(row);
+            if (used > memoryBudget && depth < MAX_DEPTH) {
+                partitionAndJoin(table, build, buildKey, probe, probeKey, buildIsR, sink, depth);
+                return;
+            }
+        }
+
+        while (probe.hasNext()) {
+            List<String> row = probe.next();
+            List<List<String>> matches = table.get(row.get(probeKey));
+            if (matches == null) continue;
+            for (List<String> match : matches) {
+                if (buildIsR) {
+                    sink.accept(match, row);
+                } else {
+                    sink.accept(row, match);
+                }
+            }
+        }
+    }
+
+    // 이미 테이블에 올린 행과 나머지 입력을 분할 파일로 내보내고 분할마다 조인
+    private void partitionAndJoin(Map<String, List<List<String>>> table,
+                                  Iterator<List<String>> build, int buildKey,
+                                  Iterator<List<String>> probe, int probeKey,
+                                  boolean buildIsR, MatchSink sink, int depth) throws IOException {
+        SpillableRowBuffer[] buildParts = new SpillableRowBuffer[PARTITION_COUNT];
+        SpillableRowBuffer[] probeParts = new SpillableRowBuffer[PARTITION_COUNT];
+        try {
+            for (int i = 0; i < PARTITION_COUNT; i++) {
+                buildParts[i] = new SpillableRowBuffer(0);
+                probeParts[i] = new SpillableRowBuffer(0);
+            }
+            for (List<List<String>> rows : table.values()) {
+                for (List<String> row : rows) {
+                    buildParts[partitionOf(row.get(buildKey), depth)].add(row);
+                }
+            }
+            table.clear();
+            while (build.hasNext()) {
+                List<String> row = build.next();
+                buildParts[partitionOf(row.get(buildKey), depth)].add(row);
+            }
+            while (probe.hasNext()) {
+                List<String> row = probe.next();
+                probeParts[partitionOf(row.get(probeKey), depth)].add(row);
+            }
+            spilledPartitions += PARTITION_COUNT;
+
+            for (int i = 0; i < PARTITION_COUNT; i++) {
+                if (buildParts[i].size() == 0 || probeParts[i].size() == 0) continue;
+                // 분할 안에서는 더 작은 쪽을 빌드로
+                if (probeParts[i].size() < buildParts[i].size()) {
+                    join(probeParts[i].iterator(), probeKey, buildParts[i].iterator(), buildKey, !buildIsR, sink, depth + 1);
+                } else {
+                    join(buildParts[i].iterator(), buildKey, probeParts[i].iterator(), probeKey, buildIsR, sink, depth + 1);
+                }
+                buildParts[i].clear();
+                probeParts[i].clear();
+            }
+        } finally {
+            for (int i = 0; i < PARTITION_COUNT; i++) {
+                if (buildParts[i] != null) buildParts[i].close();
+                if (probeParts[i] != null) probeParts[i].close();
+            }
+        }
+    }
+
+    // 깊이마다 다른 해시로 분할 (같은 분할이 다시 한 곳으로 몰리지 않게)
+    static int partitionOf(String key, int depth) {
+        int h = key.hashCode() * 0x9E3779B9;
+        h ^= h >>> (16 - depth);
+        h *= 0x85EBCA6B + 2 * depth;
+        return (h >>> 1) % PARTITION_COUNT;
+    }
+}
@@ -1,30 +1,48 @@
 package main_package;
 
-import java.io.RandomAccessFile;
+import java.io.IOException;
 import java.sql.*;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class JoinProcessor {
-    private static final String URL  = "jdbc:mysql://localhost:3306/mydb";
-    private static final String USER = "root";
-    private static final String PASS = "1234";
-
     private final FileStructure fileStructure = new FileStructure();
 
-    // 머지 조인 알고리즘
-    private List<List<String>> performMergeJoinRows(Connection conn, String tableR, String tableS, String joinKey) throws SQLException {
-        List<List<String>> result = new ArrayList<>();
+    // 키 그룹 버퍼 메모리 한도 (넘치면 임시 파일로)
+    private static final long GROUP_BUFFER_BUDGET = 16L * 1024 * 1024;
+    // 중복 제거용 지문 테이블 메모리 한도
+    private static final long DEDUP_MEMORY_BUDGET = 64L * 1024 * 1024;
+    // 검증 시 결과 한쪽을 정렬하는 메모리 한도, 출력할 불일치 행 수
+    private static final long VALIDATE_SORT_BUDGET = 32L * 1024 * 1024;
+    private static final int MISMATCH_REPORT_LIMIT = 10;
+    // 스트리밍 결과를 한 번에 받아 오는 행 수
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    // 머지 조인 알고리즘: 조인된 행을 만드는 즉시 sink 로 전달
+    // 작은 쪽 테이블의 현재 키 그룹만 버퍼에 두고 큰 쪽은 한 행씩 흘려보냄
+    // 두 결과를 번갈아 읽으므로 양쪽 입력은 풀에서 연결을 따로 빌림 (드라이버에 따라 연결 하나에 읽는 중인 결과는 하나만)
+    // 동시에 도는 조인끼리 하나씩 쥐고 기다리지 않도록 두 연결은 한 번에 빌림
+    private void performMergeJoin(String tableR, String tableS, String joinKey, RowSink sink) throws SQLException, IOException {
+        List<Connection> conns = ConnectionPool.getInstance().getConnections(2);
+        try (
+            Connection connR = conns.get(0);
+            Connection connS = conns.get(1)
+        ) {
+            // 행 수는 스트리밍을 시작하기 전에 (스트리밍 중인 연결에는 다른 쿼리를 보낼 수 없음)
+            boolean bufferR = countRows(connR, tableR) < countRows(connS, tableS);
+            performMergeJoin(connR, connS, tableR, tableS, joinKey, bufferR, sink);
+        }
+    }
 
+    private void performMergeJoin(Connection connR, Connection connS, String tableR, String tableS, String joinKey,
+                                  boolean bufferR, RowSink sink) throws SQLException, IOException {
         try (
-            Statement stR = conn.createStatement(
-                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-            Statement stS = conn.createStatement(
-                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            Statement stR = streamingStatement(connR);
+            Statement stS = streamingStatement(connS);
             ResultSet rsR = stR.executeQuery(
                 "SELECT * FROM " + tableR + " ORDER BY " + joinKey);
             ResultSet rsS = stS.executeQuery(
-                "SELECT * FROM " + tableS + " ORDER BY " + joinKey)
+                "SELECT * FROM " + tableS + " ORDER BY " + joinKey);
+            SpillableRowBuffer group = new SpillableRowBuffer(GROUP_BUFFER_BUDGET)
         ) {
             ResultSetMetaData mR = rsR.getMetaData(), mS = rsS.getMetaData();
             int cR = mR.getColumnCount(), cS = mS.getColumnCount();
@@ -53,44 +71,66 @@ public class JoinProcessor {
                 } else if (cmp > 0) {
                     hasS = rsS.next();
                 } else {
-                    // 같은 키 그룹 버퍼링
-                    List<List<String>> bufR = new ArrayList<>();
-                    List<List<String>> bufS = new ArrayList<>();
                     String cur = keyR;
-                    do {
-                        bufR.add(readRow(rsR, cR));
-                        hasR = rsR.next();
-                    } while (hasR && cur.equals(rsR.getString(idxR)));
-                    do {
-                        bufS.add(readRow(rsS, cS));
-                        hasS = rsS.next();
-                    } while (hasS && cur.equals(rsS.getString(idxS)));
-
-                    // 조인
-                    for (List<String> r : bufR) {
-                        for (List<String> s : bufS) {
-                            List<String> merged = new ArrayList<>(r);
-                            for (int j = 0; j < s.size(); j++) {
-                            	merged.add(s.get(j));
-                            }
-                            result.add(merged);
-                        }
+                    group.clear();
+                    if (bufferR) {
+                        // R 쪽 키 그룹 버퍼링 후 S 행을 하나씩 조인
+                        do {
+                            group.add(readRow(rsR, cR));
+                            hasR = rsR.next();
+                        } while (hasR && cur.equals(rsR.getString(idxR)));
+                        do {
+                            List<String> s = readRow(rsS, cS);
+                            group.forEach(r -> sink.accept(concat(r, s)));
+                            hasS = rsS.next();
+                        } while (hasS && cur.equals(rsS.getString(idxS)));
+                    } else {
+                        // S 쪽 키 그룹 버퍼링 후 R 행을 하나씩 조인
+                        do {
+                            group.add(readRow(rsS, cS));
+                            hasS = rsS.next();
+                        } while (hasS && cur.equals(rsS.getString(idxS)));
+                        do {
+                            List<String> r = readRow(rsR, cR);
+                            group.forEach(s -> sink.accept(concat(r, s)));
+                            hasR = rsR.next();
+                        } while (hasR && cur.equals(rsR.getString(idxR)));
                     }
                 }
             }
         }
+    }
 
-        return result;
+    // 결과를 드라이버 메모리에 모두 받지 않고 STREAM_FETCH_SIZE 행씩 받는 문장
+    // (MySQL 은 접속 URL 의 useCursorFetch=true 로 서버 커서를 씀, 음수 fetch size 는 JDBC 규약상 다른 드라이버에서 SQLException)
+    private static Statement streamingStatement(Connection conn) throws SQLException {
+        Statement st = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        st.setFetchSize(STREAM_FETCH_SIZE);
+        return st;
+    }
+
+    private long countRows(Connection conn, String table) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // R 행 뒤에 S 행을 이어 붙인 결과 행
+    private static List<String> concat(List<String> r, List<String> s) {
+        List<String> merged = new ArrayList<>(r.size() + s.size());
+        merged.addAll(r);
+        merged.addAll(s);
+        return merged;
     }
 
     // 파일에 저장
     public void executeMergeJoin(String tableR, String tableS, String joinKey, String outTable) throws Exception {
         String datFile = outTable + ".dat";
-        Set<String> seenMerged = new HashSet<>();
 
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASS)) {
-            // 테이블 별 헤더 메타데이터 구성
-            List<FileStructure.FieldInfo> fields = new ArrayList<>();
+        // 테이블 별 헤더 메타데이터 구성 (조인은 연결을 따로 빌리므로 조회가 끝나면 반납)
+        List<FileStructure.FieldInfo> fields = new ArrayList<>();
+        try (Connection conn = ConnectionPool.getInstance().getConnection()) {
             Set<String> seen = new HashSet<>();
 
             // 테이블 1 메타데이터 조회
@@ -124,99 +164,118 @@ public class JoinProcessor {
                     }
                 }
             }
+        }
 
-            FileStructure.Metadata fsMeta = new FileStructure.Metadata(fields);
+        FileStructure.Metadata fsMeta = new FileStructure.Metadata(fields);
 
-            // 파일 헤더 기록
-            try (RandomAccessFile raf = new RandomAccessFile(datFile, "rw")) {
-                fileStructure.writeHeader(raf, fsMeta);
-            }
-            // 실제 머지 조인 결과 받아오기
-            List<List<String>> rows = performMergeJoinRows(conn, tableR, tableS, joinKey);
-
-            // 중복 없이 저장 및 출력
-            for (List<String> merged : rows) {
-                String keyStr = String.join("|", merged);
-                if (seenMerged.add(keyStr)) {
-                    System.out.println("Insert record: " + merged);
-                    fileStructure.insertRecord(
-                        datFile,
-                        fsMeta,
-                        new FileStructure.Record(merged, (byte)0)
-                    );
-                }
-            }
-
-            System.out.println("Merge join completed. Result saved to '" + datFile + "'.");
+        // 파일 헤더 기록
+        fileStructure.createDataFile(datFile, fsMeta);
+        // 머지 조인 결과를 중복 없이 바로 저장 및 출력
+        try (RowDeduplicator dedup = new RowDeduplicator(DEDUP_MEMORY_BUDGET, merged -> {
+            System.out.println("Insert record: " + merged);
+            fileStructure.insertRecord(
+                datFile,
+                fsMeta,
+                new FileStructure.Record(merged, (byte)0)
+            );
+        })) {
+            performMergeJoin(tableR, tableS, joinKey, dedup::add);
+            dedup.finish();
         }
+
+        fileStructure.flush(datFile);
+        System.out.println("Merge join completed. Result saved to '" + datFile + "'.");
     }
 
     // 내부 머지와 MySQL 머지 비교
+    // 양쪽 결과를 같은 기준으로 외부 정렬한 뒤 한 번에 병합하며 비교 (같은 행이 여러 번 나오면 개수까지 비교)
     public void validateWithSqlJoin(String sql, String tableR, String tableS, String joinKey) throws Exception {
-        List<List<String>> sqlRows = new ArrayList<>();
         try (
-            Connection conn = DriverManager.getConnection(URL, USER, PASS);
-            Statement st    = conn.createStatement();
-            ResultSet rs    = st.executeQuery(sql)
+            ExternalSorter sqlSorted   = new ExternalSorter(ROW_ORDER, VALIDATE_SORT_BUDGET);
+            ExternalSorter mergeSorted = new ExternalSorter(ROW_ORDER, VALIDATE_SORT_BUDGET)
         ) {
-            ResultSetMetaData md = rs.getMetaData();
-            int sqlCols = md.getColumnCount();
-            
-            List<Integer> useIdx = new ArrayList<>();
-            for (int i = 1; i <= sqlCols; i++) {
-            	useIdx.add(i);
-            }
-            
-            while (rs.next()) {
-                List<String> row = new ArrayList<>(useIdx.size());
-                for (int idx : useIdx) {
-                    String v = rs.getString(idx);
-                    row.add(v == null ? "" : v);
+            // SQL 결과도 한 행씩 받아 바로 정렬기로 (다 읽으면 연결을 반납한 뒤 내부 머지가 연결 두 개를 빌림)
+            try (
+                Connection conn = ConnectionPool.getInstance().getConnection();
+                Statement st = streamingStatement(conn);
+                ResultSet rs = st.executeQuery(sql)
+            ) {
+                int sqlCols = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    sqlSorted.add(new FileStructure.Record(readRow(rs, sqlCols), (byte)0));
                 }
-                sqlRows.add(row);
             }
 
             // 내부 머지 결과 획득
-            List<List<String>> mergeRows = performMergeJoinRows(conn, tableR, tableS, joinKey);
-            
+            performMergeJoin(tableR, tableS, joinKey,
+                row -> mergeSorted.add(new FileStructure.Record(row, (byte)0)));
+
             // 결과 비교
-            Set<String> sqlSet   = sqlRows.stream()
-                                          .map(r -> String.join("|", r))
-                                          .collect(Collectors.toSet());
-            Set<String> mergeSet = mergeRows.stream()
-                                            .map(r -> String.join("|", r))
-                                            .collect(Collectors.toSet());
-
-            Set<String> onlyInSql   = new HashSet<>(sqlSet);
-            onlyInSql.removeAll(mergeSet);
-            Set<String> onlyInMerge = new HashSet<>(mergeSet);
-            onlyInMerge.removeAll(sqlSet);
+            Iterator<FileStructure.Record> a = sqlSorted.iterator();
+            Iterator<FileStructure.Record> b = mergeSorted.iterator();
+            long sqlCount = 0, mergeCount = 0, onlyInSqlCount = 0, onlyInMergeCount = 0;
+            List<String> onlyInSql = new ArrayList<>();
+            List<String> onlyInMerge = new ArrayList<>();
+
+            FileStructure.Record x = a.hasNext() ? a.next() : null;
+            FileStructure.Record y = b.hasNext() ? b.next() : null;
+            while (x != null || y != null) {
+                int cmp = x == null ? 1 : y == null ? -1 : ROW_ORDER.compare(x, y);
+                FileStructure.Record cur = cmp <= 0 ? x : y;
+
+                // 같은 행이 양쪽에 각각 몇 번 나오는지
+                long inSql = 0, inMerge = 0;
+                while (x != null && ROW_ORDER.compare(x, cur) == 0) {
+                    inSql++;
+                    x = a.hasNext() ? a.next() : null;
+                }
+                while (y != null && ROW_ORDER.compare(y, cur) == 0) {
+                    inMerge++;
+                    y = b.hasNext() ? b.next() : null;
+                }
+                sqlCount += inSql;
+                mergeCount += inMerge;
+
+                if (inSql > inMerge) {
+                    onlyInSqlCount += inSql - inMerge;
+                    if (onlyInSql.size() < MISMATCH_REPORT_LIMIT) {
+                        onlyInSql.add(describe(cur, inSql - inMerge));
+                    }
+                } else if (inMerge > inSql) {
+                    onlyInMergeCount += inMerge - inSql;
+                    if (onlyInMerge.size() < MISMATCH_REPORT_LIMIT) {
+                        onlyInMerge.add(describe(cur, inMerge - inSql));
+                    }
+                }
+            }
 
             // 결과 출력
-            System.out.println("SQL JOIN row count:   " + sqlSet.size());
-            System.out.println("Merge-Join row count: " + mergeSet.size());
-            System.out.println("Only in SQL (" + onlyInSql.size() + "):");
-            onlyInSql.stream().limit(10).forEach(r -> System.out.println("   " + r));
-            System.out.println("Only in Merge (" + onlyInMerge.size() + "):");
-            onlyInMerge.stream().limit(10).forEach(r -> System.out.println("   " + r));
-            
-System.out.println("=== SQL JOIN 결과 ===");
-Set<String> seen = new HashSet<>();
-for (List<String> row : sqlRows) {
-    String key = String.join("|", row);
-    if (seen.add(key)) {
-        System.out.println(String.join(" | ", row));
-    }
-}
-System.out.println("=== 내부 머지-조인 결과 ===");
-seen.clear();
-for (List<String> row : mergeRows) {
-    String key = String.join("|", row);
-    if (seen.add(key)) {
-        System.out.println(String.join(" | ", row));
+            System.out.println("SQL JOIN row count:   " + sqlCount);
+            System.out.println("Merge-Join row count: " + mergeCount);
+            System.out.println("Only in SQL (" + onlyInSqlCount + "):");
+            onlyInSql.forEach(r -> System.out.println("   " + r));
+            System.out.println("Only in Merge (" + onlyInMergeCount + "):");
+            onlyInMerge.forEach(r -> System.out.println("   " + r));
+            System.out.println(onlyInSqlCount == 0 && onlyInMergeCount == 0
+                ? "Results match."
+                : "Results differ (showing at most " + MISMATCH_REPORT_LIMIT + " rows per side).");
+        }
     }
-}
+
+    // 값 순서대로 비교, 앞이 같으면 컬럼 수가 적은 쪽이 먼저
+    private static final Comparator<FileStructure.Record> ROW_ORDER = (a, b) -> {
+        List<String> x = a.fieldValues, y = b.fieldValues;
+        int n = Math.min(x.size(), y.size());
+        for (int i = 0; i < n; i++) {
+            int cmp = x.get(i).compareTo(y.get(i));
+            if (cmp != 0) return cmp;
         }
+        return Integer.compare(x.size(), y.size());
+    };
+
+    private static String describe(FileStructure.Record row, long times) {
+        String text = String.join(" | ", row.fieldValues);
+        return times > 1 ? text + "  (x" + times + ")" : text;
     }
 
     // ResultSet 현재 행에서 모든 컬럼 값을 읽어 List<String> 반환
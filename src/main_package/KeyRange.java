@@ -0,0 +1,50 @@
+package main_package;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// 탐색키 범위 [minKey, maxKey]
+// 경계값을 레코드에 저장된 형식(UTF-8, 공백으로 채운 고정 길이)으로 한 번만 바꿔 두고 키 바이트와 그대로 비교
+// (레코드마다 String 으로 디코딩하지 않음, 인덱스 순서와 같은 비교)
+final class KeyRange {
+    final byte[] low;
+    final byte[] high;
+    private final int keyLength;
+    // 경계값이 키 길이보다 길면 잘린 접두사와 같은 키는 minKey 보다 작음
+    private final boolean lowTruncated;
+
+    KeyRange(String minKey, String maxKey, int keyLength) {
+        this.keyLength = keyLength;
+        this.low = FileStructure.encodeField(minKey.trim(), keyLength);
+        this.high = FileStructure.encodeField(maxKey.trim(), keyLength);
+        this.lowTruncated = minKey.trim().getBytes(StandardCharsets.UTF_8).length > keyLength;
+    }
+
+    // key[from, from + keyLength) 가 범위 안인지
+    boolean contains(byte[] key, int from) {
+        int cmpLow = Arrays.compareUnsigned(key, from, from + keyLength, low, 0, keyLength);
+        if (cmpLow < 0 || (cmpLow == 0 && lowTruncated)) return false;
+        return Arrays.compareUnsigned(key, from, from + keyLength, high, 0, keyLength) <= 0;
+    }
+
+    // 직접 버퍼(메모리 매핑)용: 절대 위치로 한 바이트씩 비교
+    boolean contains(ByteBuffer buffer, int from) {
+        int cmpLow = compare(buffer, from, low);
+        if (cmpLow < 0 || (cmpLow == 0 && lowTruncated)) return false;
+        return compare(buffer, from, high) <= 0;
+    }
+
+    // 키가 maxKey 보다 큰지 (정렬된 순회를 멈출 때)
+    boolean aboveHigh(byte[] key) {
+        return Arrays.compareUnsigned(key, high) > 0;
+    }
+
+    private int compare(ByteBuffer buffer, int from, byte[] bound) {
+        for (int i = 0; i < keyLength; i++) {
+            int cmp = Integer.compare(buffer.get(from + i) & 0xff, bound[i] & 0xff);
+            if (cmp != 0) return cmp;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,149 @@
+package main_package;
+
+import java.io.IOException;
+
+// LZ4 블록 형식 압축/해제 (프레임 헤더, 체크섬 없음)
+// 시퀀스: [토큰: 리터럴 길이 4비트 | 일치 길이-4 4비트][리터럴 길이 추가 바이트...][리터럴][오프셋 2바이트 LE][일치 길이 추가 바이트...]
+// 마지막 시퀀스는 리터럴만, 마지막 5바이트는 항상 리터럴 (해제할 때 경계 검사를 줄이기 위한 규칙)
+final class Lz4Codec {
+    private static final int MIN_MATCH = 4;
+    private static final int HASH_LOG = 12;
+    private static final int LAST_LITERALS = 5;
+    // 이보다 끝에 가까운 곳에서는 일치를 찾지 않음
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_OFFSET = 0xFFFF;
+
+    private Lz4Codec() {
+    }
+
+    // 압축 결과의 최대 길이 (압축되지 않는 입력)
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    static byte[] compress(byte[] src, int off, int len) {
+        byte[] dst = new byte[maxCompressedLength(len)];
+        int op = 0;
+        int end = off + len;
+        int anchor = off;
+
+        if (len > MF_LIMIT) {
+            int[] table = new int[1 << HASH_LOG];
+            java.util.Arrays.fill(table, -1);
+            int matchLimit = end - LAST_LITERALS;
+            int searchEnd = end - MF_LIMIT;
+            int ip = off;
+            while (ip < searchEnd) {
+                int sequence = readInt(src, ip);
+                int h = hash(sequence);
+                int ref = table[h];
+                table[h] = ip;
+                if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    ip++;
+                    continue;
+                }
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit && src[ref + matchLength] == src[ip + matchLength]) {
+                    matchLength++;
+                }
+                op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dst, op);
+                ip += matchLength;
+                anchor = ip;
+            }
+        }
+
+        // 남은 리터럴
+        int literals = end - anchor;
+        int token = Math.min(literals, 15) << 4;
+        dst[op++] = (byte) token;
+        op = writeLength(literals, dst, op);
+        System.arraycopy(src, anchor, dst, op, literals);
+        op += literals;
+        return java.util.Arrays.copyOf(dst, op);
+    }
+
+    // src[off, off + len) 를 풀어 dst[dstOff, dstOff + dstLen) 을 정확히 채움 (길이가 다르거나 범위를 벗어나면 손상)
+    static void decompress(byte[] src, int off, int len, byte[] dst, int dstOff, int dstLen) throws IOException {
+        int ip = off;
+        int end = off + len;
+        int op = dstOff;
+        int dstEnd = dstOff + dstLen;
+        while (true) {
+            if (ip >= end) throw corrupt();
+            int token = src[ip++] & 0xFF;
+
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int b;
+                do {
+                    if (ip >= end) throw corrupt();
+                    b = src[ip++] & 0xFF;
+                    literals += b;
+                } while (b == 255);
+            }
+            if (ip + literals > end || op + literals > dstEnd) throw corrupt();
+            System.arraycopy(src, ip, dst, op, literals);
+            ip += literals;
+            op += literals;
+            if (ip == end) break;
+
+            if (ip + 2 > end) throw corrupt();
+            int offset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+            ip += 2;
+            int matchLength = token & 0x0F;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    if (ip >= end) throw corrupt();
+                    b = src[ip++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            int match = op - offset;
+            if (offset == 0 || match < dstOff || op + matchLength > dstEnd) throw corrupt();
+            // 겹치는 복사 (offset 이 일치 길이보다 짧으면 반복 패턴)
+            for (int i = 0; i < matchLength; i++) {
+                dst[op + i] = dst[match + i];
+            }
+            op += matchLength;
+        }
+        if (op != dstEnd) throw corrupt();
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literals, int offset, int matchLength,
+                                     byte[] dst, int op) {
+        int extra = matchLength - MIN_MATCH;
+        dst[op++] = (byte) ((Math.min(literals, 15) << 4) | Math.min(extra, 15));
+        op = writeLength(literals, dst, op);
+        System.arraycopy(src, literalStart, dst, op, literals);
+        op += literals;
+        dst[op++] = (byte) offset;
+        dst[op++] = (byte) (offset >>> 8);
+        return writeLength(extra, dst, op);
+    }
+
+    // 4비트에 다 못 담은 길이 (15 이상이면 255 단위로 이어서)
+    private static int writeLength(int length, byte[] dst, int op) {
+        if (length < 15) return op;
+        int rest = length - 15;
+        while (rest >= 255) {
+            dst[op++] = (byte) 255;
+            rest -= 255;
+        }
+        dst[op++] = (byte) rest;
+        return op;
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static IOException corrupt() {
+        return new IOException("Corrupt compressed block");
+    }
+}
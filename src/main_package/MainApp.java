@@ -11,6 +11,9 @@ public class MainApp {
         FieldSearcher fieldSearcher = new FieldSearcher();
         RecordSearcher recordSearcher = new RecordSearcher();
         MetadataManager metadataManager = new MetadataManager();
+        boolean mappedScan = false;
+        DatabaseService service = null;
+        RecordDeleter deleter = new RecordDeleter();
 
         while (true) {
             System.out.println("\n==== Database System ====");
@@ -22,6 +25,14 @@ public class MainApp {
             System.out.println("6. Exit");
             System.out.println("7. SQL Merge Process");
             System.out.println("8. Validate SQL JOIN vs Merge-Join");
+            System.out.println("9. Toggle scan mode (current: " + (mappedScan ? "memory-mapped" : "buffer pool") + ")");
+            System.out.println("10. Look up search-key");
+            System.out.println("11. Create field index");
+            System.out.println("12. Drop field index");
+            System.out.println("13. Search records by field value");
+            System.out.println("14. Start request service (localhost)" + (service != null ? " [running]" : ""));
+            System.out.println("15. Delete record by search-key");
+            System.out.println("16. Delete records by field range");
             System.out.print("Selection: ");
             String choice = scanner.nextLine();
 
@@ -46,9 +57,17 @@ public class MainApp {
                 case "3":
                     System.out.print("File name: ");
                     String fNameField = scanner.nextLine();
-                    System.out.print("Search field name: ");
+                    System.out.print("Search field name (comma-separated for several): ");
                     String field = scanner.nextLine();
-                    fieldSearcher.searchField(fNameField, field);
+                    System.out.print("Minimum value of the first field (blank for all): ");
+                    String minValue = scanner.nextLine();
+                    if (minValue.trim().isEmpty()) {
+                        fieldSearcher.searchFields(fNameField, field.split(","));
+                    } else {
+                        System.out.print("Maximum value of the first field: ");
+                        String maxValue = scanner.nextLine();
+                        fieldSearcher.searchFieldsInRange(fNameField, minValue, maxValue, field.split(","));
+                    }
                     break;
 
                 case "4":
@@ -79,6 +98,16 @@ public class MainApp {
                     break;
 
                 case "6":
+                    try {
+                        if (service != null) {
+                            service.close();
+                        }
+                        WriteAheadLog.checkpointAll();
+                        BufferPool.getInstance().closeAll();
+                        ConnectionPool.closeInstance();
+                    } catch (IOException e) {
+                        System.out.println("Failed to flush buffered pages: " + e.getMessage());
+                    }
                     System.out.println("Program exited.");
                     scanner.close();
                     return;
@@ -93,11 +122,30 @@ public class MainApp {
                     System.out.print("Enter output file name (without .dat): ");
                     String outName = scanner.nextLine().trim();
 
-                    JoinProcessor jp = new JoinProcessor();
+                    System.out.print("Join source (1: MySQL tables, 2: .dat files): ");
+                    String joinSource = scanner.nextLine().trim();
+
                     try {
-                        jp.executeMergeJoin(tableR, tableS, joinKey, outName);
+                        if (joinSource.equals("2")) {
+                            System.out.print("Join algorithm (1: merge, 2: hash, 3: parallel hash): ");
+                            String algorithm = scanner.nextLine().trim();
+                            FileJoinProcessor fjp = new FileJoinProcessor();
+                            if (algorithm.equals("2")) {
+                                fjp.executeHashJoin(tableR, tableS, joinKey, outName);
+                            } else if (algorithm.equals("3")) {
+                                int cores = Runtime.getRuntime().availableProcessors();
+                                System.out.print("Thread count (default " + cores + "): ");
+                                String threadInput = scanner.nextLine().trim();
+                                int threads = threadInput.isEmpty() ? cores : Integer.parseInt(threadInput);
+                                fjp.executeParallelJoin(tableR, tableS, joinKey, outName, threads);
+                            } else {
+                                fjp.executeMergeJoin(tableR, tableS, joinKey, outName);
+                            }
+                        } else {
+                            new JoinProcessor().executeMergeJoin(tableR, tableS, joinKey, outName);
+                        }
                     } catch (Exception e) {
-                        System.out.println("Failed to run merge join: " + e.getMessage());
+                        System.out.println("Failed to run join: " + e.getMessage());
                     }
                     break;
                     
@@ -120,6 +168,129 @@ public class MainApp {
                 	}
                 	break;
 
+                case "9":
+                    mappedScan = !mappedScan;
+                    fieldSearcher.setMappedScan(mappedScan);
+                    recordSearcher.setMappedScan(mappedScan);
+                    System.out.println("Scan mode: " + (mappedScan ? "memory-mapped" : "buffer pool"));
+                    break;
+
+                case "10":
+                    System.out.print("File name: ");
+                    String fNameLookup = scanner.nextLine().trim();
+                    System.out.print("Search-key: ");
+                    String lookupKey = scanner.nextLine();
+                    try {
+                        List<FileStructure.Record> found = recordSearcher.lookup(fNameLookup, lookupKey);
+                        if (found.isEmpty()) {
+                            System.out.println("No record with search-key '" + lookupKey.trim() + "'.");
+                        }
+                        for (FileStructure.Record rec : found) {
+                            System.out.println(rec.fieldValues);
+                        }
+                    } catch (IOException e) {
+                        System.out.println("Lookup failed: " + e.getMessage());
+                    }
+                    break;
+
+                case "11":
+                    System.out.print("File name: ");
+                    String fNameIndex = scanner.nextLine().trim();
+                    System.out.print("Field name to index: ");
+                    fieldSearcher.createIndex(fNameIndex, scanner.nextLine());
+                    break;
+
+                case "12":
+                    System.out.print("File name: ");
+                    String fNameDrop = scanner.nextLine().trim();
+                    System.out.print("Field name: ");
+                    fieldSearcher.dropIndex(fNameDrop, scanner.nextLine());
+                    break;
+
+                case "13":
+                    System.out.print("File name: ");
+                    String fNameValue = scanner.nextLine().trim();
+                    System.out.print("Field name: ");
+                    String valueField = scanner.nextLine();
+                    System.out.print("Value: ");
+                    String fieldValue = scanner.nextLine();
+                    try {
+                        List<FileStructure.Record> matched = fieldSearcher.lookup(fNameValue, valueField, fieldValue);
+                        if (matched.isEmpty()) {
+                            System.out.println("No record with " + valueField.trim() + " = '" + fieldValue.trim() + "'.");
+                        }
+                        for (FileStructure.Record rec : matched) {
+                            System.out.println(rec.fieldValues);
+                        }
+                    } catch (IOException e) {
+                        System.out.println("Lookup failed: " + e.getMessage());
+                    }
+                    break;
+
+                case "14":
+                    if (service != null) {
+                        System.out.println("Request service is already running.");
+                        break;
+                    }
+                    try {
+                        System.out.print("Port (0 for any free port): ");
+                        int port = Integer.parseInt(scanner.nextLine().trim());
+                        System.out.print("Max concurrent requests (default " + DatabaseService.DEFAULT_MAX_IN_FLIGHT + "): ");
+                        String maxLine = scanner.nextLine().trim();
+                        int maxInFlight = maxLine.isEmpty() ? DatabaseService.DEFAULT_MAX_IN_FLIGHT : Integer.parseInt(maxLine);
+                        System.out.print("Request timeout ms (default " + DatabaseService.DEFAULT_TIMEOUT_MILLIS + "): ");
+                        String timeoutLine = scanner.nextLine().trim();
+                        long timeout = timeoutLine.isEmpty() ? DatabaseService.DEFAULT_TIMEOUT_MILLIS : Long.parseLong(timeoutLine);
+                        DatabaseService started = new DatabaseService(maxInFlight, timeout);
+                        int bound;
+                        try {
+                            bound = started.startServer(port);
+                        } catch (IOException e) {
+                            started.close();
+                            throw e;
+                        }
+                        service = started;
+                        System.out.println("Request service listening on 127.0.0.1:" + bound
+                            + " (SEARCH, LOOKUP, FIND, FIELDS, INSERT, DELETE, JOIN, STATS, QUIT).");
+                    } catch (NumberFormatException e) {
+                        System.out.println("Invalid number: " + e.getMessage());
+                    } catch (IllegalArgumentException | IOException e) {
+                        System.out.println("Failed to start request service: " + e.getMessage());
+                    }
+                    break;
+
+                case "15":
+                    System.out.print("File name: ");
+                    String fNameDelete = scanner.nextLine().trim();
+                    System.out.print("Search-key: ");
+                    String deleteKey = scanner.nextLine();
+                    try {
+                        long removed = deleter.deleteByKey(fNameDelete, deleteKey);
+                        System.out.println(removed == 0
+                            ? "No record with search-key '" + deleteKey.trim() + "'."
+                            : removed + " record(s) deleted.");
+                    } catch (IOException e) {
+                        System.out.println("Delete failed: " + e.getMessage());
+                    }
+                    break;
+
+                case "16":
+                    System.out.print("File name: ");
+                    String fNameDeleteRange = scanner.nextLine().trim();
+                    System.out.print("Field name: ");
+                    String rangeField = scanner.nextLine();
+                    System.out.print("Min value: ");
+                    String rangeMin = scanner.nextLine();
+                    System.out.print("Max value: ");
+                    String rangeMax = scanner.nextLine();
+                    try {
+                        long removed = deleter.deleteByFieldRange(fNameDeleteRange, rangeField, rangeMin, rangeMax);
+                        System.out.println(removed + " record(s) deleted.");
+                    } catch (IOException e) {
+                        System.out.println("Delete failed: " + e.getMessage());
+                    }
+                    break;
+
                 default:
                     System.out.println("Wrong input.");
                     break;
@@ -138,7 +309,7 @@ public class MainApp {
             line = line.trim();
             String[] parts = line.split(";");
             if (parts.length < 3) {
-                System.out.println("Not enough fields in config. Format must be: fileName;fieldCount;fieldName...;fieldLength...");
+                System.out.println("Not enough fields in config. Format must be: fileName;fieldCount;fieldName...;fieldLength...[;fixed|slotted|compressed][;4k|8k|16k|64k]");
                 return false;
             }
 
@@ -146,7 +317,28 @@ public class MainApp {
             int fieldCount = Integer.parseInt(parts[1].trim());
 
             int totalNeeded = 2 + fieldCount + fieldCount;  // "파일명,필드개수" + "필드Count" + "길이Count"
-            if (parts.length != totalNeeded) {
+            // 마지막에 블록 형식과 블록 크기를 붙일 수 있음, 순서 무관
+            // (fixed: 고정 길이, slotted: 가변 길이, compressed: 압축 블록, 생략하면 fixed / 4k, 8k, 16k, 64k 또는 바이트 수, 생략하면 4k)
+            int format = FileStructure.FORMAT_FIXED;
+            int blockSize = FileStructure.DEFAULT_BLOCK_SIZE;
+            if (parts.length > totalNeeded && parts.length <= totalNeeded + 2) {
+                for (int i = totalNeeded; i < parts.length; i++) {
+                    String option = parts[i].trim();
+                    if (option.equalsIgnoreCase("slotted")) {
+                        format = FileStructure.FORMAT_SLOTTED;
+                    } else if (option.equalsIgnoreCase("compressed")) {
+                        format = FileStructure.FORMAT_COMPRESSED;
+                    } else if (option.equalsIgnoreCase("fixed")) {
+                        format = FileStructure.FORMAT_FIXED;
+                    } else if (option.matches("\\d+[kK]?")) {
+                        boolean kib = option.endsWith("k") || option.endsWith("K");
+                        blockSize = Integer.parseInt(kib ? option.substring(0, option.length() - 1) : option) * (kib ? 1024 : 1);
+                    } else {
+                        System.out.println("Unknown page option '" + option + "'. Use fixed, slotted, compressed or a block size (4k, 8k, 16k, 64k).");
+                        return false;
+                    }
+                }
+            } else if (parts.length != totalNeeded) {
                 System.out.println("Mismatched field count vs actual input. Needed " + totalNeeded + " parts, got " + parts.length);
                 return false;
             }
@@ -168,9 +360,14 @@ public class MainApp {
             }
 
             String dataFile = fileName + ".dat";
-            try (RandomAccessFile raf = new RandomAccessFile(dataFile, "rw")) {
-                fileStructure.writeHeader(raf, new FileStructure.Metadata(fields));
-                System.out.println("File '" + dataFile + "' created with user-defined fields from " + configPath);
+            try {
+                FileStructure.Metadata meta = new FileStructure.Metadata(fields);
+                meta.format = format;
+                meta.blockSize = blockSize;
+                fileStructure.createDataFile(dataFile, meta);
+                fileStructure.flush(dataFile);
+                System.out.println("File '" + dataFile + "' created with user-defined fields from " + configPath
+                    + " (" + meta.blockSize / 1024 + " KiB " + (meta.isSlotted() ? "slotted" : meta.isCompressed() ? "compressed" : "fixed") + " pages)");
                 metadataManager.loadMetadataFromFile(fileName);
             } catch (Exception e) {
                 System.out.println("Error creating file: " + e.getMessage());
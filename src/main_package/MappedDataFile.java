@@ -0,0 +1,127 @@
+package main_package;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// .dat 파일을 읽기 전용으로 메모리 매핑 (전체 스캔 시 레코드마다 seek/read 호출 없이 직접 해석)
+public class MappedDataFile implements AutoCloseable {
+    // MappedByteBuffer 하나는 2GB 미만이라 1GB 단위로 나눠 매핑 (모든 블록 크기의 배수)
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long mappedLength;
+    // 열 때의 헤더 (이후 다른 스레드가 추가한 레코드는 보지 않음)
+    private final byte[] header = new byte[FileStructure.HEADER_AREA_SIZE];
+    // 블록 크기, 블록 형식과 필드 길이 (레코드 위치를 계산하고 펼칠 때)
+    private FileStructure.Metadata layout;
+    // 마지막에 푼 압축 블록 (스캔은 같은 블록의 레코드를 차례로 읽음)
+    private int decodedBlock = -1;
+    private List<byte[]> decoded;
+
+    public MappedDataFile(String filename) throws IOException {
+        // 남은 로그를 재실행하고 버퍼 풀에만 있는 이 파일의 변경 내용을 먼저 파일에 기록 (매핑은 페이지 캐시를 보므로 fsync 는 하지 않음)
+        // (쓰는 쪽이 묶음을 반영하는 도중이 아닐 때 기록하고 그 시점 헤더를 보관)
+        if (BufferPool.getInstance().exists(filename)) {
+            new FileStructure().recover(filename);
+            FileLatch.of(filename).read(() -> {
+                BufferPool.getInstance().writeBack(filename);
+                BufferPool.getInstance().read(filename, 0, header, 0, header.length);
+                return null;
+            });
+        }
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        remap();
+    }
+
+    // 파일이 커졌으면 늘어난 부분 매핑 (마지막 부분 세그먼트는 다시 매핑)
+    private void remap() throws IOException {
+        long size = channel.size();
+        int last = segments.size() - 1;
+        if (last >= 0 && segments.get(last).capacity() < SEGMENT_SIZE) {
+            segments.remove(last);
+        }
+        long position = segments.size() * SEGMENT_SIZE;
+        while (position < size) {
+            long length = Math.min(SEGMENT_SIZE, size - position);
+            segments.add(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            position += length;
+        }
+        mappedLength = size;
+    }
+
+    // position 부터 length 바이트를 읽을 수 있는 버퍼 (반환된 버퍼의 현재 위치가 시작점)
+    public ByteBuffer at(long position, int length) throws IOException {
+        if (position + length > mappedLength) {
+            remap();
+            if (position + length > mappedLength) {
+                throw new EOFException("Position " + position + " is beyond end of mapped file");
+            }
+        }
+
+        int segment = (int) (position / SEGMENT_SIZE);
+        int inSegment = (int) (position % SEGMENT_SIZE);
+        MappedByteBuffer buffer = segments.get(segment);
+        if (inSegment + length <= buffer.capacity()) {
+            buffer.position(inSegment);
+            return buffer;
+        }
+
+        // 세그먼트 경계에 걸친 경우만 복사
+        ByteBuffer copy = ByteBuffer.allocate(length);
+        while (copy.hasRemaining()) {
+            MappedByteBuffer src = segments.get(segment++);
+            int n = Math.min(copy.remaining(), src.capacity() - inSegment);
+            copy.put(src.slice(inSegment, n));
+            inSegment = 0;
+        }
+        copy.flip();
+        return copy;
+    }
+
+    public FileStructure.Metadata readHeader() throws IOException {
+        FileStructure.Metadata meta = FileStructure.decodeHeader(ByteBuffer.wrap(header));
+        if (meta.dataEnd == -1) {
+            meta.dataEnd = Math.max(meta.blockSize, mappedLength);
+        }
+        return meta;
+    }
+
+    // 레코드 시작 위치의 버퍼 (슬롯/압축 형식은 고정 길이 형식으로 펼친 사본)
+    public ByteBuffer record(int recordSize, int block, int offset) throws IOException {
+        if (layout == null) {
+            layout = readHeader();
+        }
+        if (layout.isFixed()) {
+            return at((long) block * layout.blockSize + offset, recordSize);
+        }
+        long base = (long) block * layout.blockSize;
+        if (layout.isCompressed()) {
+            if (block != decodedBlock) {
+                ByteBuffer head = at(base, CompressedPage.PAGE_HEADER_SIZE);
+                int length = CompressedPage.encodedLength(head, head.position());
+                ByteBuffer page = at(base, length);
+                decoded = CompressedPage.decode(layout, recordSize, page, page.position());
+                decodedBlock = block;
+            }
+            return ByteBuffer.wrap(decoded.get(offset));
+        }
+        ByteBuffer slot = at(base + SlottedPage.slotPosition(offset), SlottedPage.SLOT_SIZE);
+        int position = Short.toUnsignedInt(slot.getShort(slot.position()));
+        int length = Short.toUnsignedInt(slot.getShort(slot.position() + 2));
+        ByteBuffer stored = at(base + position, length);
+        return ByteBuffer.wrap(SlottedPage.expand(layout, recordSize, stored, stored.position()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
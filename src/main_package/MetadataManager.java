@@ -1,47 +1,26 @@
 package main_package;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 
 public class MetadataManager {
-    private static final int BLOCK_SIZE = 1024;
-    private static final int FIELD_NAME_SIZE = 16;
+    private final FileStructure fileStructure = new FileStructure();
 
     // 필드 리스트
     private List<FileStructure.FieldInfo> fieldsInMemory = new ArrayList<>();
 
     public void loadMetadataFromFile(String fileName) {
         String dataFile = fileName + ".dat";
-        try (RandomAccessFile raf = new RandomAccessFile(dataFile, "r")) {
-            ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
-            raf.seek(0);
-            raf.readFully(buffer.array());
-            buffer.rewind();
+        try {
+            FileStructure.Metadata meta = fileStructure.readHeader(dataFile);
 
-            int firstRecordBlock = buffer.getInt();		// 첫 레코드 블록 번호
-            int firstRecordOffset = buffer.getInt();	// 첫 레코드 오프셋
-            int fieldCount = buffer.getInt(); 			// 필드 개수
-
-            List<FileStructure.FieldInfo> tempFields = new ArrayList<>();
-            for (int i = 0; i < fieldCount; i++) {
-                byte[] fixedName = new byte[FIELD_NAME_SIZE];
-                buffer.get(fixedName);
-                String name = new String(fixedName, StandardCharsets.UTF_8).trim();
-                int length = buffer.getInt();
-                tempFields.add(new FileStructure.FieldInfo(name, length));
-            }
-
-            fieldsInMemory = tempFields; // 메모리 구조에 저장
+            fieldsInMemory = meta.fields; // 메모리 구조에 저장
             System.out.println("Metadata is loaded to memory from File " + fileName + ".dat");
-            System.out.println("Field numbers: " + fieldCount);
+            System.out.println("Field numbers: " + meta.fieldCount);
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -56,23 +35,24 @@ public class MetadataManager {
     // 파일 헤더에 저장
     public void saveMetadataToFile(String fileName, int firstRecordBlock, int firstRecordOffset) {
         String dataFile = fileName + ".dat";
-        try (RandomAccessFile raf = new RandomAccessFile(dataFile, "rw")) {
-            ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
-
-            buffer.putInt(firstRecordBlock);
-            buffer.putInt(firstRecordOffset);
-            buffer.putInt(fieldsInMemory.size());
-
-            for (FileStructure.FieldInfo field : fieldsInMemory) {
-                byte[] nameBytes = field.name.getBytes(StandardCharsets.UTF_8);
-                byte[] fixedName = new byte[FIELD_NAME_SIZE];
-                System.arraycopy(nameBytes, 0, fixedName, 0, Math.min(nameBytes.length, FIELD_NAME_SIZE));
-                buffer.put(fixedName);
-                buffer.putInt(field.length);
+        try {
+            FileStructure.Metadata meta = new FileStructure.Metadata(fieldsInMemory);
+            meta.firstRecordBlock = firstRecordBlock;
+            meta.firstRecordOffset = firstRecordOffset;
+            meta.lastRecordBlock = -1; // tail 은 다음 삽입 때 체인에서 복구
+
+            // 기존 레코드를 덮어쓰지 않도록 다음 삽입은 마지막 블록 이후부터 (블록 형식과 크기는 기존 헤더 그대로)
+            BufferPool bufferPool = BufferPool.getInstance();
+            if (bufferPool.exists(dataFile)) {
+                FileStructure.Metadata existing = fileStructure.readHeader(dataFile);
+                meta.format = existing.format;
+                meta.blockSize = existing.blockSize;
             }
+            bufferPool.setBlockSize(dataFile, meta.blockSize);
+            bufferPool.openFile(dataFile, true);
+            meta.dataEnd = Math.max(meta.blockSize, bufferPool.blockCount(dataFile) * (long) meta.blockSize);
 
-            raf.seek(0);
-            raf.write(buffer.array());
+            fileStructure.writeHeader(dataFile, meta);
             System.out.println("File " + fileName + ".dat's header information has been updated.");
 
         } catch (IOException e) {
@@ -81,11 +61,7 @@ public class MetadataManager {
     }
     
     public void createTableInMySQL(String tableName, FileStructure.Metadata meta) {
-        String url = "jdbc:mysql://localhost:3306/mydb";
-        String user = "root";
-        String pass = "1234";
-
-        try (Connection conn = DriverManager.getConnection(url, user, pass);
+        try (Connection conn = ConnectionPool.getInstance().getConnection();
              Statement stmt = conn.createStatement()) {
             StringBuilder sb = new StringBuilder();
             sb.append("CREATE TABLE IF NOT EXISTS ").append(tableName).append(" (");
@@ -0,0 +1,58 @@
+package main_package;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// MurmurHash3 x64 128 (seed 0): 중복 제거 지문, 블룸 필터 등에서 사용
+public final class Murmur3 {
+    private Murmur3() {
+    }
+
+    // 128비트 해시 {h1, h2}
+    public static long[] hash128(byte[] data) {
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        long h1 = 0, h2 = 0;
+
+        int blocks = data.length / 16;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = buffer.getLong();
+            long k2 = buffer.getLong();
+            k1 *= c1; k1 = Long.rotateLeft(k1, 31); k1 *= c2; h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27); h1 += h2; h1 = h1 * 5 + 0x52dce729;
+            k2 *= c2; k2 = Long.rotateLeft(k2, 33); k2 *= c1; h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31); h2 += h1; h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0, k2 = 0;
+        int tail = blocks * 16;
+        for (int i = data.length - tail - 1; i >= 8; i--) {
+            k2 ^= (data[tail + i] & 0xffL) << (8 * (i - 8));
+        }
+        for (int i = Math.min(data.length - tail, 8) - 1; i >= 0; i--) {
+            k1 ^= (data[tail + i] & 0xffL) << (8 * i);
+        }
+        if (data.length - tail > 8) {
+            k2 *= c2; k2 = Long.rotateLeft(k2, 33); k2 *= c1; h2 ^= k2;
+        }
+        if (data.length - tail > 0) {
+            k1 *= c1; k1 = Long.rotateLeft(k1, 31); k1 *= c2; h1 ^= k1;
+        }
+
+        h1 ^= data.length; h2 ^= data.length;
+        h1 += h2; h2 += h1;
+        h1 = fmix(h1); h2 = fmix(h2);
+        h1 += h2; h2 += h1;
+        return new long[] { h1, h2 };
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,237 @@
+package main_package;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 레코드를 MySQL 테이블로 옮기는 적재기
+// 읽는 쪽(호출한 스레드)이 rowsPerStatement 행씩 묶어 크기가 정해진 큐에 넣고, 작업 스레드들이 풀에서 받은 연결로
+// 여러 행짜리 INSERT ... VALUES (...), (...) 한 번에 한 묶음씩 실행, 연결마다 chunkSize 행을 넘을 때마다 커밋
+// 실패하면 나머지 작업은 멈추고 커밋하지 않은 행은 롤백 (이미 커밋한 chunk 는 남음)
+public class MySqlLoader {
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+    public static final int DEFAULT_ROWS_PER_STATEMENT = 500;
+    public static final int DEFAULT_QUEUE_CAPACITY = 16; // 묶음 수
+    // MySQL 프리페어드 문장의 자리표시자 수 한도
+    private static final int MAX_PLACEHOLDERS = 65_535;
+    // 큐에 넣을 때 작업 스레드의 실패를 확인하는 간격
+    private static final long OFFER_POLL_MILLIS = 100;
+
+    private final ConnectionPool pool;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int rowsPerStatement = DEFAULT_ROWS_PER_STATEMENT;
+    private int workers = Math.min(4, Runtime.getRuntime().availableProcessors());
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    // 작업 스레드에게 끝을 알리는 묶음
+    private static final List<FileStructure.Record> END = new ArrayList<>();
+
+    public MySqlLoader() {
+        this(ConnectionPool.getInstance());
+    }
+
+    public MySqlLoader(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    // 연결 하나가 커밋하기 전까지 넣는 행 수
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    // INSERT 문 하나에 넣는 행 수
+    public void setRowsPerStatement(int rowsPerStatement) {
+        this.rowsPerStatement = Math.max(1, rowsPerStatement);
+    }
+
+    // 동시에 적재하는 연결 수 (풀 크기를 넘지 않음)
+    public void setWorkers(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    // 모든 레코드를 tableName 에 적재하고 넣은 행 수 반환
+    public long load(String tableName, FileStructure.Metadata meta, Iterator<FileStructure.Record> records) throws SQLException {
+        int batchRows = Math.max(1, Math.min(rowsPerStatement, MAX_PLACEHOLDERS / meta.fieldCount));
+        int threads = Math.min(workers, pool.getMaxSize());
+        BlockingQueue<List<FileStructure.Record>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicLong loaded = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        List<Thread> started = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    work(tableName, meta, batchRows, queue, loaded, failure);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "mysql-loader-" + t);
+            worker.start();
+            started.add(worker);
+        }
+
+        try {
+            List<FileStructure.Record> batch = new ArrayList<>(batchRows);
+            while (records.hasNext() && failure.get() == null) {
+                batch.add(records.next());
+                if (batch.size() == batchRows) {
+                    put(queue, batch, failure);
+                    batch = new ArrayList<>(batchRows);
+                }
+            }
+            if (!batch.isEmpty()) {
+                put(queue, batch, failure);
+            }
+        } catch (SQLException | RuntimeException e) {
+            // 읽는 쪽이 실패해도 작업 스레드가 남은 행을 커밋하지 않도록
+            failure.compareAndSet(null, e);
+        } finally {
+            // 작업 스레드마다 끝 표시 하나
+            for (int t = 0; t < threads; t++) {
+                end(queue, failure);
+            }
+            for (Thread worker : started) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure.compareAndSet(null, e);
+                }
+            }
+        }
+
+        Throwable error = failure.get();
+        if (error != null) {
+            if (error instanceof SQLException sql) throw sql;
+            throw new SQLException("Loading into '" + tableName + "' failed after " + loaded.get() + " committed rows", error);
+        }
+        return loaded.get();
+    }
+
+    // 큐가 가득 차 있으면 기다리되 작업 스레드가 실패했으면 그만둠
+    private static void put(BlockingQueue<List<FileStructure.Record>> queue, List<FileStructure.Record> batch,
+                            AtomicReference<Throwable> failure) throws SQLException {
+        try {
+            while (failure.get() == null) {
+                if (queue.offer(batch, OFFER_POLL_MILLIS, TimeUnit.MILLISECONDS)) return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while queueing rows", e);
+        }
+    }
+
+    // 작업 스레드가 큐를 비울 때까지 기다림 (실패했으면 남은 묶음은 버리고 자리 확보)
+    private static void end(BlockingQueue<List<FileStructure.Record>> queue, AtomicReference<Throwable> failure) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (queue.offer(END, OFFER_POLL_MILLIS, TimeUnit.MILLISECONDS)) break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+                failure.compareAndSet(null, e);
+            }
+            if (failure.get() != null) {
+                queue.poll();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 연결 하나로 큐가 끝날 때까지 적재, chunkSize 행마다 커밋
+    private void work(String tableName, FileStructure.Metadata meta, int batchRows,
+                      BlockingQueue<List<FileStructure.Record>> queue,
+                      AtomicLong loaded, AtomicReference<Throwable> failure) throws SQLException, InterruptedException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            PreparedStatement full = null;
+            try {
+                long uncommitted = 0;
+                while (true) {
+                    List<FileStructure.Record> batch = queue.take();
+                    if (batch == END || failure.get() != null) break;
+
+                    PreparedStatement stmt;
+                    if (batch.size() == batchRows) {
+                        if (full == null) {
+                            full = conn.prepareStatement(insertSql(tableName, meta, batchRows));
+                        }
+                        stmt = full;
+                    } else {
+                        stmt = conn.prepareStatement(insertSql(tableName, meta, batch.size()));
+                    }
+                    try {
+                        bind(stmt, meta, batch);
+                        stmt.executeUpdate();
+                    } finally {
+                        if (stmt != full) stmt.close();
+                    }
+
+                    uncommitted += batch.size();
+                    if (uncommitted >= chunkSize) {
+                        conn.commit();
+                        loaded.addAndGet(uncommitted);
+                        uncommitted = 0;
+                    }
+                }
+                if (uncommitted > 0 && failure.get() == null) {
+                    conn.commit();
+                    loaded.addAndGet(uncommitted);
+                }
+            } finally {
+                if (full != null) full.close();
+                // 커밋하지 않은 행은 반환할 때 풀이 롤백
+            }
+        }
+    }
+
+    // INSERT INTO t (a,b) VALUES (?,?),(?,?),...
+    static String insertSql(String tableName, FileStructure.Metadata meta, int rows) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("INSERT INTO ").append(tableName).append(" (");
+        for (int i = 0; i < meta.fieldCount; i++) {
+            if (i > 0) sb.append(",");
+            sb.append(meta.fields.get(i).name);
+        }
+        sb.append(") VALUES ");
+        StringBuilder row = new StringBuilder("(");
+        for (int i = 0; i < meta.fieldCount; i++) {
+            if (i > 0) row.append(",");
+            row.append("?");
+        }
+        row.append(")");
+        for (int r = 0; r < rows; r++) {
+            if (r > 0) sb.append(",");
+            sb.append(row);
+        }
+        return sb.toString();
+    }
+
+    private static void bind(PreparedStatement stmt, FileStructure.Metadata meta, List<FileStructure.Record> batch) throws SQLException {
+        int param = 1;
+        for (FileStructure.Record rec : batch) {
+            for (int i = 0; i < meta.fieldCount; i++) {
+                if (FileStructure.isNull(rec.nullBitmap, i)) {
+                    stmt.setNull(param++, Types.CHAR);
+                } else {
+                    stmt.setString(param++, rec.fieldValues.get(i));
+                }
+            }
+        }
+    }
+}
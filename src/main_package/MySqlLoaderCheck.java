@@ -0,0 +1,287 @@
+package main_package;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+// MySqlLoader 와 ConnectionPool 을 내장 DB(H2, MySQL 모드)에 대해 확인
+// - 작업 스레드 여러 개, 작은 chunk 로 적재한 행 수와 NULL 값
+// - INSERT 한 문장의 행 수가 자리표시자 한도에 맞춰 나뉘는지
+// - 작업 스레드의 SQL 오류 / 읽는 쪽의 예외가 load 로 전달되고, 커밋하지 않은 행은 롤백되는지 (커밋한 chunk 만 남음)
+// - 풀이 모두 사용 중이면 시간 초과, 연결 두 개를 한 번에 빌리는 작업끼리 서로 기다리지 않는지
+// - 머지 조인 (스트리밍 문장) 결과가 SQL 조인과 같은 행 수인지
+// 사용법: java -cp <classes>:h2.jar main_package.MySqlLoaderCheck [행 수] [작업 스레드 수]
+// (-Ddb.url / -Ddb.user / -Ddb.password 로 다른 DB 에 대해서도 실행 가능)
+public class MySqlLoaderCheck {
+    private static final String URL = System.getProperty("db.url", "jdbc:h2:mem:loadercheck;MODE=MySQL;DB_CLOSE_DELAY=-1");
+    private static final String USER = System.getProperty("db.user", "sa");
+    private static final String PASSWORD = System.getProperty("db.password", "");
+    private static final int POOL_SIZE = 4;
+    private static final long BORROW_TIMEOUT_MILLIS = 300;
+    private static final int CHUNK_SIZE = 700;
+    private static final int ROWS_PER_STATEMENT = 70;
+    private static final int GROUPS = 10;
+
+    private final ConnectionPool pool = new ConnectionPool(URL, USER, PASSWORD, POOL_SIZE, BORROW_TIMEOUT_MILLIS);
+
+    private static String key(long i) {
+        return String.format("k%08d", i);
+    }
+
+    // 10 번째 행마다 g 는 NULL
+    private static FileStructure.Record record(long i) {
+        boolean nullGroup = i % GROUPS == 0;
+        return new FileStructure.Record(new ArrayList<>(List.of(key(i), nullGroup ? "" : "g" + (i % GROUPS), "v" + i)),
+            (byte) (nullGroup ? 0b010 : 0));
+    }
+
+    private static FileStructure.Metadata meta() {
+        return new FileStructure.Metadata(List.of(
+            new FileStructure.FieldInfo("id", 9),
+            new FileStructure.FieldInfo("g", 6),
+            new FileStructure.FieldInfo("v", 30)));
+    }
+
+    // 0 ~ total-1 번 레코드, failAt 번째에서 failAt 대신 dupOf 번 키를 다시 내보냄 (-1 이면 없음)
+    private static Iterator<FileStructure.Record> records(long total, long failAt, long dupOf) {
+        return new Iterator<FileStructure.Record>() {
+            private long next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < total;
+            }
+
+            @Override
+            public FileStructure.Record next() {
+                if (next >= total) throw new NoSuchElementException();
+                long i = next++;
+                return i == failAt ? record(dupOf) : record(i);
+            }
+        };
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private void createTable(String table) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("DROP TABLE IF EXISTS " + table);
+            st.executeUpdate("CREATE TABLE " + table + " (id CHAR(9) PRIMARY KEY, g CHAR(6), v CHAR(30))");
+        }
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private MySqlLoader loader(int workers, int chunkSize, int rowsPerStatement) {
+        MySqlLoader loader = new MySqlLoader(pool);
+        loader.setWorkers(workers);
+        loader.setChunkSize(chunkSize);
+        loader.setRowsPerStatement(rowsPerStatement);
+        return loader;
+    }
+
+    // 쉬고 있든 새로 만들든 풀의 연결이 모두 반환됐는지 (하나라도 남아 있으면 시간 초과)
+    private void checkAllReturned(String after) throws SQLException {
+        try {
+            for (Connection conn : pool.getConnections(POOL_SIZE)) {
+                conn.close();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Connections still borrowed after " + after, e);
+        }
+    }
+
+    // 여러 스레드로 모두 적재 (마지막 INSERT 문과 chunk 는 덜 찬 채로)
+    private void loadAll(long total, int workers) throws SQLException {
+        createTable("load_all");
+        long loaded = loader(workers, CHUNK_SIZE, ROWS_PER_STATEMENT).load("load_all", meta(), records(total, -1, -1));
+        check(loaded == total, "Loader reported " + loaded + " rows, expected " + total);
+        check(count("SELECT COUNT(*) FROM load_all") == total, "Table load_all does not hold " + total + " rows");
+        check(count("SELECT COUNT(*) FROM load_all WHERE g IS NULL") == (total + GROUPS - 1) / GROUPS,
+            "NULL fields were not loaded as NULL");
+        checkAllReturned("a successful load");
+    }
+
+    // 문장 하나의 행 수를 크게 주면 자리표시자 한도(65535 / 필드 수)에서 나뉨
+    private void loadWideStatements(long total, int workers) throws SQLException {
+        createTable("load_wide");
+        long loaded = loader(workers, Integer.MAX_VALUE, Integer.MAX_VALUE).load("load_wide", meta(), records(total, -1, -1));
+        check(loaded == total && count("SELECT COUNT(*) FROM load_wide") == total,
+            "Placeholder-limited statements loaded " + loaded + " rows, expected " + total);
+    }
+
+    // 작업 스레드 하나: 실패한 chunk 는 롤백되고 그 앞 chunk 까지만 남음
+    private void failInWorker() throws SQLException {
+        createTable("load_fail");
+        long failAt = 5L * CHUNK_SIZE + 3;
+        try {
+            loader(1, CHUNK_SIZE, ROWS_PER_STATEMENT).load("load_fail", meta(), records(20 * CHUNK_SIZE, failAt, 0));
+            throw new IllegalStateException("Duplicate key did not fail the load");
+        } catch (SQLException e) {
+            check(e.getSQLState() != null && e.getSQLState().startsWith("23"),
+                "Worker error was not passed through: " + e);
+        }
+        long kept = count("SELECT COUNT(*) FROM load_fail");
+        check(kept == failAt / CHUNK_SIZE * CHUNK_SIZE, "Failed load kept " + kept + " rows, expected only committed chunks");
+        checkAllReturned("a failed load");
+    }
+
+    // 작업 스레드 여럿: 다른 스레드도 커밋하지 않은 행은 버리고 멈춤 (남는 것은 chunk 단위)
+    private void failInParallel(int workers) throws SQLException {
+        createTable("load_fail_par");
+        long total = 40L * CHUNK_SIZE;
+        try {
+            loader(workers, CHUNK_SIZE, ROWS_PER_STATEMENT).load("load_fail_par", meta(), records(total, 8L * CHUNK_SIZE + 11, 1));
+            throw new IllegalStateException("Duplicate key did not fail the parallel load");
+        } catch (SQLException e) {
+            check(e.getSQLState() != null && e.getSQLState().startsWith("23"),
+                "Worker error was not passed through: " + e);
+        }
+        long kept = count("SELECT COUNT(*) FROM load_fail_par");
+        check(kept % CHUNK_SIZE == 0 && kept < total, "Parallel failed load kept " + kept + " rows, not whole chunks");
+        checkAllReturned("a failed parallel load");
+    }
+
+    // 읽는 쪽 예외: load 가 SQLException 으로 전달하고 작업 스레드는 남은 행을 커밋하지 않음
+    private void failInReader(int workers) throws SQLException {
+        createTable("load_fail_read");
+        long failAt = 3L * CHUNK_SIZE + 5;
+        Iterator<FileStructure.Record> source = records(20 * CHUNK_SIZE, -1, -1);
+        Iterator<FileStructure.Record> failing = new Iterator<FileStructure.Record>() {
+            private long read = 0;
+
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public FileStructure.Record next() {
+                if (read++ == failAt) throw new IllegalStateException("input failed");
+                return source.next();
+            }
+        };
+        try {
+            loader(workers, CHUNK_SIZE, ROWS_PER_STATEMENT).load("load_fail_read", meta(), failing);
+            throw new IllegalStateException("Reader failure did not fail the load");
+        } catch (SQLException e) {
+            check(e.getCause() instanceof IllegalStateException, "Reader error was not passed through: " + e);
+        }
+        long kept = count("SELECT COUNT(*) FROM load_fail_read");
+        check(kept % CHUNK_SIZE == 0 && kept <= failAt, "Reader failure kept " + kept + " rows, not whole chunks");
+        checkAllReturned("a reader failure");
+    }
+
+    // 풀이 모두 사용 중이면 시간 초과, 반환되면 다시 빌릴 수 있음
+    private void exhaustPool() throws SQLException {
+        List<Connection> all = pool.getConnections(POOL_SIZE);
+        try {
+            pool.getConnection().close();
+            throw new IllegalStateException("Borrowed more than " + POOL_SIZE + " connections");
+        } catch (SQLException e) {
+            check(e.getMessage().startsWith("No free connection"), "Unexpected error from an exhausted pool: " + e);
+        } finally {
+            for (Connection conn : all) {
+                conn.close();
+            }
+        }
+        pool.getConnection().close();
+    }
+
+    // 연결 두 개가 필요한 작업을 풀 크기보다 많이 동시에: 하나씩 쥐고 기다리면 시간 초과
+    private void borrowPairs(int threads, int rounds) throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> started = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < rounds && failure.get() == null; i++) {
+                        List<Connection> pair = pool.getConnections(2);
+                        try {
+                            Thread.sleep(1);
+                        } finally {
+                            for (Connection conn : pair) {
+                                conn.close();
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+            started.add(thread);
+        }
+        for (Thread thread : started) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("Concurrent pair borrowing failed", failure.get());
+        }
+    }
+
+    // 머지 조인을 공유 풀(같은 DB)로 실행해 SQL 조인과 행 수 비교
+    private void mergeJoin() throws Exception {
+        ConnectionPool.configure(URL, USER, PASSWORD, POOL_SIZE);
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("DROP TABLE IF EXISTS join_r");
+            st.executeUpdate("DROP TABLE IF EXISTS join_s");
+            st.executeUpdate("CREATE TABLE join_r (id CHAR(9), a CHAR(6))");
+            st.executeUpdate("CREATE TABLE join_s (id CHAR(9), b CHAR(6))");
+            for (int i = 0; i < 40; i++) {
+                st.executeUpdate("INSERT INTO join_r VALUES ('" + key(i % 25) + "', 'a" + i + "')");
+                st.executeUpdate("INSERT INTO join_s VALUES ('" + key(i % 30) + "', 'b" + i + "')");
+            }
+        }
+        long expected = count("SELECT COUNT(*) FROM join_r r JOIN join_s s ON r.id = s.id");
+        new JoinProcessor().executeMergeJoin("join_r", "join_s", "id", "loader_check_join");
+        long joined = new FileStructure().readHeader("loader_check_join.dat").recordCount;
+        check(joined == expected, "Merge join wrote " + joined + " rows, SQL join returned " + expected);
+    }
+
+    public static void main(String[] args) throws Exception {
+        long total = args.length > 0 ? Long.parseLong(args[0]) : 20000;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : POOL_SIZE;
+        MySqlLoaderCheck loaderCheck = new MySqlLoaderCheck();
+        long start = System.nanoTime();
+        try {
+            loaderCheck.loadAll(total, workers);
+            loaderCheck.loadWideStatements(total * 3, workers);
+            loaderCheck.failInWorker();
+            loaderCheck.failInParallel(workers);
+            loaderCheck.failInReader(workers);
+            loaderCheck.exhaustPool();
+            loaderCheck.borrowPairs(3 * POOL_SIZE, 50);
+            loaderCheck.mergeJoin();
+        } catch (Throwable t) {
+            System.out.println("FAILED: " + t);
+            t.printStackTrace();
+            System.exit(1);
+        } finally {
+            loaderCheck.pool.close();
+            ConnectionPool.closeInstance();
+            BufferPool.getInstance().closeAll();
+        }
+        System.out.println("OK rows=" + total + " workers=" + workers
+            + " ms=" + (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,77 @@
+package main_package;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// 블록 단위 입출력만 담당하는 열린 파일 (BufferPool 이 파일마다 하나씩 유지)
+public class PagedFile {
+    private final Path path;
+    private final FileChannel channel;
+    private final int blockSize;
+
+    public PagedFile(Path path, int blockSize, boolean create) throws IOException {
+        if (!create && !Files.exists(path)) {
+            throw new FileNotFoundException(path + " (No such file)");
+        }
+        this.path = path;
+        this.blockSize = blockSize;
+        this.channel = create
+            ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)
+            : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    // 디스크에 있는 블록 수 (마지막 블록이 일부만 있어도 포함)
+    public int blockCount() throws IOException {
+        return (int) ((channel.size() + blockSize - 1) / blockSize);
+    }
+
+    public long length() throws IOException {
+        return channel.size();
+    }
+
+    // 블록 읽기 (파일 끝을 넘는 부분은 0으로 채움)
+    public void readBlock(int blockNo, byte[] dst) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(dst, 0, blockSize);
+        long position = (long) blockNo * blockSize;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) break;
+        }
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    public void writeBlock(int blockNo, byte[] src) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(src, 0, blockSize);
+        long position = (long) blockNo * blockSize;
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
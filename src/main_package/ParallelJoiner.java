@@ -0,0 +1,176 @@
+package main_package;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BinaryOperator;
+
+// 병렬 분할 해시 조인
+// 양쪽 입력을 조인 키 해시로 분할한 뒤 분할 쌍마다 HashJoiner 를 스레드 풀에서 동시에 실행
+// 결과 행은 호출한 스레드에서만 sink 로 전달 (파일 기록은 한 스레드)
+public class ParallelJoiner {
+    // 스레드 하나당 분할 수 (크기가 고르지 않아도 스레드가 놀지 않도록)
+    private static final int PARTITIONS_PER_THREAD = 4;
+    // 평균보다 이만큼 큰 분할은 쏠린 분할로 보고 더 잘게 나눔
+    private static final int SKEW_FACTOR = 4;
+
+    private final int threads;
+    private final long memoryBudget;
+    private int skewedPartitions = 0;
+
+    public ParallelJoiner(int threads, long memoryBudget) {
+        this.threads = Math.max(1, threads);
+        this.memoryBudget = memoryBudget;
+    }
+
+    public int getSkewedPartitions() {
+        return skewedPartitions;
+    }
+
+    // 분할 작업 하나: 빌드 쪽 전체 + 탐색 쪽 (전체 또는 일부)
+    private static class Task {
+        final SpillableRowBuffer build;
+        final int buildKey;
+        final SpillableRowBuffer probe;
+        final int probeKey;
+        final boolean buildIsR;
+
+        Task(SpillableRowBuffer build, int buildKey, SpillableRowBuffer probe, int probeKey, boolean buildIsR) {
+            this.build = build;
+            this.buildKey = buildKey;
+            this.probe = probe;
+            this.probeKey = probeKey;
+            this.buildIsR = buildIsR;
+        }
+    }
+
+    // combiner 는 작업 스레드에서 R 행, S 행을 결과 행으로 만듦
+    public void join(Iterator<List<String>> build, int buildKey,
+                     Iterator<List<String>> probe, int probeKey,
+                     boolean buildIsR, BinaryOperator<List<String>> combiner,
+                     RowSink sink) throws IOException {
+        int partitionCount = threads * PARTITIONS_PER_THREAD;
+        // 분할 버퍼는 메모리 한도의 절반을 나눠 쓰고, 나머지는 작업들의 해시 테이블과 결과 버퍼용
+        long partitionBudget = memoryBudget / 2 / (2L * partitionCount);
+        long taskBudget = memoryBudget / 2 / (2L * threads);
+
+        SpillableRowBuffer[] buildParts = new SpillableRowBuffer[partitionCount];
+        SpillableRowBuffer[] probeParts = new SpillableRowBuffer[partitionCount];
+        List<SpillableRowBuffer> fragments = new ArrayList<>();
+        ExecutorService pool = new ForkJoinPool(threads);
+        try {
+            for (int i = 0; i < partitionCount; i++) {
+                buildParts[i] = new SpillableRowBuffer(partitionBudget);
+                probeParts[i] = new SpillableRowBuffer(partitionBudget);
+            }
+            try {
+                while (build.hasNext()) {
+                    List<String> row = build.next();
+                    buildParts[partitionOf(row.get(buildKey), partitionCount)].add(row);
+                }
+                while (probe.hasNext()) {
+                    List<String> row = probe.next();
+                    probeParts[partitionOf(row.get(probeKey), partitionCount)].add(row);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            List<Task> tasks = planTasks(buildParts, buildKey, probeParts, probeKey, buildIsR, fragments);
+
+            CompletionService<SpillableRowBuffer> done = new ExecutorCompletionService<>(pool);
+            for (Task task : tasks) {
+                done.submit(() -> runTask(task, combiner, taskBudget));
+            }
+            // 끝나는 순서대로 결과를 기록
+            for (int i = 0; i < tasks.size(); i++) {
+                try (SpillableRowBuffer result = done.take().get()) {
+                    result.forEach(sink);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Parallel join interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof UncheckedIOException) throw ((UncheckedIOException) cause).getCause();
+            throw new IOException("Parallel join task failed", cause);
+        } finally {
+            pool.shutdownNow();
+            for (int i = 0; i < partitionCount; i++) {
+                if (buildParts[i] != null) buildParts[i].close();
+                if (probeParts[i] != null) probeParts[i].close();
+            }
+            for (SpillableRowBuffer fragment : fragments) {
+                fragment.close();
+            }
+        }
+    }
+
+    // 분할 쌍을 작업으로 나눔
+    // 한 키에 몰린 분할은 해시로 다시 나눠도 줄지 않으므로, 작은 쪽은 그대로 복제하고 큰 쪽을 조각내 여러 작업에 분배
+    private List<Task> planTasks(SpillableRowBuffer[] buildParts, int buildKey,
+                                 SpillableRowBuffer[] probeParts, int probeKey,
+                                 boolean buildIsR, List<SpillableRowBuffer> fragments) throws IOException {
+        long total = 0;
+        for (int i = 0; i < buildParts.length; i++) {
+            total += buildParts[i].size() + probeParts[i].size();
+        }
+        long average = Math.max(1, total / buildParts.length);
+
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < buildParts.length; i++) {
+            SpillableRowBuffer b = buildParts[i], p = probeParts[i];
+            if (b.size() == 0 || p.size() == 0) continue;
+
+            // 분할 안에서는 더 작은 쪽을 빌드로
+            boolean swap = p.size() < b.size();
+            SpillableRowBuffer small = swap ? p : b;
+            SpillableRowBuffer large = swap ? b : p;
+            int smallKey = swap ? probeKey : buildKey;
+            int largeKey = swap ? buildKey : probeKey;
+            boolean smallIsR = swap ? !buildIsR : buildIsR;
+
+            long size = b.size() + p.size();
+            if (size <= SKEW_FACTOR * average || threads == 1) {
+                tasks.add(new Task(small, smallKey, large, largeKey, smallIsR));
+                continue;
+            }
+
+            skewedPartitions++;
+            int pieces = (int) Math.min(threads, (size + average - 1) / average);
+            long pieceBudget = large.isSpilled() ? 0 : Long.MAX_VALUE;
+            SpillableRowBuffer[] split = new SpillableRowBuffer[pieces];
+            for (int j = 0; j < pieces; j++) {
+                split[j] = new SpillableRowBuffer(pieceBudget);
+                fragments.add(split[j]);
+            }
+            Iterator<List<String>> it = large.iterator();
+            for (int n = 0; it.hasNext(); n++) {
+                split[n % pieces].add(it.next());
+            }
+            large.clear();
+            for (SpillableRowBuffer piece : split) {
+                tasks.add(new Task(small, smallKey, piece, largeKey, smallIsR));
+            }
+        }
+        return tasks;
+    }
+
+    private static SpillableRowBuffer runTask(Task task, BinaryOperator<List<String>> combiner, long budget) throws IOException {
+        // 작업 결과도 한도를 넘으면 임시 파일로
+        SpillableRowBuffer result = new SpillableRowBuffer(budget);
+        HashJoiner joiner = new HashJoiner(budget);
+        joiner.join(task.build.iterator(), task.buildKey, task.probe.iterator(), task.probeKey, task.buildIsR,
+            (rRow, sRow) -> result.add(combiner.apply(rRow, sRow)));
+        return result;
+    }
+
+    static int partitionOf(String key, int partitionCount) {
+        int h = key.hashCode() * 0x9E3779B9;
+        h ^= h >>> 16;
+        return (h >>> 1) % partitionCount;
+    }
+}
@@ -0,0 +1,118 @@
+package main_package;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// 일부 필드만 읽는 스캔용 필드 위치 (헤더에서 한 번만 계산)
+// 레코드 안 위치: next 포인터 8바이트 + nullBitmap 1바이트 뒤에 필드가 고정 길이로 이어짐 (슬롯 형식 파일도 이 형식으로 펼쳐 읽음)
+public class Projection {
+    static final int FIELDS_START = 4 + 4 + 1;
+
+    final int[] fieldIndexes;
+    final int[] offsets;	// 레코드 시작 기준
+    final int[] lengths;
+    final String[] names;
+
+    public Projection(FileStructure.Metadata meta, int... fieldIndexes) {
+        int[] start = new int[meta.fieldCount];
+        int pos = FIELDS_START;
+        for (int i = 0; i < meta.fieldCount; i++) {
+            start[i] = pos;
+            pos += meta.fields.get(i).length;
+        }
+
+        this.fieldIndexes = fieldIndexes.clone();
+        this.offsets = new int[fieldIndexes.length];
+        this.lengths = new int[fieldIndexes.length];
+        this.names = new String[fieldIndexes.length];
+        for (int j = 0; j < fieldIndexes.length; j++) {
+            int i = fieldIndexes[j];
+            offsets[j] = start[i];
+            lengths[j] = meta.fields.get(i).length;
+            names[j] = meta.fields.get(i).name;
+        }
+    }
+
+    // 필드 이름으로 (대소문자 무시), 없는 이름이 있으면 null
+    public static Projection of(FileStructure.Metadata meta, String... fieldNames) {
+        int[] indexes = new int[fieldNames.length];
+        for (int j = 0; j < fieldNames.length; j++) {
+            indexes[j] = -1;
+            for (int i = 0; i < meta.fieldCount; i++) {
+                if (meta.fields.get(i).name.equalsIgnoreCase(fieldNames[j].trim())) {
+                    indexes[j] = i;
+                    break;
+                }
+            }
+            if (indexes[j] == -1) {
+                return null;
+            }
+        }
+        return new Projection(meta, indexes);
+    }
+
+    public int size() {
+        return fieldIndexes.length;
+    }
+
+    public String name(int j) {
+        return names[j];
+    }
+
+    public Row newRow() {
+        return new Row();
+    }
+
+    // 읽은 레코드 하나 (스캔 동안 재사용, 값은 get 할 때 처음 한 번만 디코딩)
+    public class Row {
+        int nextRecordBlock;
+        int nextRecordOffset;
+        byte nullBitmap;
+        final byte[] head = new byte[FIELDS_START];
+        final byte[][] raw = new byte[fieldIndexes.length][];
+        private final String[] decoded = new String[fieldIndexes.length];
+
+        private Row() {
+            for (int j = 0; j < raw.length; j++) {
+                raw[j] = new byte[lengths[j]];
+            }
+        }
+
+        // 메모리 매핑 버퍼 등에서 (rec 의 현재 위치가 레코드 시작)
+        public void load(ByteBuffer rec) {
+            int start = rec.position();
+            nextRecordBlock = rec.getInt(start);
+            nextRecordOffset = rec.getInt(start + 4);
+            nullBitmap = rec.get(start + 8);
+            for (int j = 0; j < raw.length; j++) {
+                rec.get(start + offsets[j], raw[j]);
+            }
+            reset();
+        }
+
+        void reset() {
+            Arrays.fill(decoded, null);
+        }
+
+        public int getNextRecordBlock() {
+            return nextRecordBlock;
+        }
+
+        public int getNextRecordOffset() {
+            return nextRecordOffset;
+        }
+
+        public boolean isNull(int j) {
+            return FileStructure.isNull(nullBitmap, fieldIndexes[j]);
+        }
+
+        // j 번째 투영 필드 값 (공백 제거)
+        public String get(int j) {
+            if (decoded[j] == null) {
+                decoded[j] = new String(raw[j], StandardCharsets.UTF_8).trim();
+            }
+            return decoded[j];
+        }
+    }
+}
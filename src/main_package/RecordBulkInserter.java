@@ -1,11 +1,7 @@
 package main_package;
 
 import java.io.*;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.sql.Types;
 import java.util.*;
 
 import main_package.MetadataManager;
@@ -13,26 +9,50 @@ import main_package.MetadataManager;
 public class RecordBulkInserter {
 	// 조인 테스트용 인자
 	private static final boolean ALLOW_DUPLICATE_KEYS = false;
+	// 외부 정렬 시 메모리에 모을 레코드 크기 (바이트)
+	public static final long DEFAULT_SORT_MEMORY_BUDGET = 64L * 1024 * 1024;
 	
+	private long sortMemoryBudget = DEFAULT_SORT_MEMORY_BUDGET;
+	private double bloomFalsePositiveRate = BloomFilter.DEFAULT_FALSE_POSITIVE_RATE;
+
 	private FileStructure fileStructure = new FileStructure();
 	private RecordSearcher recordSearcher = new RecordSearcher();
 	private MetadataManager metadataManager = new MetadataManager();
+	private MySqlLoader mySqlLoader = new MySqlLoader();
+
+	public void setSortMemoryBudget(long bytes) {
+	    this.sortMemoryBudget = bytes;
+	}
+
+	// MySQL 적재 방식 (커밋 단위 행 수, INSERT 문 하나의 행 수, 동시 연결 수)
+	public void setMySqlLoad(int chunkSize, int rowsPerStatement, int workers) {
+	    mySqlLoader.setChunkSize(chunkSize);
+	    mySqlLoader.setRowsPerStatement(rowsPerStatement);
+	    mySqlLoader.setWorkers(workers);
+	}
+
+	// 블룸 필터를 새로 만들 때의 목표 오탐률
+	public void setBloomFalsePositiveRate(double rate) {
+	    if (!(rate > 0 && rate < 1)) {
+	        throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + rate);
+	    }
+	    this.bloomFalsePositiveRate = rate;
+	}
 
 	public void bulkInsertFromDataFile(String fileName, String dataFilePath) {
-	    try (BufferedReader br = new BufferedReader(new FileReader(dataFilePath))) {
+	    try (BufferedReader br = new BufferedReader(new FileReader(dataFilePath));
+	         ExternalSorter sorter = new ExternalSorter(
+	             (r1, r2) -> r1.fieldValues.get(0).compareTo(r2.fieldValues.get(0)), sortMemoryBudget)) {
 	        String dataFilename = fileName + ".dat";
 
 	        FileStructure.Metadata meta;
-	        try (RandomAccessFile raf = new RandomAccessFile(dataFilename, "rw")) {
-	            meta = fileStructure.readHeader(raf);
+	        try {
+	            meta = fileStructure.readHeader(dataFilename);
 	        } catch (IOException e) {
 	            System.out.println("Failed to read header from file: " + fileName);
 	            return;
 	        }
 
-	        List<FileStructure.Record> recordList = new ArrayList<>();
-	        List<String> searchKeys = new ArrayList<>();
-
 	        String line;
 	        while ((line = br.readLine()) != null) {
 	            line = line.trim();
@@ -61,42 +81,59 @@ public class RecordBulkInserter {
 	                    }
 	                }
 
-	                String searchKey = fieldValues.get(0);
-	                if (!searchKey.isEmpty()) {
-	                    searchKeys.add(searchKey);
-	                }
-
 	                FileStructure.Record record = new FileStructure.Record(fieldValues, nullBitmap);
-	                recordList.add(record);
+	                sorter.add(record);
 	            }
 	        }
 
-	        recordList.sort((r1, r2) -> r1.fieldValues.get(0).compareTo(r2.fieldValues.get(0)));
-
-	        for (int i = 0; i < recordList.size() - 1; i++) {
-	            String currKey = recordList.get(i).fieldValues.get(0);
-	            String nextKey = recordList.get(i + 1).fieldValues.get(0);
-	            if (currKey.equals(nextKey) && !ALLOW_DUPLICATE_KEYS) {
-	                System.out.println("Insertion failed due to duplicated keys in record file.");
-	                return;
-	            }
-	        }
-
-	        for (FileStructure.Record rec : recordList) {
-	            fileStructure.insertRecord(dataFilename, meta, rec);
+	        // 병합은 한 번만: 파일에 적재하면서 중복 키 검사와 최소/최대 탐색키 확인
+	        long incoming = sorter.size();
+	        KeyCheck merged = new KeyCheck(sorter.iterator());
+
+	        // 파일에 쓰는 작업은 하나씩: 잠근 뒤 헤더를 다시 읽어 그 사이의 다른 삽입 반영
+	        // (검색은 적재 중에도 계속되고, 적재가 끝나 헤더가 갱신된 뒤부터 새 레코드가 보임)
+	        FileLatch latch = FileLatch.of(dataFilename);
+	        latch.writer().lock();
+	        try {
+	            FileStructure.Metadata current = fileStructure.readHeader(dataFilename);
+	            long totalKeys = current.recordCount + incoming;
+	            latch.write(() -> {
+	                // 탐색키 인덱스가 없으면 기존 레코드로 먼저 만들고, 이후 insertRecord 가 갱신
+	                if (!BPlusTreeIndex.exists(dataFilename) && BPlusTreeIndex.supports(current.fields.get(0).length)) {
+	                    BPlusTreeIndex.build(dataFilename, fileStructure, current);
+	                }
+	                // 블록 요약이 없는 기존 파일이면 만들어 둠 (레코드가 정해진 자리에만 놓인 파일만)
+	                if (!ZoneMap.exists(dataFilename)) {
+	                    ZoneMap.build(dataFilename, fileStructure, current);
+	                }
+	                // 블룸 필터가 없거나 읽을 수 없거나 적재 후 키 수를 감당하지 못하면 기존 레코드로 미리 크게 만들어 둠 (도중에 다시 구성하지 않도록)
+	                BloomFilter bloom = BloomFilter.openIfReadable(dataFilename);
+	                if (bloom == null || bloom.getCapacity() < totalKeys) {
+	                    BloomFilter.build(dataFilename, fileStructure, current, totalKeys, bloomFalsePositiveRate);
+	                }
+	            });
+
+	            // 정렬된 레코드를 블록 단위로 채워 순차 기록 (중복 키가 나오면 appendRecords 가 아무것도 추가하지 않고 중단)
+	            fileStructure.appendRecords(dataFilename, current, merged);
+	            fileStructure.flush(dataFilename);
+	            meta = current;
+	        } catch (DuplicateKeyException e) {
+	            System.out.println("Insertion failed due to duplicated keys in record file.");
+	            return;
+	        } finally {
+	            latch.writer().unlock();
 	        }
 
 	        System.out.println("Records inserted into file '" + dataFilename + "' successfully (no duplicate keys).");
 
+	        // MySQL 은 파일 적재가 끝난 뒤 한 번 더 병합해서 적재
+	        // (적재기는 chunk 마다 커밋하므로 같은 병합에서 함께 넣으면 뒤에서 중복 키가 나왔을 때 이미 커밋한 행이 MySQL 에만 남음)
 	        metadataManager.createTableInMySQL(fileName, meta);
-	        insertAllRecordsIntoMySQL(fileName, meta, recordList);
-
-	        if (!searchKeys.isEmpty()) {
-	            Collections.sort(searchKeys);
-	            String minKey = searchKeys.get(0);
-	            String maxKey = searchKeys.get(searchKeys.size() - 1);
-	            System.out.println("Auto search: range " + minKey + " ~ " + maxKey);
-	            recordSearcher.searchRecordsByKeyRange(fileName, minKey, maxKey);
+	        insertAllRecordsIntoMySQL(fileName, meta, sorter.iterator());
+
+	        if (merged.minKey != null) {
+	            System.out.println("Auto search: range " + merged.minKey + " ~ " + merged.maxKey);
+	            recordSearcher.searchRecordsByKeyRange(fileName, merged.minKey, merged.maxKey);
 	        }
 
 	    } catch (IOException e) {
@@ -104,44 +141,51 @@ public class RecordBulkInserter {
 	    }
 	}
 	
-	private void insertAllRecordsIntoMySQL(String tableName, FileStructure.Metadata meta, List<FileStructure.Record> records) {
-	    String url = "jdbc:mysql://localhost:3306/mydb";
-	    String user = "root";
-	    String pass = "1234";
-
-	    try (Connection conn = DriverManager.getConnection(url, user, pass)) {
-	        StringBuilder sb = new StringBuilder();
-	        sb.append("INSERT INTO ").append(tableName).append(" (");
-	        for (int i = 0; i < meta.fieldCount; i++) {
-	            sb.append(meta.fields.get(i).name);
-	            if (i < meta.fieldCount - 1) sb.append(",");
-	        }
-	        sb.append(") VALUES(");
-	        for (int i = 0; i < meta.fieldCount; i++) {
-	            sb.append("?");
-	            if (i < meta.fieldCount - 1) sb.append(",");
-	        }
-	        sb.append(")");
+	// 정렬된 입력에서 같은 탐색키가 이어서 나올 때
+	private static class DuplicateKeyException extends RuntimeException {
+	    private static final long serialVersionUID = 1L;
 
-	        String insertSQL = sb.toString();
-	        System.out.println("Insert SQL: " + insertSQL);
+	    DuplicateKeyException(String key) {
+	        super("Duplicated key in record file: " + key);
+	    }
+	}
 
-	        try (PreparedStatement pstmt = conn.prepareStatement(insertSQL)) {
-	            for (FileStructure.Record rec : records) {
-	                for (int i = 0; i < meta.fieldCount; i++) {
-	                    String val = rec.fieldValues.get(i);
-	                    if (((rec.nullBitmap >> i) & 1) == 1) {
-	                        pstmt.setNull(i+1, Types.CHAR); 
-	                    } else {
-	                        pstmt.setString(i+1, val);
-	                    }
-	                }
-	                pstmt.addBatch();
-	            }
-	            pstmt.executeBatch();
+	// 병합 결과를 그대로 넘기면서 중복 키 검사, 최소/최대 탐색키 기록 (빈 키는 범위에서 제외)
+	private static class KeyCheck implements Iterator<FileStructure.Record> {
+	    private final Iterator<FileStructure.Record> records;
+	    private String prevKey;
+	    String minKey, maxKey;
+
+	    KeyCheck(Iterator<FileStructure.Record> records) {
+	        this.records = records;
+	    }
+
+	    @Override
+	    public boolean hasNext() {
+	        return records.hasNext();
+	    }
+
+	    @Override
+	    public FileStructure.Record next() {
+	        FileStructure.Record rec = records.next();
+	        String currKey = rec.fieldValues.get(0);
+	        if (currKey.equals(prevKey) && !ALLOW_DUPLICATE_KEYS) {
+	            throw new DuplicateKeyException(currKey);
+	        }
+	        if (!currKey.isEmpty()) {
+	            if (minKey == null) minKey = currKey;
+	            maxKey = currKey;
 	        }
-	        System.out.println("All records inserted into MySQL table '" + tableName + "'.");
+	        prevKey = currKey;
+	        return rec;
+	    }
+	}
 
+	// 풀의 연결 여러 개로 나눠 병렬 적재 (chunk 단위 커밋, 여러 행짜리 INSERT)
+	private void insertAllRecordsIntoMySQL(String tableName, FileStructure.Metadata meta, Iterator<FileStructure.Record> records) {
+	    try {
+	        long loaded = mySqlLoader.load(tableName, meta, records);
+	        System.out.println("All " + loaded + " records inserted into MySQL table '" + tableName + "'.");
 	    } catch (SQLException e) {
 	        e.printStackTrace();
 	    }
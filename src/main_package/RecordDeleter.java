@@ -0,0 +1,51 @@
+package main_package;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+// 레코드 삭제 (체인에서 떼어 낸 자리는 헤더의 빈 자리 목록으로, 이후 삽입이 파일을 늘리기 전에 재사용)
+// 삭제는 진행 중인 검색이 끝날 때까지 기다렸다 반영되고, 삭제하는 동안 새 검색도 잠시 기다림
+public class RecordDeleter {
+	private final FileStructure fs = new FileStructure();
+
+	// 탐색키가 key 인 레코드 삭제, 삭제한 수 반환 (블룸 필터가 없다고 하면 체인을 읽지 않음)
+	public long deleteByKey(String fileName, String key) throws IOException {
+	    String dataFilename = fileName + ".dat";
+	    FileStructure.Metadata meta = fs.readHeader(dataFilename);
+	    int keyLength = meta.fields.get(0).length;
+	    byte[] encoded = FileStructure.encodeField(key.trim(), keyLength);
+	    // 필터 파일을 읽을 수 없으면 필터 없이 계속
+	    if (!FileLatch.of(dataFilename).read(() -> {
+	        BloomFilter bloom = BloomFilter.openIfReadable(dataFilename);
+	        return bloom == null || bloom.mightContain(encoded);
+	    })) {
+	        return 0;
+	    }
+	    int from = Projection.FIELDS_START;
+	    return fs.deleteRecords(dataFilename, rec -> !FileStructure.isNull(rec[8], 0)
+	        && Arrays.equals(rec, from, from + keyLength, encoded, 0, keyLength));
+	}
+
+	// 조건을 만족하는 레코드 모두 삭제
+	public long deleteWhere(String fileName, Predicate<FileStructure.Record> condition) throws IOException {
+	    String dataFilename = fileName + ".dat";
+	    FileStructure.Metadata meta = fs.readHeader(dataFilename);
+	    return fs.deleteRecords(dataFilename, rec -> condition.test(FileStructure.decodeRecord(ByteBuffer.wrap(rec), meta)));
+	}
+
+	// 필드 값이 [minValue, maxValue] 인 레코드 삭제 (저장된 바이트 그대로 비교, null 값은 제외)
+	public long deleteByFieldRange(String fileName, String fieldName, String minValue, String maxValue) throws IOException {
+	    String dataFilename = fileName + ".dat";
+	    FileStructure.Metadata meta = fs.readHeader(dataFilename);
+	    Projection projection = Projection.of(meta, fieldName);
+	    if (projection == null) {
+	        throw new IOException("Cannot find field '" + fieldName.trim() + "'.");
+	    }
+	    int fieldIndex = projection.fieldIndexes[0];
+	    int from = projection.offsets[0];
+	    KeyRange range = new KeyRange(minValue, maxValue, projection.lengths[0]);
+	    return fs.deleteRecords(dataFilename, rec -> !FileStructure.isNull(rec[8], fieldIndex) && range.contains(rec, from));
+	}
+}
@@ -3,83 +3,223 @@ package main_package;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-// import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class RecordSearcher {
-	private static final int BLOCK_SIZE = 1024;
-	private static final int FIELD_NAME_SIZE = 16;
-
-	// 헤더에서 메타데이터 읽기
-	public FileStructure.Metadata readHeader(RandomAccessFile raf) throws IOException {
-	    ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
-	    raf.seek(0);
-	    raf.readFully(buffer.array());
-	    buffer.rewind();
-	    int firstRecordBlock = buffer.getInt();
-	    int firstRecordOffset = buffer.getInt();
-	    int fieldCount = buffer.getInt();
-
-	    FileStructure.Metadata meta = new FileStructure.Metadata(new java.util.ArrayList<>());
-	    meta.firstRecordBlock = firstRecordBlock;
-	    meta.firstRecordOffset = firstRecordOffset;
-	    meta.fieldCount = fieldCount;
-
-	    for (int i = 0; i < fieldCount; i++) {
-	        byte[] fixedName = new byte[FIELD_NAME_SIZE];
-	        buffer.get(fixedName);
-	        String name = new String(fixedName, StandardCharsets.UTF_8).trim();
-	        int length = buffer.getInt();
-	        meta.fields.add(new FileStructure.FieldInfo(name, length));
-	    }
-	    return meta;
+	private final FileStructure fs = new FileStructure();
+	private boolean mappedScan = false;
+
+	// 스캔에서 범위 안의 레코드 하나 처리 (rec 의 현재 위치가 레코드 시작)
+	private interface RecordHandler {
+	    void accept(int block, int offset, ByteBuffer rec) throws IOException;
+	}
+
+	// 스캔 방식 선택 (true 면 인덱스가 없을 때 버퍼 풀 대신 메모리 매핑으로 읽음)
+	public void setMappedScan(boolean mappedScan) {
+	    this.mappedScan = mappedScan;
 	}
 
 	// 탐색키 범위 레코드 검색
 	public void searchRecordsByKeyRange(String fileName, String minKey, String maxKey) {
 	    String dataFilename = fileName + ".dat";
-	    try (RandomAccessFile raf = new RandomAccessFile(dataFilename, "r")) {
-	        FileStructure.Metadata meta = readHeader(raf);
-	        int keyLength = meta.fields.get(0).length;
+	    try {
+	        FileLatch.of(dataFilename).scan(() -> {
+	            FileStructure.Metadata meta = fs.readHeader(dataFilename);
+	            scanRange(dataFilename, meta, minKey, maxKey, (block, offset, rec) -> {
+	                rec.position(rec.position() + 8);
+	                printRecord(meta, block, offset, rec);
+	            });
+	            return null;
+	        });
+	    } catch (IOException e) {
+	        e.printStackTrace();
+	    }
+	}
+
+	// 탐색키 범위 레코드 (출력하지 않고 반환)
+	public List<FileStructure.Record> searchRange(String fileName, String minKey, String maxKey) throws IOException {
+	    String dataFilename = fileName + ".dat";
+	    return FileLatch.of(dataFilename).scan(() -> {
+	        FileStructure.Metadata meta = fs.readHeader(dataFilename);
+	        List<FileStructure.Record> found = new ArrayList<>();
+	        scanRange(dataFilename, meta, minKey, maxKey,
+	            (block, offset, rec) -> found.add(FileStructure.decodeRecord(rec, meta)));
+	        return found;
+	    });
+	}
+
+	private void scanRange(String dataFilename, FileStructure.Metadata meta, String minKey, String maxKey,
+	                       RecordHandler handler) throws IOException {
+	    int keyLength = meta.fields.get(0).length;
+
+	    // 인덱스가 있으면 트리를 따라 범위 안의 레코드만 읽음 (헤더를 읽은 뒤 추가된 레코드는 제외)
+	    if (BPlusTreeIndex.exists(dataFilename)) {
+	        List<FileStructure.RecordAddress> addrs = FileLatch.of(dataFilename)
+	            .read(() -> BPlusTreeIndex.open(dataFilename).searchRange(minKey, maxKey));
+	        for (FileStructure.RecordAddress addr : addrs) {
+	            if (!meta.contains(addr.block, addr.offset)) continue;
+	            handler.accept(addr.block, addr.offset, fs.readRecordBytes(dataFilename, meta, addr.block, addr.offset));
+	        }
+	        return;
+	    }
+
+	    // 블록 요약이 있으면 범위와 겹치지 않는 블록은 건너뜀
+	    KeyRange range = new KeyRange(minKey, maxKey, keyLength);
+	    if (ZoneMap.exists(dataFilename)) {
+	        scanZones(dataFilename, meta, ZoneMap.open(dataFilename, meta), range, handler);
+	        return;
+	    }
+
+	    if (mappedScan) {
+	        scanMapped(dataFilename, range, handler);
+	        return;
+	    }
+
+	    int block = meta.firstRecordBlock;
+	    int offset = meta.firstRecordOffset;
+
+	    while (block != -1 && offset != -1) {
+	        ByteBuffer rec = fs.readRecordBytes(dataFilename, meta, block, offset);
+	        int nextRecordBlock = rec.getInt(0);
+	        int nextRecordOffset = rec.getInt(4);
+
+	        // 키가 범위 내에 있으면 처리 (키 바이트를 그대로 비교, 일치한 레코드만 디코딩)
+	        if (range.contains(rec.array(), 4 + 4 + 1)) {
+	            handler.accept(block, offset, rec);
+	        }
+
+	        if (meta.isLastRecord(block, offset)) break;
+	        block = nextRecordBlock;
+	        offset = nextRecordOffset;
+	    }
+	}
+
+	// 파일 순서대로 스캔하며 요약상 범위 밖인 블록의 레코드는 읽지 않음
+	private void scanZones(String dataFilename, FileStructure.Metadata meta, ZoneMap zones, KeyRange range,
+	                       RecordHandler handler) throws IOException {
+	    int recordSize = fs.getRecordSize(meta);
+	    FileLatch latch = FileLatch.of(dataFilename);
+	    try (MappedDataFile mapped = mappedScan ? new MappedDataFile(dataFilename) : null) {
+	        long position = FileStructure.nextRecordPosition(meta.blockSize, recordSize, meta.blockSize);
+	        int checkedBlock = -1;
+	        boolean blockMatches = false;
+	        while (position < meta.dataEnd) {
+	            int block = (int) (position / meta.blockSize);
+	            int offset = (int) (position % meta.blockSize);
+	            if (block != checkedBlock) {
+	                checkedBlock = block;
+	                blockMatches = latch.read(() -> zones.mayContain(block, 0, range));
+	            }
+	            if (blockMatches) {
+	                ByteBuffer rec = mapped != null
+	                    ? mapped.record(recordSize, block, offset)
+	                    : fs.readRecordBytes(dataFilename, meta, block, offset);
+	                // 삭제돼 비어 있는 자리는 건너뜀
+	                if (!FileStructure.isFreeSlot(rec.getInt(rec.position()))
+	                    && range.contains(rec, rec.position() + 4 + 4 + 1)) {
+	                    handler.accept(block, offset, rec);
+	                }
+	            }
+	            position = FileStructure.nextRecordPosition(position + recordSize, recordSize, meta.blockSize);
+	        }
+	    }
+	}
+
+	// 탐색키가 key 인 레코드 (블룸 필터가 없다고 하면 데이터 블록은 읽지 않음)
+	public List<FileStructure.Record> lookup(String fileName, String key) throws IOException {
+	    String dataFilename = fileName + ".dat";
+	    return FileLatch.of(dataFilename).scan(() -> lookupKey(dataFilename, key));
+	}
+
+	private List<FileStructure.Record> lookupKey(String dataFilename, String key) throws IOException {
+	    FileStructure.Metadata meta = fs.readHeader(dataFilename);
+	    int keyLength = meta.fields.get(0).length;
+	    List<FileStructure.Record> found = new ArrayList<>();
+
+	    FileLatch latch = FileLatch.of(dataFilename);
+	    byte[] encoded = FileStructure.encodeField(key.trim(), keyLength);
+	    // 필터 파일을 읽을 수 없으면 필터 없이 계속
+	    if (!latch.read(() -> {
+	        BloomFilter bloom = BloomFilter.openIfReadable(dataFilename);
+	        return bloom == null || bloom.mightContain(encoded);
+	    })) {
+	        return found;
+	    }
+
+	    if (BPlusTreeIndex.exists(dataFilename)) {
+	        for (FileStructure.RecordAddress addr : latch.read(() -> BPlusTreeIndex.open(dataFilename).searchRange(key, key))) {
+	            if (meta.contains(addr.block, addr.offset)) {
+	                found.add(fs.readRecord(dataFilename, meta, addr.block, addr.offset));
+	            }
+	        }
+	        return found;
+	    }
+
+	    KeyRange range = new KeyRange(key, key, keyLength);
+	    if (ZoneMap.exists(dataFilename)) {
+	        scanZones(dataFilename, meta, ZoneMap.open(dataFilename, meta), range,
+	            (block, offset, rec) -> found.add(FileStructure.decodeRecord(rec, meta)));
+	        return found;
+	    }
+
+	    int block = meta.firstRecordBlock;
+	    int offset = meta.firstRecordOffset;
+	    while (block != -1 && offset != -1) {
+	        ByteBuffer rec = fs.readRecordBytes(dataFilename, meta, block, offset);
+	        if (range.contains(rec.array(), 4 + 4 + 1)) {
+	            found.add(FileStructure.decodeRecord(rec, meta));
+	        }
+	        if (meta.isLastRecord(block, offset)) break;
+	        block = rec.getInt(0);
+	        offset = rec.getInt(4);
+	    }
+	    return found;
+	}
+
+	// 메모리 매핑으로 체인 전체 스캔
+	private void scanMapped(String dataFilename, KeyRange range, RecordHandler handler) throws IOException {
+	    try (MappedDataFile mapped = new MappedDataFile(dataFilename)) {
+	        FileStructure.Metadata meta = mapped.readHeader();
+	        int recordSize = fs.getRecordSize(meta);
 
 	        int block = meta.firstRecordBlock;
 	        int offset = meta.firstRecordOffset;
 
 	        while (block != -1 && offset != -1) {
-	            raf.seek((long) block * BLOCK_SIZE + offset);
-	            int nextRecordBlock = raf.readInt();
-	            int nextRecordOffset = raf.readInt();
-	            byte nullBitmap = raf.readByte();
-
-	            byte[] keyBytes = new byte[keyLength];
-	            raf.read(keyBytes);
-	            String key = new String(keyBytes, StandardCharsets.UTF_8).trim();
-	            // System.out.println("keylength = " + key.length());
-
-	            // 키가 범위 내에 있으면 출력
-	            if (key.compareTo(minKey) >= 0 && key.compareTo(maxKey) <= 0) {
-	                System.out.println("Block:" + block + " Offset:" + offset + " Search-key:" + key);
-
-	                int dataOffset = 9 + keyLength; // 포인터+비트맵+길이
-	                for (int i = 1; i < meta.fieldCount; i++) { // 0번 키 제외
-	                    if (((nullBitmap >> i) & 1) == 0) {
-	                        raf.seek((long) block * BLOCK_SIZE + offset + dataOffset);
-	                        byte[] fieldBytes = new byte[meta.fields.get(i).length];
-	                        raf.read(fieldBytes);
-	                        String fieldValue = new String(fieldBytes, StandardCharsets.UTF_8).trim();
-	                        System.out.println(meta.fields.get(i).name + ": " + fieldValue);
-	                        dataOffset += meta.fields.get(i).length;
-	                    } else {
-	                        System.out.println(meta.fields.get(i).name + ": null");
-	                    }
-	                }
+	            ByteBuffer rec = mapped.record(recordSize, block, offset);
+	            int start = rec.position();
+	            int nextRecordBlock = rec.getInt(start);
+	            int nextRecordOffset = rec.getInt(start + 4);
+
+	            if (range.contains(rec, start + 4 + 4 + 1)) {
+	                handler.accept(block, offset, rec);
 	            }
 
+	            if (meta.isLastRecord(block, offset)) break;
 	            block = nextRecordBlock;
 	            offset = nextRecordOffset;
 	        }
+	    }
+	}
 
-	    } catch (IOException e) {
-	        e.printStackTrace();
+	// 레코드 출력 (rec 은 nullBitmap 위치)
+	private void printRecord(FileStructure.Metadata meta, int block, int offset, ByteBuffer rec) {
+	    byte nullBitmap = rec.get();
+	    byte[] keyBytes = new byte[meta.fields.get(0).length];
+	    rec.get(keyBytes);
+	    String key = new String(keyBytes, StandardCharsets.UTF_8).trim();
+	    System.out.println("Block:" + block + " Offset:" + offset + " Search-key:" + key);
+
+	    for (int i = 1; i < meta.fieldCount; i++) { // 0번 키 제외
+	        byte[] fieldBytes = new byte[meta.fields.get(i).length];
+	        rec.get(fieldBytes);
+	        if (((nullBitmap >> i) & 1) == 0) {
+	            String fieldValue = new String(fieldBytes, StandardCharsets.UTF_8).trim();
+	            System.out.println(meta.fields.get(i).name + ": " + fieldValue);
+	        } else {
+	            System.out.println(meta.fields.get(i).name + ": null");
+	        }
 	    }
 	}
 
@@ -0,0 +1,235 @@
+package main_package;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// 중복 행 제거 연산자
+// 행 전체 대신 128비트 지문(MurmurHash3 x64 128)만 long 배열 open addressing 테이블에 보관
+// 테이블이 메모리 한도를 넘으면 지문 상위 비트로 분할해 디스크에 내리고, 끝날 때 분할마다 다시 처리
+public class RowDeduplicator implements AutoCloseable {
+    private static final int PARTITION_BITS = 4;
+    private static final int PARTITION_COUNT = 1 << PARTITION_BITS;
+    // 상위 64비트를 4비트씩 쓰므로 이 깊이 이후에는 한도를 넘어도 메모리에서 처리
+    private static final int MAX_DEPTH = 64 / PARTITION_BITS - 1;
+    private static final int INITIAL_SLOTS = 1 << 10;
+
+    private final long memoryBudget;
+    private final RowSink downstream;
+    private final int depth;
+
+    // 슬롯 i 의 지문은 (table[2i], table[2i+1]), (0, 0) 은 빈 슬롯
+    private long[] table = new long[2 * INITIAL_SLOTS];
+    private int size = 0;
+    private long emitted = 0;
+    private long duplicates = 0;
+
+    // 분할 후: 이미 본 지문과 아직 판정하지 않은 행을 분할별 파일로
+    private Path[] seenFiles;
+    private Path[] pendingFiles;
+    private DataOutputStream[] seenOut;
+    private DataOutputStream[] pendingOut;
+
+    public RowDeduplicator(long memoryBudget, RowSink downstream) {
+        this(memoryBudget, downstream, 0);
+    }
+
+    private RowDeduplicator(long memoryBudget, RowSink downstream, int depth) {
+        this.memoryBudget = memoryBudget;
+        this.downstream = downstream;
+        this.depth = depth;
+    }
+
+    // 처음 보는 행이면 바로 downstream 으로 (분할 후에는 finish 때)
+    public void add(List<String> row) throws IOException {
+        long[] fp = fingerprint(row);
+        add(fp[0], fp[1], row);
+    }
+
+    private void add(long hi, long lo, List<String> row) throws IOException {
+        if (pendingOut != null) {
+            DataOutputStream out = pendingOut[partitionOf(hi)];
+            out.writeLong(hi);
+            out.writeLong(lo);
+            out.writeInt(row.size());
+            for (String v : row) {
+                ExternalSorter.writeString(out, v);
+            }
+            return;
+        }
+        if (insert(hi, lo)) {
+            emitted++;
+            downstream.accept(row);
+        } else {
+            duplicates++;
+        }
+    }
+
+    // 상위 단계에서 이미 내보낸 행의 지문
+    private void addSeen(long hi, long lo) throws IOException {
+        if (seenOut != null) {
+            DataOutputStream out = seenOut[partitionOf(hi)];
+            out.writeLong(hi);
+            out.writeLong(lo);
+            return;
+        }
+        insert(hi, lo);
+    }
+
+    // 남은 분할 처리 후 내보낸 행 수
+    public long finish() throws IOException {
+        if (pendingOut == null) return emitted;
+
+        for (int p = 0; p < PARTITION_COUNT; p++) {
+            seenOut[p].close();
+            pendingOut[p].close();
+        }
+        for (int p = 0; p < PARTITION_COUNT; p++) {
+            try (RowDeduplicator child = new RowDeduplicator(memoryBudget, downstream, depth + 1)) {
+                try (DataInputStream in = open(seenFiles[p])) {
+                    while (true) {
+                        long hi;
+                        try {
+                            hi = in.readLong();
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        child.addSeen(hi, in.readLong());
+                    }
+                }
+                try (DataInputStream in = open(pendingFiles[p])) {
+                    while (true) {
+                        long hi;
+                        try {
+                            hi = in.readLong();
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        long lo = in.readLong();
+                        int n = in.readInt();
+                        List<String> row = new ArrayList<>(n);
+                        for (int j = 0; j < n; j++) {
+                            row.add(ExternalSorter.readString(in));
+                        }
+                        child.add(hi, lo, row);
+                    }
+                }
+                child.finish();
+                emitted += child.emitted;
+                duplicates += child.duplicates;
+            }
+            Files.deleteIfExists(seenFiles[p]);
+            Files.deleteIfExists(pendingFiles[p]);
+        }
+        seenOut = null;
+        pendingOut = null;
+        return emitted;
+    }
+
+    public long getDuplicateCount() {
+        return duplicates;
+    }
+
+    private static DataInputStream open(Path path) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+    }
+
+    // 새 지문이면 true
+    private boolean insert(long hi, long lo) throws IOException {
+        if (hi == 0 && lo == 0) {
+            lo = 1; // 빈 슬롯 표시와 겹치지 않게
+        }
+        int mask = table.length / 2 - 1;
+        int slot = (int) (lo ^ (lo >>> 32)) & mask;
+        while (true) {
+            long h = table[2 * slot], l = table[2 * slot + 1];
+            if (h == 0 && l == 0) break;
+            if (h == hi && l == lo) return false;
+            slot = (slot + 1) & mask;
+        }
+        table[2 * slot] = hi;
+        table[2 * slot + 1] = lo;
+        size++;
+
+        // 사용률 1/2 을 넘으면 두 배로, 한도를 넘게 되면 분할
+        if (2 * size > table.length / 2) {
+            if (2L * table.length * Long.BYTES <= memoryBudget || depth >= MAX_DEPTH) {
+                rehash(table.length * 2);
+            } else {
+                spill();
+            }
+        }
+        return true;
+    }
+
+    private void rehash(int newLength) {
+        long[] old = table;
+        table = new long[newLength];
+        int mask = newLength / 2 - 1;
+        for (int i = 0; i < old.length; i += 2) {
+            long h = old[i], l = old[i + 1];
+            if (h == 0 && l == 0) continue;
+            int slot = (int) (l ^ (l >>> 32)) & mask;
+            while (table[2 * slot] != 0 || table[2 * slot + 1] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[2 * slot] = h;
+            table[2 * slot + 1] = l;
+        }
+    }
+
+    // 테이블의 지문을 분할별 파일로 내보내고 이후 행은 모두 분할 파일로
+    private void spill() throws IOException {
+        seenFiles = new Path[PARTITION_COUNT];
+        pendingFiles = new Path[PARTITION_COUNT];
+        seenOut = new DataOutputStream[PARTITION_COUNT];
+        pendingOut = new DataOutputStream[PARTITION_COUNT];
+        for (int p = 0; p < PARTITION_COUNT; p++) {
+            seenFiles[p] = Files.createTempFile("dedup-seen", ".tmp");
+            pendingFiles[p] = Files.createTempFile("dedup-rows", ".tmp");
+            seenOut[p] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(seenFiles[p]), 1 << 14));
+            pendingOut[p] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(pendingFiles[p]), 1 << 14));
+        }
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != 0 || table[i + 1] != 0) {
+                addSeen(table[i], table[i + 1]);
+            }
+        }
+        table = new long[2];
+        size = 0;
+    }
+
+    // 깊이마다 지문 상위 비트의 다음 4비트 사용
+    private int partitionOf(long hi) {
+        return (int) (hi >>> (64 - PARTITION_BITS * (depth + 1))) & (PARTITION_COUNT - 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (pendingOut == null) return;
+        for (int p = 0; p < PARTITION_COUNT; p++) {
+            seenOut[p].close();
+            pendingOut[p].close();
+            Files.deleteIfExists(seenFiles[p]);
+            Files.deleteIfExists(pendingFiles[p]);
+        }
+        seenOut = null;
+        pendingOut = null;
+    }
+
+    // 행 지문: 값마다 (바이트 길이 + UTF-8 바이트) 를 이어 붙여 해시 -> 구분자가 값에 들어 있어도 안전
+    static long[] fingerprint(List<String> row) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        for (String v : row) {
+            byte[] b = v.getBytes(StandardCharsets.UTF_8);
+            bytes.write(b.length >>> 24);
+            bytes.write(b.length >>> 16);
+            bytes.write(b.length >>> 8);
+            bytes.write(b.length);
+            bytes.write(b, 0, b.length);
+        }
+        return Murmur3.hash128(bytes.toByteArray());
+    }
+}
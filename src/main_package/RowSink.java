@@ -0,0 +1,9 @@
+package main_package;
+
+import java.io.IOException;
+import java.util.List;
+
+// 조인 결과 행을 만들어지는 즉시 받아 처리 (파일 기록, 비교 등)
+public interface RowSink {
+    void accept(List<String> row) throws IOException;
+}
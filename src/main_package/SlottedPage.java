@@ -0,0 +1,102 @@
+package main_package;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// 가변 길이 레코드 블록 형식 (FileStructure.FORMAT_SLOTTED)
+// 블록: [슬롯 수 u16][슬롯 디렉터리: (레코드 위치 u16, 길이 u16) ...] ... 빈 공간 ... [레코드들 (블록 끝에서 앞쪽으로)]
+// 레코드: [next 블록][next 슬롯][nullBitmap][필드별 끝 위치 u16 ...][필드 값들 (뒤쪽 공백 제거)]
+// 레코드 주소의 offset 은 슬롯 번호, 지운 레코드의 슬롯은 자리(길이)를 유지한 채 빈 자리 목록으로
+// 읽는 쪽에는 고정 길이 형식으로 펼친 바이트를 돌려주므로 투영, 인덱스, 범위 비교는 형식과 무관
+final class SlottedPage {
+    static final int PAGE_HEADER_SIZE = 2;
+    static final int SLOT_SIZE = 4;
+
+    private SlottedPage() {
+    }
+
+    // 블록 안 슬롯 디렉터리 항목 위치
+    static int slotPosition(int slot) {
+        return PAGE_HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    // 값이 모두 최대 길이일 때 저장 크기 (블록 하나에 들어가야 함)
+    static int maxStoredSize(FileStructure.Metadata meta) {
+        int size = Projection.FIELDS_START + 2 * meta.fieldCount;
+        for (FileStructure.FieldInfo field : meta.fields) {
+            size += field.length;
+        }
+        return size;
+    }
+
+    // 빈 블록에 들어가는지
+    static boolean fits(FileStructure.Metadata meta, int blockSize) {
+        return PAGE_HEADER_SIZE + SLOT_SIZE + maxStoredSize(meta) <= blockSize;
+    }
+
+    // 저장 형식으로 변환 (null 필드는 길이 0)
+    static byte[] encode(FileStructure.Metadata meta, FileStructure.Record record) {
+        byte[][] values = new byte[meta.fieldCount][];
+        int size = Projection.FIELDS_START + 2 * meta.fieldCount;
+        for (int i = 0; i < meta.fieldCount; i++) {
+            if (FileStructure.isNull(record.nullBitmap, i)) {
+                values[i] = new byte[0];
+            } else {
+                byte[] fixed = FileStructure.encodeField(record, meta, i);
+                int end = fixed.length;
+                while (end > 0 && fixed[end - 1] == ' ') end--;
+                values[i] = end == fixed.length ? fixed : Arrays.copyOf(fixed, end);
+            }
+            size += values[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(record.nextRecordBlock);
+        buffer.putInt(record.nextRecordOffset);
+        buffer.put(record.nullBitmap);
+        int end = 0;
+        for (byte[] value : values) {
+            end += value.length;
+            buffer.putShort((short) end);
+        }
+        for (byte[] value : values) {
+            buffer.put(value);
+        }
+        return buffer.array();
+    }
+
+    // stored[from] 부터의 저장 형식 레코드를 고정 길이 형식으로 펼침 (next 포인터 + nullBitmap + 공백으로 채운 필드)
+    static byte[] expand(FileStructure.Metadata meta, int recordSize, ByteBuffer stored, int from) {
+        byte[] image = new byte[recordSize];
+        stored.get(from, image, 0, Projection.FIELDS_START);
+        Arrays.fill(image, Projection.FIELDS_START, recordSize, (byte) ' ');
+        int values = from + Projection.FIELDS_START + 2 * meta.fieldCount;
+        int start = 0;
+        int target = Projection.FIELDS_START;
+        for (int i = 0; i < meta.fieldCount; i++) {
+            int end = Short.toUnsignedInt(stored.getShort(from + Projection.FIELDS_START + 2 * i));
+            stored.get(values + start, image, target, end - start);
+            start = end;
+            target += meta.fields.get(i).length;
+        }
+        return image;
+    }
+
+    static byte[] expand(FileStructure.Metadata meta, int recordSize, byte[] stored) {
+        return expand(meta, recordSize, ByteBuffer.wrap(stored), 0);
+    }
+
+    // 슬롯 디렉터리 항목 바이트
+    static byte[] slotBytes(int position, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE);
+        buffer.putShort((short) position);
+        buffer.putShort((short) length);
+        return buffer.array();
+    }
+
+    static byte[] headerBytes(int slotCount) {
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_HEADER_SIZE);
+        buffer.putShort((short) slotCount);
+        return buffer.array();
+    }
+}
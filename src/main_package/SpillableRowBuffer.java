@@ -0,0 +1,133 @@
+package main_package;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// 조인 키 그룹 버퍼: 메모리 한도까지는 리스트에 두고, 넘치는 행은 임시 파일로 내보냄
+// 같은 그룹을 여러 번 다시 읽을 수 있음 (반대쪽 행마다 한 번씩)
+public class SpillableRowBuffer implements AutoCloseable {
+    private static final int ROW_OVERHEAD = 48;
+    private static final int VALUE_OVERHEAD = 48;
+
+    private final long memoryBudget;
+    private final List<List<String>> rows = new ArrayList<>();
+    private long bufferedBytes = 0;
+
+    private Path spillFile;
+    private DataOutputStream spillOut;
+    private int spilledRows = 0;
+    private final List<DataInputStream> openReaders = Collections.synchronizedList(new ArrayList<>());
+
+    public SpillableRowBuffer(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public void add(List<String> row) throws IOException {
+        if (spillOut == null && bufferedBytes < memoryBudget) {
+            rows.add(row);
+            bufferedBytes += estimateSize(row);
+            return;
+        }
+        if (spillOut == null) {
+            spillFile = Files.createTempFile("join-group", ".tmp");
+            spillOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile), 1 << 16));
+        }
+        spillOut.writeInt(row.size());
+        for (String v : row) {
+            ExternalSorter.writeString(spillOut, v);
+        }
+        spilledRows++;
+    }
+
+    public int size() {
+        return rows.size() + spilledRows;
+    }
+
+    public boolean isSpilled() {
+        return spilledRows > 0;
+    }
+
+    static long estimateSize(List<String> row) {
+        long size = ROW_OVERHEAD;
+        for (String v : row) {
+            size += VALUE_OVERHEAD + (v == null ? 0 : 2L * v.length());
+        }
+        return size;
+    }
+
+    // 버퍼의 모든 행에 대해 실행 (메모리 부분 다음 디스크 부분)
+    public void forEach(RowSink consumer) throws IOException {
+        Iterator<List<String>> it = iterator();
+        try {
+            while (it.hasNext()) {
+                consumer.accept(it.next());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // 모든 행 순회 (디스크 부분은 읽는 만큼만 메모리에 올림)
+    // 다 채운 뒤에는 여러 스레드가 각자 iterator 로 동시에 읽어도 됨
+    public synchronized Iterator<List<String>> iterator() throws IOException {
+        Iterator<List<String>> memory = rows.iterator();
+        if (spillOut == null) return memory;
+
+        spillOut.flush();
+        DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(spillFile), 1 << 16));
+        openReaders.add(in);
+        return new Iterator<List<String>>() {
+            private int read = 0;
+
+            @Override
+            public boolean hasNext() {
+                return memory.hasNext() || read < spilledRows;
+            }
+
+            @Override
+            public List<String> next() {
+                if (memory.hasNext()) return memory.next();
+                if (read >= spilledRows) throw new NoSuchElementException();
+                try {
+                    int n = in.readInt();
+                    List<String> row = new ArrayList<>(n);
+                    for (int j = 0; j < n; j++) {
+                        row.add(ExternalSorter.readString(in));
+                    }
+                    if (++read == spilledRows) {
+                        in.close();
+                        openReaders.remove(in);
+                    }
+                    return row;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    // 다음 그룹을 위해 비움
+    public void clear() throws IOException {
+        for (DataInputStream in : openReaders) {
+            in.close();
+        }
+        openReaders.clear();
+        rows.clear();
+        bufferedBytes = 0;
+        if (spillOut != null) {
+            spillOut.close();
+            Files.deleteIfExists(spillFile);
+            spillOut = null;
+            spillFile = null;
+            spilledRows = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        clear();
+    }
+}
@@ -0,0 +1,277 @@
+package main_package;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// 데이터 파일 변경의 redo 로그 (<이름>.wal)
+// 삽입 하나가 바꾸는 바이트 범위들(이전 레코드 next 포인터, 새 레코드, 헤더)을 한 묶음으로 먼저 로그에 남기고,
+// 묶음 여러 개를 fsync 한 번으로 디스크에 기록 (group commit)
+// 버퍼 풀은 데이터 페이지를 디스크에 쓰기 전에 로그를 먼저 기록 -> 충돌 후 로그를 재실행하면 체인이 끊기지 않음
+// checkpoint: 데이터 페이지를 모두 기록한 뒤 로그를 비움
+public class WriteAheadLog implements Flushable {
+    public static final int DEFAULT_GROUP_COMMIT_SIZE = 256;
+    // 로그가 이보다 커지면 commitIfDue 에서 checkpoint
+    private static final long CHECKPOINT_BYTES = 16L * 1024 * 1024;
+    private static final int ENTRY_HEADER_SIZE = 4 + 4; // 길이 + CRC32
+
+    // 파일별로 하나 (처음 열 때 재실행)
+    private static final Map<Path, WriteAheadLog> OPEN_LOGS = new HashMap<>();
+
+    private final String dataFilename;
+    private final String logFilename;
+    private FileChannel channel;
+    private long logSize;
+
+    // 아직 디스크에 기록하지 않은 묶음들
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedLsn = 0;
+    // 버퍼 풀에 반영까지 끝난 묶음 번호 (추가와 반영 사이의 묶음이 있으면 checkpoint 가 로그를 비우지 않음)
+    private long appliedLsn = 0;
+    private volatile long durableLsn = 0;
+    private long syncCount = 0;
+    private int groupCommitSize = DEFAULT_GROUP_COMMIT_SIZE;
+    // fsync 는 한 스레드씩: 기다리던 스레드는 앞 스레드의 fsync 에 자기 묶음이 포함됐으면 바로 반환
+    private final Object syncLock = new Object();
+    private boolean replayed;
+
+    // 한 번에 반영할 (위치, 바이트) 목록
+    public static class Batch {
+        final List<Long> positions = new ArrayList<>();
+        final List<byte[]> images = new ArrayList<>();
+
+        public void add(long position, byte[] bytes) {
+            positions.add(position);
+            images.add(bytes);
+        }
+    }
+
+    private WriteAheadLog(String dataFilename) {
+        this.dataFilename = dataFilename;
+        this.logFilename = logFileFor(dataFilename);
+    }
+
+    public static String logFileFor(String dataFilename) {
+        String base = dataFilename.endsWith(".dat")
+            ? dataFilename.substring(0, dataFilename.length() - 4)
+            : dataFilename;
+        return base + ".wal";
+    }
+
+    // 파일의 로그 (처음 열 때 남아 있는 로그가 있으면 데이터 파일에 재실행)
+    public static synchronized WriteAheadLog open(String dataFilename) throws IOException {
+        Path key = Paths.get(dataFilename).toAbsolutePath().normalize();
+        WriteAheadLog wal = OPEN_LOGS.get(key);
+        if (wal == null) {
+            wal = new WriteAheadLog(dataFilename);
+            wal.replayed = wal.replay();
+            OPEN_LOGS.put(key, wal);
+            BufferPool.getInstance().setLog(dataFilename, wal);
+        }
+        return wal;
+    }
+
+    // 데이터 파일을 새로 만들 때 이전 로그 폐기
+    public static synchronized void discard(String dataFilename) throws IOException {
+        Path key = Paths.get(dataFilename).toAbsolutePath().normalize();
+        WriteAheadLog wal = OPEN_LOGS.remove(key);
+        if (wal != null && wal.channel != null) {
+            wal.channel.close();
+        }
+        BufferPool.getInstance().setLog(dataFilename, null);
+        Files.deleteIfExists(Paths.get(logFileFor(dataFilename)));
+    }
+
+    // 열린 로그 모두 checkpoint (프로그램 종료 시)
+    public static void checkpointAll() throws IOException {
+        List<WriteAheadLog> logs;
+        synchronized (WriteAheadLog.class) {
+            logs = new ArrayList<>(OPEN_LOGS.values());
+        }
+        for (WriteAheadLog wal : logs) {
+            wal.checkpoint();
+        }
+    }
+
+    // 이번에 열면서 재실행한 내용이 있었는지 (한 번만 true)
+    public synchronized boolean takeReplayed() {
+        boolean result = replayed;
+        replayed = false;
+        return result;
+    }
+
+    public void setGroupCommitSize(int groupCommitSize) {
+        this.groupCommitSize = Math.max(1, groupCommitSize);
+    }
+
+    public long getSyncCount() {
+        synchronized (syncLock) {
+            return syncCount;
+        }
+    }
+
+    // 묶음을 로그 버퍼에 추가 (데이터 페이지를 바꾸기 전에 호출), 반환값은 묶음 번호
+    public synchronized long append(Batch batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(batch.positions.size());
+        for (int i = 0; i < batch.positions.size(); i++) {
+            out.writeLong(batch.positions.get(i));
+            out.writeInt(batch.images.get(i).length);
+            out.write(batch.images.get(i));
+        }
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        DataOutputStream entry = new DataOutputStream(pending);
+        entry.writeInt(payload.length);
+        entry.writeInt((int) crc.getValue());
+        entry.write(payload);
+        return ++appendedLsn;
+    }
+
+    // 묶음을 버퍼 풀에 반영한 뒤 호출
+    public synchronized void applied(long lsn) {
+        appliedLsn = Math.max(appliedLsn, lsn);
+    }
+
+    // 모아 둔 묶음이 groupCommitSize 이상이면 commit, 로그가 커졌으면 checkpoint
+    public void commitIfDue() throws IOException {
+        long target;
+        synchronized (this) {
+            if (appendedLsn - durableLsn < groupCommitSize) return;
+            target = appendedLsn;
+        }
+        sync(target);
+        if (logSize() > CHECKPOINT_BYTES) {
+            checkpoint();
+        }
+    }
+
+    // 지금까지 추가한 묶음을 모두 디스크에
+    public void commit() throws IOException {
+        long target;
+        synchronized (this) {
+            target = appendedLsn;
+        }
+        sync(target);
+    }
+
+    // 버퍼 풀이 데이터 페이지를 쓰기 전에 호출
+    @Override
+    public void flush() throws IOException {
+        commit();
+    }
+
+    private void sync(long target) throws IOException {
+        synchronized (syncLock) {
+            if (durableLsn >= target) return;
+            byte[] bytes;
+            long upTo;
+            synchronized (this) {
+                bytes = pending.toByteArray();
+                pending.reset();
+                upTo = appendedLsn;
+            }
+            FileChannel ch = channel();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                ch.write(buffer, logSize + buffer.position());
+            }
+            ch.force(false);
+            logSize += bytes.length;
+            durableLsn = upTo;
+            syncCount++;
+        }
+    }
+
+    // 데이터 파일과 파생 파일의 dirty 페이지를 기록하고 로그 비우기
+    // (아직 반영 중인 묶음이 있었거나 그 사이 다른 묶음이 추가됐으면 비우지 않고 다음 checkpoint 로 미룸)
+    public void checkpoint() throws IOException {
+        long target;
+        boolean inFlight;
+        synchronized (this) {
+            target = appendedLsn;
+            inFlight = appliedLsn < target;
+        }
+        sync(target);
+        BufferPool.getInstance().flush(dataFilename);
+        new FileStructure().flushDerived(dataFilename);
+        if (inFlight) return;
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (appendedLsn != target || channel == null || logSize == 0) return;
+                channel.truncate(0);
+                channel.force(true);
+                logSize = 0;
+            }
+        }
+    }
+
+    private long logSize() {
+        synchronized (syncLock) {
+            return logSize;
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(Paths.get(logFilename),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            logSize = channel.size();
+        }
+        return channel;
+    }
+
+    // 온전한 묶음만 순서대로 데이터 파일에 다시 쓰고 (길이/CRC 가 맞지 않는 꼬리는 충돌 때 덜 쓰인 부분) 로그 비우기
+    private boolean replay() throws IOException {
+        Path path = Paths.get(logFilename);
+        if (!Files.exists(path) || Files.size(path) == 0) return false;
+
+        BufferPool bufferPool = BufferPool.getInstance();
+        bufferPool.openFile(dataFilename, true);
+        int entries = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (true) {
+                int length, checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 || length > Files.size(path)) break;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) break;
+
+                ByteBuffer entry = ByteBuffer.wrap(payload);
+                int count = entry.getInt();
+                for (int i = 0; i < count; i++) {
+                    long position = entry.getLong();
+                    byte[] image = new byte[entry.getInt()];
+                    entry.get(image);
+                    bufferPool.write(dataFilename, position, image, 0, image.length);
+                }
+                entries++;
+            }
+        }
+        bufferPool.flush(dataFilename);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ch.truncate(0);
+            ch.force(true);
+        }
+        System.out.println("Recovered " + entries + " logged change(s) into " + dataFilename + ".");
+        return true;
+    }
+}
@@ -0,0 +1,137 @@
+package main_package;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// 데이터 블록별 필드 최소/최대값 요약 (<이름>.zmp, BufferPool 을 통해 접근)
+// 범위 검색 때 범위와 겹치지 않는 블록은 레코드를 읽지 않고 건너뜀
+// 필드마다 앞 PREFIX_MAX 바이트만 저장 (접두사 순서는 전체 값 순서를 보존하므로 건너뛰기 판단에 충분)
+// 레코드가 정해진 자리 (nextRecordPosition 간격) 에만 놓인 파일에만 만들어짐 (범위 검색이 체인 대신 파일 순서로 읽고 빈 자리는 건너뜀)
+public class ZoneMap {
+    private static final int ZONE_MAGIC = 0x5A4F4E45; // "ZONE"
+    private static final int HEADER_SIZE = 4 + 4 + 4;
+    static final int PREFIX_MAX = 16;
+
+    private final BufferPool bufferPool = BufferPool.getInstance();
+    private final String zoneFilename;
+    private final int[] fieldStart;	// 레코드 안 필드 시작 위치
+    private final int[] prefix;		// 필드별 저장 길이
+    private final int[] entryOffset;	// 블록 요약 안 필드 위치
+    private final int entrySize;		// 사용 여부 1바이트 + 필드별 (최소, 최대)
+    private final byte[] entry;
+
+    private ZoneMap(String zoneFilename, FileStructure.Metadata meta) {
+        this.zoneFilename = zoneFilename;
+        this.fieldStart = new int[meta.fieldCount];
+        this.prefix = new int[meta.fieldCount];
+        this.entryOffset = new int[meta.fieldCount];
+        int pos = Projection.FIELDS_START;
+        int entryPos = 1;
+        for (int i = 0; i < meta.fieldCount; i++) {
+            int length = meta.fields.get(i).length;
+            fieldStart[i] = pos;
+            prefix[i] = Math.min(length, PREFIX_MAX);
+            entryOffset[i] = entryPos;
+            pos += length;
+            entryPos += 2 * prefix[i];
+        }
+        this.entrySize = entryPos;
+        this.entry = new byte[entrySize];
+    }
+
+    public static String zoneFileFor(String dataFilename) {
+        String base = dataFilename.endsWith(".dat")
+            ? dataFilename.substring(0, dataFilename.length() - 4)
+            : dataFilename;
+        return base + ".zmp";
+    }
+
+    public static boolean exists(String dataFilename) {
+        return BufferPool.getInstance().exists(zoneFileFor(dataFilename));
+    }
+
+    public static ZoneMap open(String dataFilename, FileStructure.Metadata meta) throws IOException {
+        String zoneFilename = zoneFileFor(dataFilename);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        BufferPool.getInstance().read(zoneFilename, 0, header.array(), 0, HEADER_SIZE);
+        ZoneMap zones = new ZoneMap(zoneFilename, meta);
+        if (header.getInt() != ZONE_MAGIC || header.getInt() != meta.fieldCount || header.getInt() != zones.entrySize) {
+            throw new IOException("Zone map does not match data file: " + zoneFilename);
+        }
+        return zones;
+    }
+
+    // 빈 요약 파일 생성
+    public static ZoneMap create(String dataFilename, FileStructure.Metadata meta) throws IOException {
+        String zoneFilename = zoneFileFor(dataFilename);
+        BufferPool.getInstance().deleteFile(zoneFilename);
+        BufferPool.getInstance().openFile(zoneFilename, true);
+
+        ZoneMap zones = new ZoneMap(zoneFilename, meta);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(ZONE_MAGIC);
+        header.putInt(meta.fieldCount);
+        header.putInt(zones.entrySize);
+        BufferPool.getInstance().write(zoneFilename, 0, header.array(), 0, HEADER_SIZE);
+        return zones;
+    }
+
+    // 기존 레코드로 새로 구성 (레코드 자리가 아닌 곳에 놓인 레코드가 있는 파일이면 만들지 않고 null)
+    public static ZoneMap build(String dataFilename, FileStructure fs, FileStructure.Metadata meta) throws IOException {
+        // 슬롯/압축 형식은 주소가 슬롯 번호라 파일 순서 스캔을 하지 않음
+        if (!meta.isFixed()) {
+            return null;
+        }
+        ZoneMap zones = create(dataFilename, meta);
+        int recordSize = fs.getRecordSize(meta);
+        int block = meta.firstRecordBlock;
+        int offset = meta.firstRecordOffset;
+        while (block != -1 && offset != -1) {
+            if (!FileStructure.isSlotPosition((long) block * meta.blockSize + offset, recordSize, meta.blockSize)) {
+                BufferPool.getInstance().deleteFile(zones.zoneFilename);
+                return null;
+            }
+            ByteBuffer rec = fs.readRecordBytes(dataFilename, meta, block, offset);
+            zones.add(block, rec.array(), 0);
+            block = rec.getInt(0);
+            offset = rec.getInt(4);
+        }
+        return zones;
+    }
+
+    private long entryPosition(int block) {
+        return HEADER_SIZE + (long) block * entrySize;
+    }
+
+    // 블록 요약에 레코드 하나 반영 (record[from] 부터 레코드 바이트)
+    public void add(int block, byte[] record, int from) throws IOException {
+        bufferPool.read(zoneFilename, entryPosition(block), entry, 0, entrySize);
+        boolean empty = entry[0] == 0;
+        entry[0] = 1;
+        for (int i = 0; i < prefix.length; i++) {
+            int value = from + fieldStart[i];
+            int min = entryOffset[i];
+            int max = min + prefix[i];
+            if (empty || Arrays.compareUnsigned(record, value, value + prefix[i], entry, min, min + prefix[i]) < 0) {
+                System.arraycopy(record, value, entry, min, prefix[i]);
+            }
+            if (empty || Arrays.compareUnsigned(record, value, value + prefix[i], entry, max, max + prefix[i]) > 0) {
+                System.arraycopy(record, value, entry, max, prefix[i]);
+            }
+        }
+        bufferPool.write(zoneFilename, entryPosition(block), entry, 0, entrySize);
+    }
+
+    // 블록에 범위 안의 값이 있을 수 있는지 (요약이 없는 블록은 레코드도 없음)
+    public boolean mayContain(int block, int fieldIndex, KeyRange range) throws IOException {
+        bufferPool.read(zoneFilename, entryPosition(block), entry, 0, entrySize);
+        if (entry[0] == 0) return false;
+        int p = prefix[fieldIndex];
+        int min = entryOffset[fieldIndex];
+        int max = min + p;
+        // 블록 최대값 < 범위 하한 이거나 블록 최소값 > 범위 상한이면 겹치지 않음
+        if (Arrays.compareUnsigned(entry, max, max + p, range.low, 0, p) < 0) return false;
+        return Arrays.compareUnsigned(entry, min, min + p, range.high, 0, p) <= 0;
+    }
+}